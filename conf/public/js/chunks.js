@@ -0,0 +1,119 @@
+function collectChunkRanges(content) {
+    var ranges = [];
+    var range = null;
+    for (var node = content.firstChild; node; node = node.nextSibling) {
+        if (node.nodeType === Node.COMMENT_NODE) {
+            var match = /^afx-chunk:(\w+):(-?\d+)$/.exec(node.nodeValue);
+            if (match) {
+                range = {hash: match[1], delta: parseInt(match[2]), start: node, nodes: []};
+                continue;
+            }
+            if (node.nodeValue === "/afx-chunk" && range) {
+                range.end = node;
+                ranges.push(range);
+                range = null;
+                continue;
+            }
+        }
+        if (range) {
+            range.nodes.push(node);
+        }
+    }
+    return ranges;
+}
+
+function shiftDataLines(nodes, diff) {
+    nodes.forEach(function (node) {
+        if (node.nodeType !== Node.ELEMENT_NODE) {
+            return;
+        }
+        var elements = [node].concat(Array.prototype.slice.call(node.querySelectorAll("[class*=data-line-]")));
+        elements.forEach(function (element) {
+            var classes = element.getAttribute("class");
+            if (classes) {
+                element.setAttribute("class", classes.replace(/\bdata-line-(\d+)\b/g, function (match, line) {
+                    return "data-line-" + (parseInt(line) + diff);
+                }));
+            }
+        });
+    });
+}
+
+function rangeNodes(range) {
+    return [range.start].concat(range.nodes, [range.end]);
+}
+
+function createChunkRange(chunk) {
+    var holder = document.createElement("div");
+    holder.innerHTML = chunk.html;
+    return {
+        hash: chunk.hash,
+        delta: chunk.delta,
+        start: document.createComment("afx-chunk:" + chunk.hash + ":" + chunk.delta),
+        nodes: Array.prototype.slice.call(holder.childNodes),
+        end: document.createComment("/afx-chunk")
+    };
+}
+
+// Patches only the changed top-level blocks, returns false if the page doesn't have the reused ones
+function patchChunks(chunks) {
+    var content = document.getElementById("content");
+    var ranges = content ? collectChunkRanges(content) : [];
+
+    var byHash = {};
+    ranges.forEach(function (range) {
+        (byHash[range.hash] = byHash[range.hash] || []).push(range);
+    });
+
+    var available = {};
+    Object.keys(byHash).forEach(function (hash) {
+        available[hash] = byHash[hash].length;
+    });
+    var missing = chunks.some(function (chunk) {
+        return chunk.html === null && !(available[chunk.hash]-- > 0);
+    });
+    var reusable = chunks.some(function (chunk) {
+        return chunk.html === null;
+    });
+
+    if (!content || missing || !reusable) {
+        return false;
+    }
+
+    var assigned = chunks.map(function (chunk) {
+        return chunk.html === null ? byHash[chunk.hash].shift() : null;
+    });
+
+    ranges.filter(function (range) {
+        return assigned.indexOf(range) < 0;
+    }).forEach(function (range) {
+        rangeNodes(range).forEach(function (node) {
+            content.removeChild(node);
+        });
+    });
+
+    var previous = null;
+    chunks.forEach(function (chunk, index) {
+        var reference = previous ? previous.end.nextSibling : content.firstChild;
+        var range = assigned[index];
+        if (range) {
+            if (range.delta !== chunk.delta) {
+                shiftDataLines(range.nodes, chunk.delta - range.delta);
+                range.start.nodeValue = "afx-chunk:" + chunk.hash + ":" + chunk.delta;
+                range.delta = chunk.delta;
+            }
+            if (range.start !== reference) {
+                rangeNodes(range).forEach(function (node) {
+                    content.insertBefore(node, reference);
+                });
+            }
+        } else {
+            range = createChunkRange(chunk);
+            rangeNodes(range).forEach(function (node) {
+                content.insertBefore(node, reference);
+            });
+        }
+        previous = range;
+    });
+    return true;
+}
@@ -110,7 +110,7 @@ function updateStatusBox() {
         var column = cursorPosition.column;
 
         var lineCount = editor.session.getLength();
-        var wordCount = editor.session.getValue().length;
+        var wordCount = editorLength();
 
         afx.updateStatusBox(row, column, lineCount, wordCount);
     }, 1000);
@@ -133,15 +133,43 @@ editor.getSession().selection.on('changeCursor', function (e) {
 var renderAction = new BufferedAction();
 var editorChangeListener = function (obj) {
 
+    sendTextChange(obj);
+
     if (afterFirstChange) {
         editorPane.appendWildcard();
     }
 
-    afx.textListener(editor.getValue(), editorMode(), editorPane.getPath());
+    afx.textListener(editorPane, editorMode(), editorPane.getPath());
 
     checkSpelling();
 };
 
+// editorPane keeps a copy of the content, only the changed range is sent to it
+var textChangesSuspended = false;
+function sendTextChange(delta) {
+    if (textChangesSuspended) {
+        return;
+    }
+    var doc = editor.session.doc;
+    var newLine = doc.getNewLineCharacter();
+    var index = doc.positionToIndex(delta.start);
+    if (delta.action == "insert") {
+        editorPane.onTextInserted(index, delta.lines.join(newLine));
+    } else {
+        var length = (delta.lines.length - 1) * newLine.length;
+        for (var i = 0; i < delta.lines.length; i++) {
+            length += delta.lines[i].length;
+        }
+        editorPane.onTextRemoved(index, length);
+    }
+}
+
+function editorLength() {
+    var doc = editor.session.doc;
+    // Index of the end of the last line, counted with a line separator after it
+    return doc.positionToIndex({row: doc.getLength(), column: 0}) - doc.getNewLineCharacter().length;
+}
+
 function clearTypoMarkers() {
     if (markers.length) {
         var marker = markers.pop();
@@ -153,32 +181,91 @@ function clearTypoMarkers() {
 }
 
 var spellcheckAction = new BufferedAction();
+var spellRowCache = {}; // row signature -> typos of rows with that content
+var spellVersion = 0;
+var spellKey = null;
+
 function checkSpelling() {
 
+    spellVersion++;
+    editorPane.cancelSpellcheck();
     clearTypoMarkers();
     spellcheckAction.buff(function () {
         afx.processTokens();
     }, 1000);
 }
 
-function getTokenList() {
-    var tokenit = new TokenIterator(editor.getSession(), 0, 0);
-    var currentToken = tokenit.getCurrentToken();
+function rowSignature(tokens) {
+    return tokens.map(function (token) {
+        return token.type + "\u0001" + token.value;
+    }).join("\u0002");
+}
+
+// Tokens of the rows not spellchecked yet, rows with the same content are sent once
+function getTokenRows(key) {
 
-    var allTokens = [];
+    if (spellKey !== key) {
+        spellKey = key;
+        spellRowCache = {};
+    }
 
-    while (currentToken) {
-        allTokens.push({
-            type: currentToken.type,
-            value: currentToken.value,
-            row: tokenit.getCurrentTokenRow(),
-            start: tokenit.getCurrentTokenColumn(),
-            end: tokenit.getCurrentTokenColumn() + currentToken.value.length
+    var session = editor.getSession();
+    var pending = {};
+    var rows = [];
+
+    for (var row = 0, length = session.getLength(); row < length; row++) {
+        var tokens = session.getTokens(row);
+        var signature = rowSignature(tokens);
+        if (spellRowCache.hasOwnProperty(signature) || pending.hasOwnProperty(signature)) {
+            continue;
+        }
+        pending[signature] = true;
+
+        var column = 0;
+        rows.push({
+            signature: signature,
+            tokens: tokens.map(function (token) {
+                var start = column;
+                column += token.value.length;
+                return {type: token.type, value: token.value, row: row, start: start, end: column};
+            })
         });
+    }
 
-        currentToken = tokenit.stepForward();
+    return JSON.stringify({version: spellVersion, rows: rows});
+}
+
+function applyTypos(version, typos) {
+    var typoMap = JSON.parse(typos);
+    for (var signature in typoMap) {
+        spellRowCache[signature] = typoMap[signature];
+    }
+
+    if (version === spellVersion) {
+        showTypos();
     }
-    return allTokens;
+}
+
+function showTypos() {
+    clearTypoMarkers();
+
+    var session = editor.getSession();
+    var visibleRowCache = {};
+
+    for (var row = 0, length = session.getLength(); row < length; row++) {
+        var signature = rowSignature(session.getTokens(row));
+        var typos = spellRowCache[signature];
+        if (!typos) {
+            continue;
+        }
+        visibleRowCache[signature] = typos;
+        typos.forEach(function (typo) {
+            addTypo(row, typo.start, typo.end, typo.type);
+        });
+    }
+
+    // Rows no longer in the document are forgotten
+    spellRowCache = visibleRowCache;
 }
 
 function updateOptions() {
@@ -248,7 +335,12 @@ function setEditorValue(content) {
     var pos;
     if (afterFirstChange)
         pos = editor.session.selection.toJSON();
-    editor.setValue(content, 1);
+    textChangesSuspended = true;
+    try {
+        editor.setValue(content, 1);
+    } finally {
+        textChangesSuspended = false;
+    }
     editor.session.setScrollTop(-100);
     if (afterFirstChange)
         editor.session.selection.fromJSON(pos);
@@ -304,7 +396,7 @@ function initializeEmmet(mode) {
 
 var rerenderAction = new BufferedAction();
 function rerender() {
-    afx.textListener(editor.getValue(), editorMode(), editorPane.getPath());
+    afx.textListener(editorPane, editorMode(), editorPane.getPath());
     updateStatusBox();
 
     if (markers.length == 0) {
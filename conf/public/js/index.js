@@ -1,4 +1,6 @@
 var soket = new SockJS("/ws");
+var previewVersion = -1;
+var resyncRequested = false;
 
 function refreshUI(data) {
 
@@ -6,10 +8,32 @@ function refreshUI(data) {
 
 }
 
+// Asks for a snapshot once, the changes are ignored until it arrives
+function resync() {
+    if (!resyncRequested) {
+        resyncRequested = true;
+        soket.send("resync");
+    }
+}
+
 soket.onmessage = function (e) {
-    refreshUI(e.data);
+    var message = JSON.parse(e.data);
+    if (message.version <= previewVersion) {
+        return;
+    }
+    if (message.type === "snapshot") {
+        refreshUI(message.html);
+        previewVersion = message.version;
+        resyncRequested = false;
+    } else if (message.type === "chunks") {
+        if (message.base !== previewVersion || !patchChunks(message.chunks)) {
+            resync();
+            return;
+        }
+        previewVersion = message.version;
+    }
 };
 
 soket.onerror = soket.onclose = function (e) {
     $(".row.connection-closed").show();
-};
\ No newline at end of file
+};
@@ -33,6 +33,13 @@ function refreshUI(data) {
 
 }
 
+// Patches only the changed top-level blocks, falls back to a full refresh if the page doesn't have the reused ones
+function refreshChunks(chunkData, data) {
+    if (!patchChunks(JSON.parse(chunkData))) {
+        refreshUI(data);
+    }
+}
+
 (function () {
     alert("PREVIEW_LOADED");
 })();
\ No newline at end of file
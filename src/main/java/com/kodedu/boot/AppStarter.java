@@ -7,6 +7,7 @@ import com.kodedu.helper.IOHelper;
 import com.kodedu.helper.TaskbarHelper;
 import com.kodedu.other.RenderResult;
 import com.kodedu.service.DirectoryService;
+import com.kodedu.service.DocumentSaver;
 import com.kodedu.service.FileOpenListener;
 import com.kodedu.service.ThreadService;
 import com.kodedu.service.convert.docbook.DocBookConverter;
@@ -453,6 +454,10 @@ public class AppStarter extends Application {
     @Override
     public void stop() throws Exception {
         controller.closeApp(null);
+        // Saves started by closing the window or losing focus
+        if (!context.getBean(DocumentSaver.class).awaitSaves(10_000)) {
+            logger.warn("Documents are still being saved while exiting");
+        }
         context.registerShutdownHook();
         Platform.exit();
         System.exit(0);
@@ -31,17 +31,23 @@ import com.kodedu.service.extension.processor.XrefIncludeProcessor;
 import com.kodedu.service.extension.tree.FileTreeBlockMacroProcessor;
 import com.kodedu.service.extension.tree.FileTreeBlockProcessor;
 import com.kodedu.service.extension.tree.FileTreeInlineMacroProcessor;
+import io.undertow.websockets.extensions.PerMessageDeflateHandshake;
+import io.undertow.websockets.jsr.WebSocketDeploymentInfo;
 import org.asciidoctor.Asciidoctor;
 import org.asciidoctor.extension.JavaExtensionRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
 import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.embedded.undertow.UndertowServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
 import org.springframework.boot.web.servlet.support.SpringBootServletInitializer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Scope;
 import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.core.task.support.TaskExecutorAdapter;
 import org.springframework.web.client.RestTemplate;
@@ -51,6 +57,7 @@ import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry
 
 import java.util.Base64;
 import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
 
 
 @Configuration
@@ -86,8 +93,9 @@ public class SpringAppConfig extends SpringBootServletInitializer implements Web
     /*
         Used for standard html5 backend
     */
-    @Bean(destroyMethod = "shutdown")
+    @Bean
     @Lazy
+    @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
     public Asciidoctor htmlDoctor(ChartBlockProcessor fxChartBlockProcessor,
                                   FileTreeBlockProcessor treeBlockProcessor,
                                   MathBlockProcessor[] mathBlockProcessor,
@@ -124,8 +132,9 @@ public class SpringAppConfig extends SpringBootServletInitializer implements Web
     /*
         Used for reveal.js backend
     */
-    @Bean(destroyMethod = "shutdown")
+    @Bean
     @Lazy
+    @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
     public Asciidoctor revealDoctor(ChartBlockProcessor fxChartBlockProcessor,
                                   FileTreeBlockProcessor treeBlockProcessor,
                                   MathBlockProcessor[] mathBlockProcessor,
@@ -159,8 +168,12 @@ public class SpringAppConfig extends SpringBootServletInitializer implements Web
         return asciidoctor;
     }
 
+    /*
+        Pooled instances created after startup are prepared off the FX thread already,
+        their libraries are loaded before the instance is handed out
+    */
     private void runAsyncConditionally(Runnable runnable) {
-        if (AppStarter.config.isCmdStart()) {
+        if (AppStarter.config.isCmdStart() || AsciidoctorFactory.isInitialized()) {
             runnable.run();
         } else {
             Thread.startVirtualThread(runnable);
@@ -170,8 +183,9 @@ public class SpringAppConfig extends SpringBootServletInitializer implements Web
     /*
         Used for non-html5 backend like pdf, epub3 etc.
     */
-    @Bean(destroyMethod = "shutdown")
+    @Bean
     @Lazy
+    @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
     public Asciidoctor nonHtmlDoctor(ChartBlockProcessor fxChartBlockProcessor,
                                      FileTreeBlockProcessor treeBlockProcessor,
                                      MathBlockProcessor[] mathBlockProcessor,
@@ -207,8 +221,9 @@ public class SpringAppConfig extends SpringBootServletInitializer implements Web
      Used for plan render of an Asciidoctor document,
      to read attributes, document etc.
      */
-    @Bean(destroyMethod = "shutdown")
+    @Bean
     @Lazy
+    @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
     public Asciidoctor plainDoctor(DocumentAttributeProcessor documentAttributeProcessor) {
         Asciidoctor asciidoctor = AsciidoctorFactory.getAsciidoctor();
         JavaExtensionRegistry registry = asciidoctor.javaExtensionRegistry();
@@ -256,6 +271,20 @@ public class SpringAppConfig extends SpringBootServletInitializer implements Web
         return registry;
     }
 
+    /*
+        Compresses the WebSocket messages of the live preview, so the html isn't sent as is.
+        Unordered, it runs after the customizer of Spring Boot that creates the WebSocket deployment
+    */
+    @Bean
+    public WebServerFactoryCustomizer<UndertowServletWebServerFactory> webSocketCompressionCustomizer() {
+        return factory -> factory.addDeploymentInfoCustomizers(deploymentInfo -> {
+            Object webSocketInfo = deploymentInfo.getServletContextAttributes().get(WebSocketDeploymentInfo.ATTRIBUTE_NAME);
+            if (webSocketInfo instanceof WebSocketDeploymentInfo info) {
+                info.addExtension(new PerMessageDeflateHandshake(false, Deflater.BEST_SPEED));
+            }
+        });
+    }
+
     @Bean
     public ObjectMapper objectMapper() {
         return new ObjectMapper();
@@ -17,7 +17,6 @@ import com.kodedu.service.ThreadService;
 import com.kodedu.service.extension.impl.AsciiTreeGenerator;
 import com.kodedu.service.shortcut.ShortcutProvider;
 import com.kodedu.service.ui.TabService;
-import com.kodedu.spell.dictionary.Token;
 import jakarta.annotation.PostConstruct;
 import javafx.application.Platform;
 import javafx.beans.property.BooleanProperty;
@@ -61,7 +60,10 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static java.util.Objects.nonNull;
 import static javafx.scene.input.KeyEvent.*;
@@ -90,6 +92,8 @@ public class EditorPane extends AnchorPane {
     private final ObservableList<Runnable> handleReadyTasks = FXCollections.observableArrayList();
     private String mode = "ace/mode/asciidoc";
     private String initialEditorValue = "";
+    private final TextMirror textMirror = new TextMirror();
+    private static final Pattern LINE_SEPARATOR = Pattern.compile("\\r\\n|\\r|\\n");
     private Path path;
     private FileTime lastModifiedTime;
     private static String lastInterPath;
@@ -98,6 +102,7 @@ public class EditorPane extends AnchorPane {
     private final BooleanProperty ready = new SimpleBooleanProperty(false);
     private final ObjectProperty<Path> spellLanguage = new SimpleObjectProperty<>();
     private final AtomicBoolean contextOpen = new AtomicBoolean(false);
+    private final AtomicLong spellcheckRun = new AtomicLong();
 
     private final BooleanProperty changedProperty = new SimpleBooleanProperty(false);
 
@@ -337,14 +342,44 @@ public class EditorPane extends AnchorPane {
         return (JSObject) webEngine().executeScript("window");
     }
 
+    /**
+     * Content of the editor, read from its copy instead of the editor
+     */
     public String getEditorValue() {
-        return (String) webEngine().executeScript("editor.getValue()");
+        if (Platform.isFxApplicationThread()) {
+            verifyTextMirror();
+        }
+        if (!textMirror.isInSync()) {
+            threadService.supply(() -> {
+                logger.warn("Editor content of {} is out of sync, reading it again", path);
+                textMirror.setText((String) webEngine().executeScript("editor.getValue()"));
+                return null;
+            });
+        }
+        return textMirror.getText();
+    }
+
+    /*
+     Compares the lengths only, it's the cheap way to catch a missed change
+     */
+    private void verifyTextMirror() {
+        try {
+            Number length = (Number) webEngine().executeScript("editorLength()");
+            if (textMirror.length() != length.intValue()) {
+                textMirror.outOfSync();
+            }
+        } catch (Exception e) {
+            // the editor isn't loaded yet
+        }
     }
 
     public void setEditorValue(String value) {
         threadService.runActionLater(() -> {
+            // The editor doesn't send its changes while setting the value
+            textMirror.setText(normalizeLineSeparators(value));
             getWindow().setMember("editorValue", value);
             webEngine().executeScript("setEditorValue(editorValue)");
+            verifyTextMirror();
             getWebView().requestFocus();
             updateFoldStyle();
         });
@@ -352,6 +387,28 @@ public class EditorPane extends AnchorPane {
 
     }
 
+    /*
+     The editor joins its lines with the first line separator of the content
+     */
+    private String normalizeLineSeparators(String value) {
+        Matcher matcher = LINE_SEPARATOR.matcher(value);
+        if (!matcher.find()) {
+            return value;
+        }
+        String separator = matcher.group();
+        return matcher.reset().replaceAll(Matcher.quoteReplacement(separator));
+    }
+
+    @WebkitCall(from = "editor")
+    public void onTextInserted(int index, String text) {
+        textMirror.insert(index, text);
+    }
+
+    @WebkitCall(from = "editor")
+    public void onTextRemoved(int index, int length) {
+        textMirror.remove(index, length);
+    }
+
     @WebkitCall(from = "editor")
     public void onThemeLoaded() {
         if (!isVisible()) {
@@ -930,14 +987,21 @@ public class EditorPane extends AnchorPane {
         keyMappingReady.countDown();
     }
 
-    public void addTypo(Token token) {
-        String tokenClass = token.isEmptySuggestion() ? "misspelled" : "misspelled-strong";
+    public void applyTypos(int version, String jsonTypos) {
+        call("applyTypos", version, jsonTypos);
+    }
+
+    public long newSpellcheckRun() {
+        return spellcheckRun.incrementAndGet();
+    }
+
+    public boolean isSpellcheckRun(long run) {
+        return spellcheckRun.get() == run;
+    }
 
-        webEngine().executeScript(String.format("addTypo(%d,%d,%d,\"%s\")",
-                token.getRow(),
-                token.getStart(),
-                token.getEnd(),
-                tokenClass));
+    // Called by the editor on each change, a running spellcheck stops early
+    public void cancelSpellcheck() {
+        spellcheckRun.incrementAndGet();
     }
 
     public boolean isEditorFocused() {
@@ -976,8 +1040,8 @@ public class EditorPane extends AnchorPane {
         webEngine().executeScript(String.format("replaceMisspelled(\"%s\")", suggestion));
     }
 
-    public String tokenList() {
-        return (String) webEngine().executeScript("JSON.stringify(getTokenList())");
+    public String tokenRows(String spellKey) {
+        return (String) call("getTokenRows", spellKey);
     }
 
     public void updateFoldStyle() {
@@ -3,13 +3,19 @@ package com.kodedu.component;
 import com.kodedu.config.*;
 import com.kodedu.controller.ApplicationController;
 import com.kodedu.other.Current;
+import com.kodedu.other.PreviewChunk;
 import com.kodedu.service.DirectoryService;
 import com.kodedu.service.ThreadService;
+import jakarta.json.Json;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonObjectBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 /**
  * Created by usta on 09.04.2015.
  */
@@ -60,6 +66,27 @@ public class HtmlPane extends ViewPanel {
         });
     }
 
+    public void refreshChunks(List<PreviewChunk> chunks, String content) {
+        JsonArrayBuilder arrayBuilder = Json.createArrayBuilder();
+        for (PreviewChunk chunk : chunks) {
+            JsonObjectBuilder objectBuilder = Json.createObjectBuilder()
+                    .add("hash", chunk.hash())
+                    .add("delta", chunk.lineDelta());
+            if (chunk.isReused()) {
+                objectBuilder.addNull("html");
+            } else {
+                objectBuilder.add("html", chunk.html());
+            }
+            arrayBuilder.add(objectBuilder);
+        }
+        String chunkData = arrayBuilder.build().toString();
+        threadService.runActionLater(() -> {
+            this.setMember("lastRenderedChunks", chunkData);
+            this.setMember("lastRenderedValue", content);
+            webEngine().executeScript("refreshChunks(lastRenderedChunks, lastRenderedValue)");
+        });
+    }
+
     public void updateBase64Url(int index, String imageBase64) {
         threadService.runActionLater(() -> {
             getWindow().call("updateBase64Url", index, imageBase64);
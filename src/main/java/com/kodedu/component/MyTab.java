@@ -6,6 +6,7 @@ import com.kodedu.helper.IOHelper;
 import com.kodedu.other.ExtensionFilters;
 import com.kodedu.other.Item;
 import com.kodedu.service.DirectoryService;
+import com.kodedu.service.DocumentSaver;
 import com.kodedu.service.ThreadService;
 import com.kodedu.service.shortcut.AsciidocShortcutService;
 import com.kodedu.service.shortcut.HtmlShortcutService;
@@ -30,8 +31,7 @@ import java.nio.file.Path;
 import java.nio.file.attribute.FileTime;
 import java.util.Objects;
 import java.util.Optional;
-
-import static java.nio.file.StandardOpenOption.*;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Created by usta on 17.12.2014.
@@ -47,11 +47,12 @@ public class MyTab extends Tab {
     private final TabService tabService;
     private final ApplicationController controller;
     private final ThreadService threadService;
+    private final DocumentSaver documentSaver;
 
     private final Logger logger = LoggerFactory.getLogger(MyTab.class);
 
     @Autowired
-    public MyTab(EditorPane editorPane, StoredConfigBean storedConfigBean, DirectoryService directoryService, TabService tabService, ApplicationController controller, ThreadService threadService) {
+    public MyTab(EditorPane editorPane, StoredConfigBean storedConfigBean, DirectoryService directoryService, TabService tabService, ApplicationController controller, ThreadService threadService, DocumentSaver documentSaver) {
         this.editorPane = editorPane;
         this.editorPane.setTab(this);
         this.storedConfigBean = storedConfigBean;
@@ -59,6 +60,7 @@ public class MyTab extends Tab {
         this.tabService = tabService;
         this.controller = controller;
         this.threadService = threadService;
+        this.documentSaver = documentSaver;
         changedPropertyProperty().addListener((observable, oldValue, newValue) -> {
 
             if (newValue) {
@@ -124,8 +126,8 @@ public class MyTab extends Tab {
             }
             return type;
         } else { // others should be save and close
-            saveDoc();
-            if (isSaved()) {
+            boolean saved = save(false, false).join();
+            if (saved && isSaved()) {
                 closeIt();
                 return ButtonType.YES;
             } else {
@@ -200,26 +202,37 @@ public class MyTab extends Tab {
 
     }
 
-    private synchronized void save() {
+    /**
+     * Takes the content of the editor and writes it in the background
+     *
+     * @param overwrite      whether changes made on disk since the document was loaded are overwritten
+     * @param reportConflict whether the conflict alert is shown when the document was changed on disk meanwhile
+     * @return completes with whether the content is written
+     */
+    private CompletableFuture<Boolean> save(boolean overwrite, boolean reportConflict) {
 
         FileTime latestModifiedTime = IOHelper.getLastModifiedTime(getPath());
+        FileTime expectedTime = overwrite ? null : getLastModifiedTime();
 
-        if (Objects.nonNull(latestModifiedTime) && Objects.nonNull(getLastModifiedTime())) {
-            if (latestModifiedTime.compareTo(getLastModifiedTime()) > 0) {
+        if (Objects.nonNull(latestModifiedTime) && Objects.nonNull(expectedTime)) {
+            if (latestModifiedTime.compareTo(expectedTime) > 0) {
 
                 this.select();
                 ButtonType buttonType = AlertHelper.conflictAlert(getPath()).orElse(ButtonType.CANCEL);
 
                 if (buttonType == ButtonType.CANCEL) {
-                    return;
+                    return CompletableFuture.completedFuture(false);
                 }
 
                 if (buttonType == AlertHelper.LOAD_FILE_SYSTEM_CHANGES) {
                     load();
+                    return CompletableFuture.completedFuture(true);
                 }
+
+                expectedTime = null;
             } else {
                 if (!isNew() && !isChanged()) {
-                    return;
+                    return CompletableFuture.completedFuture(true);
                 }
             }
         }
@@ -232,36 +245,67 @@ public class MyTab extends Tab {
             File file = fileChooser.showSaveDialog(null);
 
             if (Objects.isNull(file))
-                return;
+                return CompletableFuture.completedFuture(false);
 
             setPath(file.toPath());
             setTabText(file.toPath().getFileName().toString());
         }
 
+        Path path = getPath();
         String editorValue = editorPane.getEditorValue();
 
-        IOHelper.createDirectories(getPath().getParent());
+        // Edits made while the content is being written mark the tab as changed again
+        setChangedProperty(false);
+
+        CompletableFuture<DocumentSaver.SaveResult> saving = documentSaver.save(path, editorValue, expectedTime);
+        // Not waiting for the UI semaphore, the FX thread may be waiting for this save
+        saving.whenComplete((result, error) -> threadService.runActionLater(() -> saved(path, result, error, reportConflict), true));
 
-        Optional<Exception> exception =
-                IOHelper.writeToFile(getPath(), editorValue, TRUNCATE_EXISTING, CREATE, SYNC);
+        return saving.handle((result, error) -> Objects.isNull(error) && !result.conflict());
+    }
 
-        if (exception.isPresent()) {
+    private void saved(Path path, DocumentSaver.SaveResult result, Throwable error, boolean reportConflict) {
+
+        if (!Objects.equals(path, getPath())) {
             return;
         }
 
-        setLastModifiedTime(IOHelper.getLastModifiedTime(getPath()));
+        if (Objects.nonNull(error)) {
+            setChangedProperty(true);
+            return;
+        }
 
-        setChangedProperty(false);
+        if (result.conflict()) {
+            setChangedProperty(true);
+
+            if (!reportConflict || Objects.isNull(getTabPane())) {
+                return;
+            }
+
+            this.select();
+            ButtonType buttonType = AlertHelper.conflictAlert(path).orElse(ButtonType.CANCEL);
+
+            if (buttonType == AlertHelper.LOAD_FILE_SYSTEM_CHANGES) {
+                load();
+            } else if (buttonType == AlertHelper.KEEP_MEMORY_CHANGES) {
+                save(true, true);
+            }
+            return;
+        }
+
+        setLastModifiedTime(result.lastModifiedTime());
 
         ObservableList<Item> recentFiles = storedConfigBean.getRecentFiles();
-        recentFiles.remove(new Item(getPath()));
-        recentFiles.add(0, new Item(getPath()));
+        recentFiles.remove(new Item(path));
+        recentFiles.add(0, new Item(path));
 
-        directoryService.setInitialDirectory(Optional.ofNullable(getPath().toFile()));
+        directoryService.setInitialDirectory(Optional.ofNullable(path.toFile()));
     }
 
     public void saveDoc() {
-        threadService.runActionLater(this::save);
+        threadService.runActionLater(() -> {
+            save(false, true);
+        });
     }
 
 
@@ -0,0 +1,61 @@
+package com.kodedu.component;
+
+import java.util.Objects;
+
+/**
+ * Copy of the editor content kept up to date with the changes of the editor.
+ * <p>
+ * The editor sends the offset and the inserted text or removed length of each change instead of its whole
+ * content. A change that doesn't fit the copy marks it as out of sync, so that it's read from the editor again.
+ * Readers off the FX thread share the same snapshot until the next change.
+ */
+class TextMirror {
+
+    private final StringBuilder text = new StringBuilder();
+    private String snapshot = "";
+    private boolean inSync = true;
+
+    synchronized void setText(String value) {
+        text.setLength(0);
+        text.append(value);
+        snapshot = value;
+        inSync = true;
+    }
+
+    synchronized void insert(int index, String inserted) {
+        if (index < 0 || index > text.length()) {
+            inSync = false;
+            return;
+        }
+        text.insert(index, inserted);
+        snapshot = null;
+    }
+
+    synchronized void remove(int index, int length) {
+        if (index < 0 || length < 0 || index + length > text.length()) {
+            inSync = false;
+            return;
+        }
+        text.delete(index, index + length);
+        snapshot = null;
+    }
+
+    synchronized String getText() {
+        if (Objects.isNull(snapshot)) {
+            snapshot = text.toString();
+        }
+        return snapshot;
+    }
+
+    synchronized int length() {
+        return text.length();
+    }
+
+    synchronized boolean isInSync() {
+        return inSync;
+    }
+
+    synchronized void outOfSync() {
+        inSync = false;
+    }
+}
@@ -0,0 +1,129 @@
+package com.kodedu.component;
+
+import javafx.collections.ObservableList;
+import javafx.scene.control.TreeItem;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Patches the items of a tree view to match a new tree of values, instead of rebuilding them.
+ * <p>
+ * An item whose value has the same key as a new value is reused, so it keeps its expansion and
+ * selection state, and its value is replaced only when the content differs. Keys need not be unique
+ * among siblings, items of the same key are reused in order.
+ */
+public class TreeItemPatcher<T> {
+
+    private final Function<T, Object> key;
+    private final Function<T, Object> content;
+
+    /**
+     * @param key     identity of a value among its siblings across updates
+     * @param content what is shown of a value, including its key
+     */
+    public TreeItemPatcher(Function<T, Object> key, Function<T, Object> content) {
+        this.key = key;
+        this.content = content;
+    }
+
+    /**
+     * Whether the trees show the same, so that patching one into the other changes nothing
+     */
+    public boolean isSame(List<Node<T>> nodes, List<Node<T>> otherNodes) {
+        if (Objects.isNull(nodes) || Objects.isNull(otherNodes) || nodes.size() != otherNodes.size()) {
+            return false;
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            Node<T> node = nodes.get(i);
+            Node<T> otherNode = otherNodes.get(i);
+            if (!Objects.equals(content.apply(node.value()), content.apply(otherNode.value()))
+                    || !isSame(node.children(), otherNode.children())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Makes the children of the parent item match the nodes, returns whether any item is changed
+     */
+    public boolean patch(TreeItem<T> parent, List<Node<T>> nodes) {
+        ObservableList<TreeItem<T>> items = parent.getChildren();
+
+        Map<Object, Deque<TreeItem<T>>> reusableItems = new HashMap<>();
+        for (TreeItem<T> item : items) {
+            reusableItems.computeIfAbsent(key.apply(item.getValue()), k -> new ArrayDeque<>()).add(item);
+        }
+
+        boolean changed = false;
+        List<TreeItem<T>> patchedItems = new ArrayList<>(nodes.size());
+        Set<TreeItem<T>> newItems = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Node<T> node : nodes) {
+            Deque<TreeItem<T>> candidates = reusableItems.get(key.apply(node.value()));
+            TreeItem<T> item = Objects.isNull(candidates) ? null : candidates.poll();
+            if (Objects.isNull(item)) {
+                item = new TreeItem<>(node.value());
+                item.setExpanded(true);
+                newItems.add(item);
+                changed = true;
+            } else if (!Objects.equals(content.apply(item.getValue()), content.apply(node.value()))) {
+                item.setValue(node.value());
+                changed = true;
+            }
+            // Children of a new item are added before it is attached
+            changed |= patch(item, node.children());
+            patchedItems.add(item);
+        }
+
+        if (!isSameItems(items, patchedItems)) {
+            reorder(items, patchedItems, newItems);
+            changed = true;
+        }
+        return changed;
+    }
+
+    private boolean isSameItems(List<TreeItem<T>> items, List<TreeItem<T>> otherItems) {
+        if (items.size() != otherItems.size()) {
+            return false;
+        }
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i) != otherItems.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     Removes the items left and inserts the new ones, items following an insertion aren't moved
+     */
+    private void reorder(ObservableList<TreeItem<T>> items, List<TreeItem<T>> patchedItems, Set<TreeItem<T>> newItems) {
+        Set<TreeItem<T>> keptItems = Collections.newSetFromMap(new IdentityHashMap<>());
+        keptItems.addAll(patchedItems);
+        items.removeIf(item -> !keptItems.contains(item));
+
+        for (int i = 0; i < patchedItems.size(); i++) {
+            TreeItem<T> item = patchedItems.get(i);
+            if (i < items.size() && items.get(i) == item) {
+                continue;
+            }
+            if (!newItems.contains(item)) {
+                items.remove(item);
+            }
+            items.add(i, item);
+        }
+    }
+
+    public record Node<T>(T value, List<Node<T>> children) {
+    }
+}
@@ -11,6 +11,7 @@ import com.kodedu.config.factory.TableFactory;
 import com.kodedu.controller.ApplicationController;
 import com.kodedu.helper.IOHelper;
 import com.kodedu.other.JsonHelper;
+import com.kodedu.service.AsciidoctorFactory;
 import com.kodedu.service.ThreadService;
 import jakarta.json.*;
 import javafx.beans.property.*;
@@ -26,8 +27,6 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import org.asciidoctor.Attributes;
 import org.asciidoctor.AttributesBuilder;
-import org.asciidoctor.Options;
-import org.asciidoctor.SafeMode;
 import org.asciidoctor.ast.Document;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,9 +38,6 @@ import java.nio.file.Paths;
 import java.util.*;
 import java.util.stream.Collectors;
 
-import static com.kodedu.other.Constants.DOC_FILE_ATTR;
-import static com.kodedu.service.AsciidoctorFactory.getPlainDoctor;
-
 /**
  * Created by usta on 17.07.2015.
  */
@@ -320,12 +316,8 @@ public abstract class AsciidoctorConfigBase<T extends LoadedAttributes> extends
         MyTab currentTab = controller.getCurrent().currentTab();
         Path path = currentTab.getPath();
         String pathText = Objects.nonNull(path) ? path.toString() : null;
-        Document document = getPlainDoctor().load(asciidoc, Options.builder()
-                .backend(getBackend())
-                .safe(SafeMode.UNSAFE)
-                .sourcemap(true)
-                .baseDir(currentTab.getParentOrWorkdir().toFile())
-                .attributes(Attributes.builder().allowUriRead(true).attribute(DOC_FILE_ATTR, pathText).build()).build());
+        // Only the header attributes are given to the conversion, the body is parsed by the conversion itself
+        Document document = AsciidoctorFactory.loadHeader(asciidoc, currentTab.getParentOrWorkdir(), pathText, getBackend());
         Map<String, Object> defaultAttributes = document.getAttributes();
 
         return getAsciiDocAttributes(defaultAttributes);
@@ -33,7 +33,6 @@ import com.kodedu.service.extension.MermaidService;
 import com.kodedu.service.extension.PlantUmlService;
 import com.kodedu.service.extension.TreeService;
 import com.kodedu.service.extension.chart.ChartProvider;
-import com.kodedu.service.extension.processor.ExtensionPreprocessor;
 import com.kodedu.service.shortcut.ShortcutProvider;
 import com.kodedu.service.table.AsciidocTableController;
 import com.kodedu.service.ui.FileBrowseService;
@@ -60,7 +59,6 @@ import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
-import javafx.collections.transformation.FilteredList;
 import javafx.event.ActionEvent;
 import javafx.event.Event;
 import javafx.event.EventHandler;
@@ -86,9 +84,6 @@ import javafx.stage.Window;
 import javafx.stage.*;
 import javafx.util.Duration;
 import netscape.javascript.JSObject;
-import org.asciidoctor.Attributes;
-import org.asciidoctor.Options;
-import org.asciidoctor.SafeMode;
 import org.asciidoctor.ast.Document;
 import org.kordamp.ikonli.fontawesome.FontAwesome;
 import org.kordamp.ikonli.javafx.FontIcon;
@@ -100,6 +95,7 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
@@ -136,9 +132,6 @@ import java.util.stream.Stream;
 
 import static com.kodedu.helper.IOHelper.containsPath;
 import static com.kodedu.helper.IOHelper.getInstallationPath;
-import static com.kodedu.other.Constants.DOC_FILE_ATTR;
-import static com.kodedu.service.extension.processor.DocumentAttributeProcessor.DOCUMENT_MAP;
-import static com.kodedu.service.extension.processor.DocumentAttributeProcessor.DOC_UUID;
 import static java.nio.file.StandardOpenOption.CREATE_NEW;
 import static java.nio.file.StandardOpenOption.WRITE;
 import static java.util.Objects.isNull;
@@ -225,6 +218,21 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
 
     private final CrossReferenceHistory crossReferenceHistory = new CrossReferenceHistory();
 
+    private static final RefProps REFS_ROOT = new RefProps("#Refs", -1, null);
+    private static final RefProps CROSS_REFS_ROOT = new RefProps("#Cross Refs", -1, null);
+
+    // Sections and refs are the same across renders when what is shown of them is the same
+    private final TreeItemPatcher<Section> outlinePatcher = new TreeItemPatcher<>(
+            s -> Arrays.asList(s.getLevel(), s.getTitle(), s.getId(), s.getPath()),
+            s -> Arrays.asList(s.getLevel(), s.getTitle(), s.getLineno(), s.getId(), s.getPath()));
+    private final TreeItemPatcher<RefProps> referencePatcher = new TreeItemPatcher<>(
+            r -> Arrays.asList(r.file(), r.refId(), r.isCross()),
+            r -> Arrays.asList(r.file(), r.lineNumber(), r.refId(), r.isCross()));
+    private volatile List<TreeItemPatcher.Node<Section>> lastOutline;
+    private volatile List<TreeItemPatcher.Node<RefProps>> lastReferences;
+    private TreeItem<RefProps> refRootItem;
+    private TreeItem<RefProps> xrefRootItem;
+
     @Autowired
     public HtmlPane htmlPane;
 
@@ -323,8 +331,10 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
 
     @Autowired
     private EventService eventService;
+
+    @Autowired
+    private PreviewBroadcaster previewBroadcaster;
     private Stage stage;
-    private List<WebSocketSession> sessionList = new ArrayList<>();
     private Scene scene;
     private AnchorPane asciidocTableAnchor;
     private Stage asciidocTableStage;
@@ -363,6 +373,9 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
     @Autowired
     private FileWatchService fileWatchService;
 
+    @Autowired
+    private AsciidoctorConfigResolver asciidoctorConfigResolver;
+
     private Timeline progressBarTimeline = null;
 
     @Autowired
@@ -484,7 +497,7 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
 
     @WebkitCall(from = "asciidoctor-mermaid")
     public void mermaid(String content, String type, String imagesDir, String imageTarget, String nodename) {
-        threadService.runActionLater(() -> {
+        threadService.runTaskLater(() -> {
             mermaidService.createMermaidDiagram(content, type, imagesDir, imageTarget, nodename, false);
         });
     }
@@ -1912,8 +1925,7 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
         logViewer.setContextMenu(logViewerContextMenu);
         logViewer.getStyleClass().add("log-viewer");
 
-        FilteredList<MyLog> logFilteredList = new FilteredList<MyLog>(logList, log -> true);
-        logViewer.setItems(logFilteredList);
+        logViewer.setItems(logList);
 
 //        logViewer.setColumnResizePolicy((param) -> true);
         logViewer.getItems().addListener((ListChangeListener<MyLog>) c -> {
@@ -1975,10 +1987,8 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
         final EventHandler<ActionEvent> filterByLogLevel = event -> {
             ToggleButton logLevelItem = (ToggleButton) event.getTarget();
             if (nonNull(logLevelItem)) {
-                logFilteredList.setPredicate(myLog -> {
-                    String text = logLevelItem.getText();
-                    return text.equals("All") || text.equalsIgnoreCase(myLog.getLevel());
-                });
+                String text = logLevelItem.getText();
+                TableViewLogAppender.setFilter(myLog -> text.equals("All") || text.equalsIgnoreCase(myLog.getLevel()));
             }
         };
 
@@ -2001,7 +2011,7 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
         Button clearLogsButton = new Button("Clear");
         clearLogsButton.setOnAction(e -> {
             statusMessage.setText("");
-            logList.clear();
+            TableViewLogAppender.clearLogs();
         });
 
         Button browseLogsButton = new Button("Browse");
@@ -2018,10 +2028,11 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
             }
 
             if (newValue.isEmpty()) {
-                logFilteredList.setPredicate(myLog -> true);
+                TableViewLogAppender.setFilter(myLog -> true);
             }
 
-            logFilteredList.setPredicate(myLog -> {
+            String toggleText = ((ToggleButton) toggleGroup.getSelectedToggle()).getText();
+            TableViewLogAppender.setFilter(myLog -> {
 
                 final AtomicBoolean result = new AtomicBoolean(false);
 
@@ -2033,7 +2044,6 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
                 }
 
                 String level = myLog.getLevel();
-                String toggleText = ((ToggleButton) toggleGroup.getSelectedToggle()).getText();
                 boolean inputContains = level.toLowerCase().contains(newValue.toLowerCase());
 
                 if (nonNull(level)) {
@@ -2093,6 +2103,43 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
             return;
         }
 
+        for (Map.Entry<String, List<RefProps>> entry : refs.entrySet()) {
+            crossReferenceHistory.addRefsHistory(entry.getKey(), entry.getValue());
+        }
+
+        List<TreeItemPatcher.Node<RefProps>> refNodes = referenceNodes(refs, false);
+        List<TreeItemPatcher.Node<RefProps>> xrefNodes = referenceNodes(crossReferences, true);
+        List<TreeItemPatcher.Node<RefProps>> references = List.of(new TreeItemPatcher.Node<>(REFS_ROOT, refNodes),
+                new TreeItemPatcher.Node<>(CROSS_REFS_ROOT, xrefNodes));
+
+        if (referencePatcher.isSame(references, lastReferences)) {
+            return;
+        }
+        lastReferences = references;
+
+        threadService.runActionLater(() -> {
+            if (Objects.isNull(refTreeTableView.getRoot())) {
+                initializeReferenceTree();
+            }
+            referencePatcher.patch(refRootItem, refNodes);
+            referencePatcher.patch(xrefRootItem, xrefNodes);
+        });
+    }
+
+    private List<TreeItemPatcher.Node<RefProps>> referenceNodes(Map<String, List<RefProps>> references, boolean isCross) {
+        List<TreeItemPatcher.Node<RefProps>> nodes = new ArrayList<>();
+        for (Map.Entry<String, List<RefProps>> entry : references.entrySet()) {
+            List<TreeItemPatcher.Node<RefProps>> children = entry.getValue()
+                    .stream()
+                    .map(props -> new TreeItemPatcher.Node<>(props, List.<TreeItemPatcher.Node<RefProps>>of()))
+                    .toList();
+            nodes.add(new TreeItemPatcher.Node<>(new RefProps(entry.getKey(), -1, null, isCross), children));
+        }
+        return nodes;
+    }
+
+    private void initializeReferenceTree() {
+
         TreeTableColumn<RefProps, String> fileColumn = new TreeTableColumn<>("File");
         fileColumn.setSortable(false);
         TreeTableColumn<RefProps, String> refColumn = new TreeTableColumn<>("Ref");
@@ -2102,9 +2149,9 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
 
         TreeItem<RefProps> rootItem = new TreeItem<>(new RefProps(null, -1, null));
         rootItem.setExpanded(true);
-        TreeItem<RefProps> refRootItem = new TreeItem<>(new RefProps("#Refs", -1, null), new FontIcon(FontAwesome.ANCHOR));
+        refRootItem = new TreeItem<>(REFS_ROOT, new FontIcon(FontAwesome.ANCHOR));
         refRootItem.setExpanded(true);
-        TreeItem<RefProps> xrefRootItem = new TreeItem<>(new RefProps("#Cross Refs", -1, null), new FontIcon(FontAwesome.LINK));
+        xrefRootItem = new TreeItem<>(CROSS_REFS_ROOT, new FontIcon(FontAwesome.LINK));
         xrefRootItem.setExpanded(true);
         rootItem.getChildren().add(refRootItem);
         rootItem.getChildren().add(xrefRootItem);
@@ -2128,131 +2175,103 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
             return new SimpleObjectProperty(lineNumber < 0 ? null : lineNumber);
         });
 
-        for (Map.Entry<String, List<RefProps>> entry : refs.entrySet()) {
-            String key = entry.getKey();
-            List<RefProps> value = entry.getValue();
-            TreeItem<RefProps> item = new TreeItem<>(new RefProps(key, -1, null, false));
-            item.setExpanded(true);
-            List<RefProps> refsHistorySet = new ArrayList<>();
-            refsHistorySet.addAll(value);
-            List<RefProps> existingRefs = crossReferenceHistory.getRefsHistoryMap().getOrDefault(key, Collections.emptyList());
-            for (RefProps existingRef : existingRefs) {
-                if (!refsHistorySet.contains(existingRef)) {
-                    refsHistorySet.add(existingRef);
+        refTreeTableView.getColumns().setAll(fileColumn, refColumn, lineColumn);
+        refTreeTableView.setRoot(rootItem);
+        TreeTableView.TreeTableViewSelectionModel<RefProps> selectionModel = refTreeTableView.getSelectionModel();
+        selectionModel.setSelectionMode(SelectionMode.MULTIPLE);
+        refTreeTableView.setOnMouseClicked(e -> {
+            if (e.getSource() instanceof TreeTableView<?> tableView) {
+                TreeItem<?> selectedItem = selectionModel.getSelectedItem();
+                if (Objects.nonNull(selectedItem) &&
+                        selectedItem.getValue() instanceof RefProps props &&
+                        props.hasFileName()) {
+                    Path path = Paths.get(props.file());
+                    if (e.getClickCount() == 2) {
+                        tabService.addTab(path, () -> {
+                            current.currentEditor().moveCursorTo(props.lineNumber());
+                        });
+                    } else {
+                        String refId = props.origRefId();
+                        String target = props.origRefTarget();
+                        ObservableList<TreeItem<RefProps>> values = props.isCross() ? refRootItem.getChildren() : xrefRootItem.getChildren();
+                        values.stream()
+                                .flatMap(r -> r.getChildren().stream())
+                                .filter(r -> {
+                                    RefProps refProps = r.getValue();
+                                    if (Objects.nonNull(refId) && Objects.nonNull(target)) {
+                                        return Objects.equals(refProps.origRefId(), refId) &&
+                                                refProps.hasFileName() &&
+                                                (IOHelper.contains(refProps.path(), Paths.get(target)) || refProps.file().endsWith(target));
+                                    }
+                                    return Objects.nonNull(refId) && (Objects.equals(refProps.origRefId(), refId));
+                                })
+                                .forEach(r -> selectionModel.select(r));
+                    }
                 }
             }
-            crossReferenceHistory.getRefsHistoryMap().put(key, refsHistorySet);
-            for (RefProps xrefIncludeProps : value) {
-                TreeItem<RefProps> subItem = new TreeItem<>(xrefIncludeProps);
-                subItem.setExpanded(true);
-                item.getChildren().add(subItem);
-            }
-            refRootItem.getChildren().add(item);
-        }
+        });
+    }
 
-        for (Map.Entry<String, List<RefProps>> entry : crossReferences.entrySet()) {
-            TreeItem<RefProps> item = new TreeItem<>(new RefProps(entry.getKey(), -1, null, true));
-            item.setExpanded(true);
-            for (RefProps props : entry.getValue()) {
-                TreeItem<RefProps> subItem = new TreeItem<>(props);
-                subItem.setExpanded(true);
-                item.getChildren().add(subItem);
-            }
-            xrefRootItem.getChildren().add(item);
+    public void finishOutline(List<Section> sections) {
+
+        List<TreeItemPatcher.Node<Section>> outline = outlineNodes(sections);
+        // An empty outline keeps the former one
+        boolean unchanged = sections.isEmpty() || outlinePatcher.isSame(outline, lastOutline);
+
+        if (unchanged && Objects.nonNull(outlineTreeView.getRoot())) {
+            return;
+        }
+        if (!unchanged) {
+            lastOutline = outline;
         }
 
         threadService.runActionLater(() -> {
-            refTreeTableView.getColumns().setAll(fileColumn, refColumn, lineColumn);
-            refTreeTableView.setRoot(rootItem);
-            TreeTableView.TreeTableViewSelectionModel<RefProps> selectionModel = refTreeTableView.getSelectionModel();
-            selectionModel.setSelectionMode(SelectionMode.MULTIPLE);
-            refTreeTableView.setOnMouseClicked(e -> {
-                if (e.getSource() instanceof TreeTableView<?> tableView) {
-                    TreeItem<?> selectedItem = selectionModel.getSelectedItem();
-                    if (Objects.nonNull(selectedItem) &&
-                            selectedItem.getValue() instanceof RefProps props &&
-                            props.hasFileName()) {
-                        Path path = Paths.get(props.file());
-                        if (e.getClickCount() == 2) {
-                            tabService.addTab(path, () -> {
-                                current.currentEditor().moveCursorTo(props.lineNumber());
-                            });
-                        } else {
-                            String refId = props.origRefId();
-                            String target = props.origRefTarget();
-                            ObservableList<TreeItem<RefProps>> values = props.isCross() ? refRootItem.getChildren() : xrefRootItem.getChildren();
-                            values.stream()
-                                    .flatMap(r -> r.getChildren().stream())
-                                    .filter(r -> {
-                                        RefProps refProps = r.getValue();
-                                        if (Objects.nonNull(refId) && Objects.nonNull(target)) {
-                                            return Objects.equals(refProps.origRefId(), refId) &&
-                                                    refProps.hasFileName() &&
-                                                    (IOHelper.contains(refProps.path(), Paths.get(target)) || refProps.file().endsWith(target));
-                                        }
-                                        return Objects.nonNull(refId) && (Objects.equals(refProps.origRefId(), refId));
-                                    })
-                                    .forEach(r -> selectionModel.select(r));
-                        }
-                    }
-                }
-            });
+            if (Objects.isNull(outlineTreeView.getRoot())) {
+                initializeOutlineTree();
+            }
+            if (!unchanged) {
+                outlinePatcher.patch(outlineTreeView.getRoot(), outline);
+            }
         });
     }
 
-    public void finishOutline(List<Section> sections) {
+    private List<TreeItemPatcher.Node<Section>> outlineNodes(Collection<Section> sections) {
+        List<TreeItemPatcher.Node<Section>> nodes = new ArrayList<>(sections.size());
+        for (Section section : sections) {
+            nodes.add(new TreeItemPatcher.Node<>(section, outlineNodes(section.getSubsections())));
+        }
+        return nodes;
+    }
 
-        if (outlineTreeView.getRoot() == null) {
-            TreeItem<Section> rootItem = new TreeItem<>();
-            rootItem.setExpanded(true);
-            Section rootSection = new Section();
-            rootSection.setLevel(-1);
-            String outlineTitle = "Outline";
-            rootSection.setTitle(outlineTitle);
+    private void initializeOutlineTree() {
+        TreeItem<Section> rootItem = new TreeItem<>();
+        rootItem.setExpanded(true);
+        Section rootSection = new Section();
+        rootSection.setLevel(-1);
+        String outlineTitle = "Outline";
+        rootSection.setTitle(outlineTitle);
 
-            rootItem.setValue(rootSection);
+        rootItem.setValue(rootSection);
 
-            outlineTreeView.setRoot(rootItem);
+        outlineTreeView.setRoot(rootItem);
 
-            outlineTreeView.setOnMouseClicked(event -> {
-                try {
-                    TreeItem<Section> item = outlineTreeView.getSelectionModel().getSelectedItem();
-                    Path path = item.getValue().getPath();
-                    if (Objects.nonNull(path) && Files.exists(path)) {
-                        tabService.addTab(path, () -> {
-                            EditorPane editorPane = current.currentEditor();
-                            editorPane.moveCursorTo(item.getValue().getLineno());
-                        });
-                    } else {
+        outlineTreeView.setOnMouseClicked(event -> {
+            try {
+                TreeItem<Section> item = outlineTreeView.getSelectionModel().getSelectedItem();
+                Path path = item.getValue().getPath();
+                if (Objects.nonNull(path) && Files.exists(path)) {
+                    tabService.addTab(path, () -> {
                         EditorPane editorPane = current.currentEditor();
                         editorPane.moveCursorTo(item.getValue().getLineno());
-                    }
-                } catch (Exception e) {
-                    logger.error("Problem occured while jumping from outline");
+                    });
+                } else {
+                    EditorPane editorPane = current.currentEditor();
+                    editorPane.moveCursorTo(item.getValue().getLineno());
                 }
-            });
-        }
-
-        if (sections.size() > 0) {
-            outlineTreeView.getRoot().getChildren().clear();
-        }
-
-        for (Section section : sections) {
-            TreeItem<Section> sectionItem = new TreeItem<>(section);
-            sectionItem.setExpanded(true);
-            outlineTreeView.getRoot().getChildren().add(sectionItem);
-            appendSubSection(sectionItem, section);
-        }
-    }
-
-    private void appendSubSection(TreeItem<Section> sectionItem, Section section) {
-        TreeSet<Section> subsections = section.getSubsections();
-        for (Section subsection : subsections) {
-            TreeItem<Section> subItem = new TreeItem<>(subsection);
-            subItem.setExpanded(true);
-            sectionItem.getChildren().add(subItem);
-            appendSubSection(subItem, subsection);
-        }
+            } catch (Exception e) {
+                logger.error("Problem occured while jumping from outline");
+            }
+        });
     }
 
     @FXML
@@ -2262,12 +2281,19 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-        sessionList.add(session);
+        previewBroadcaster.addSession(session);
+    }
 
-        Optional
-                .ofNullable(lastConverterResult)
-                .map(ConverterResult::getRendered)
-                .ifPresent(this::sendOverWebSocket);
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
+        previewBroadcaster.removeSession(session);
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        if ("resync".equals(message.getPayload())) {
+            previewBroadcaster.resync(session);
+        }
     }
 
     @FXML
@@ -2360,33 +2386,24 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
         return optMap;
     }
 
-    private volatile AtomicReference<TextChangeEvent> latestTextChangeEvent = new AtomicReference<>();
     private CountDownLatch adocPreviewReadyLatch = new CountDownLatch(1);
-    private Semaphore semaphore = new Semaphore(1);
-    private void renderInRow() throws InterruptedException {
-        try {
-            semaphore.acquire();
-            renderText();
-        } catch (InterruptedException e) {
-            throw e;
-        } finally {
-            semaphore.release();
-        }
-    }
+    private final RenderScheduler renderScheduler = new RenderScheduler(this::renderText);
 
-    private void renderText() throws InterruptedException {
+    /**
+     * Renders the change unless it's outdated by a newer one, returns false when the render is abandoned
+     */
+    private boolean renderText(TextChangeEvent textChangeEvent) {
         if (stopRendering.get()) {
-            return;
+            return true;
         }
 
-        adocPreviewReadyLatch.await(30, TimeUnit.SECONDS);
-
-        if (Objects.isNull(latestTextChangeEvent.get())) {
-            return;
+        try {
+            adocPreviewReadyLatch.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return true;
         }
 
-        TextChangeEvent textChangeEvent = latestTextChangeEvent.getAndSet(null);
-
         String mode = textChangeEvent.getMode();
 
         try {
@@ -2394,24 +2411,32 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
             if ("asciidoc".equalsIgnoreCase(mode)) {
 
                 prependAsciidoctorConfig(textChangeEvent);
-                Document document = loadDocument(textChangeEvent);
+                Document document = loadDocumentHeader(textChangeEvent);
+                if (Objects.isNull(document)) {
+                    return true;
+                }
 
                 String backend = (String) document.getAttribute("backend", "html5");
 
                 EditorPane editorPane = current.currentEditor();
                 if (Objects.isNull(editorPane)) {
-                    return;
+                    return true;
+                }
+
+                // Conversions can't be interrupted, a newer change is rendered instead of starting it
+                if (renderScheduler.isOutdated()) {
+                    return false;
                 }
 
                 ConverterResult converterResult = asciidoctorjConverter.convert(document, editorPane, textChangeEvent);
                 this.lastConverterResult = converterResult;
 
-                if (Objects.nonNull(latestTextChangeEvent.get())) {
-                    return;
+                if (renderScheduler.isOutdated()) {
+                    return false;
                 }
 
                 if (Objects.equals(backend, "html5")) {
-                    updateRendered(converterResult.getRendered());
+                    updateRendered(converterResult);
                     rightShowerHider.showNode(htmlPane);
                 }
 
@@ -2432,6 +2457,11 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
         } catch (Exception e) {
             logger.error("Problem occured while rendering content", e);
         }
+        return true;
+    }
+
+    public RenderScheduler.RenderStats getRenderStats() {
+        return renderScheduler.getStats();
     }
 
     private void prependAsciidoctorConfig(TextChangeEvent textChangeEvent) {
@@ -2440,115 +2470,51 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
             return; // path is not ready
         }
 
-        Path parent = path.getParent();
-        String text = textChangeEvent.getText();
-        Path workingDirectory = directoryService.workingDirectory();
-
-        StringBuffer stringBuffer = new StringBuffer();
-        Path asciidoctorConfigDir = null;
-        while (containsPath(workingDirectory, parent)) {
-            Path[] configPaths = new Path[]{
-                    parent.resolve(".asciidoctorconfig"),
-                    parent.resolve(".asciidoctorconfig.adoc")
-            };
-            for (Path configPath : configPaths) {
-                if (Files.exists(configPath)) {
-                    String configText = IOHelper.readFile(configPath);
-                    stringBuffer.insert(0, "\n");
-                    stringBuffer.insert(0, configText);
-                    stringBuffer.insert(0, "\n");
-                    stringBuffer.insert(0, String.format("// Configuration > %s", configPath));
-                    stringBuffer.insert(0, "\n");
-                    if (Objects.isNull(asciidoctorConfigDir)) {
-                        asciidoctorConfigDir = parent;
-                    }
-                    break;
-                }
-            }
-            parent = parent.getParent();
-        }
-
-        if (Objects.nonNull(asciidoctorConfigDir)) {
-            stringBuffer.insert(0, "\n");
-            stringBuffer.insert(0, String.format(":asciidoctorconfigdir: %s", asciidoctorConfigDir));
-            stringBuffer.insert(0, "\n");
-            stringBuffer.insert(0,"// Asciidoctor Configuration Directory");
-            stringBuffer.append("\n");
+        String prefix = asciidoctorConfigResolver.resolvePrefix(path.getParent(), directoryService.workingDirectory());
+        if (!prefix.isEmpty()) {
+            textChangeEvent.setText(prefix + textChangeEvent.getText());
         }
-
-        stringBuffer.append(text);
-        textChangeEvent.setText(stringBuffer.toString());
     }
 
-    public Document loadDocument(TextChangeEvent textChangeEvent) {
-        String uuid = UUID.randomUUID().toString();
+    /**
+     * Parses only the document header to resolve the backend and the header attributes.
+     * The full AST is produced by the preview conversion itself, so the body is not parsed twice.
+     */
+    public Document loadDocumentHeader(TextChangeEvent textChangeEvent) {
         MyTab currentTab = current.currentTab();
         if(Objects.nonNull(currentTab)){
-            Path path = textChangeEvent.getPath();
-            Options options = Options.builder()
-                    .safe(SafeMode.UNSAFE)
-                    .sourcemap(true)
-                    .catalogAssets(true)
-                    .baseDir(currentTab.getParentOrWorkdir().toFile())
-                    .attributes(Attributes.builder()
-                            .allowUriRead(true)
-                            .attribute(DOC_UUID, uuid)
-                            .attribute(DOC_FILE_ATTR, textChangeEvent.getPathText())
-                            .build()).build();
-            String text = textChangeEvent.getText();
-            String content = ExtensionPreprocessor.correctExtensionBlocks(text);
-            AsciidoctorFactory.getPlainDoctor()
-                    .convert(content, options);
-            Document document = (Document) DOCUMENT_MAP.get(uuid);
-            currentTab.getEditorPane().setLastDocument(document);
-            DOCUMENT_MAP.remove(uuid);
-            return document;
+            return AsciidoctorFactory.loadHeader(textChangeEvent.getText(), currentTab.getParentOrWorkdir(),
+                    textChangeEvent.getPathText(), null);
         }
 
         return null;
     }
 
-    private void updateRendered(String rendered) {
+    private void updateRendered(ConverterResult converterResult) {
 
-        Optional.ofNullable(rendered)
+        Optional.ofNullable(converterResult.getRendered())
                 .ifPresent(html -> {
-                    htmlPane.refreshUI(html);
-                    sendOverWebSocket(html);
-                });
-
-    }
-
-    private void sendOverWebSocket(String html) {
-        if (sessionList.size() > 0) {
-            threadService.runTaskLater(() -> {
-                sessionList.stream().filter(WebSocketSession::isOpen).forEach(e -> {
-                    try {
-                        e.sendMessage(new TextMessage(html));
-                    } catch (Exception ex) {
-                        logger.error("Problem occured while sending content over WebSocket", ex);
+                    if (converterResult.isChunked()) {
+                        htmlPane.refreshChunks(converterResult.getChunks(), html);
+                    } else {
+                        htmlPane.refreshUI(html);
                     }
+                    previewBroadcaster.broadcast(html, converterResult.isChunked());
                 });
-            });
-        }
+
     }
 
     @WebkitCall(from = "editor")
-    public void textListener(String text, String mode, Path path) {
-        latestTextChangeEvent.set(new TextChangeEvent(text, mode, path));
-        threadService.runTaskLater(() -> {
-            try {
-                renderInRow();
-            } catch (InterruptedException e) {
-                logger.error(e.getMessage());
-            }
-        });
+    public void textListener(EditorPane editorPane, String mode, Path path) {
+        TextChangeEvent textChangeEvent = new TextChangeEvent(editorPane::getEditorValue, mode, path);
+        renderScheduler.submit(textChangeEvent, editorPane == current.currentEditor());
     }
 
     @WebkitCall(from = "editor")
     public void checkWordSuggestions(String word) {
-        final List<String> stringList = dictionaryService.getSuggestionMap()
-                .getOrDefault(word, Arrays.asList());
-        current.currentEditor().showSuggestions(stringList);
+        final EditorPane editorPane = current.currentEditor();
+        final List<String> stringList = dictionaryService.findSuggestions(editorPane, word);
+        editorPane.showSuggestions(stringList);
     }
 
     public String toUpperCase(String str) {
@@ -2563,12 +2529,13 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
         }
 
         final EditorPane editorPane = current.currentEditor();
-        final String tokenList = editorPane.tokenList();
+        final String tokenRows = editorPane.tokenRows(dictionaryService.getSpellKey(editorPane));
         final String mode = editorPane.editorMode();
+        final long spellcheckRun = editorPane.newSpellcheckRun();
 
         threadService.runTaskLater(() -> {
             try {
-                dictionaryService.processTokens(editorPane, tokenList, mode);
+                dictionaryService.processTokens(editorPane, tokenRows, mode, spellcheckRun);
             } catch (IllegalArgumentException | BufferUnderflowException bufex) {
 //            logger.debug(bufex.getMessage(), bufex);
             } catch (Exception e) {
@@ -79,15 +79,24 @@ public class CacheResource {
     private void processCachedResource(Payload payload, boolean content) throws Exception {
 
         String requestURI = payload.getRequestURI();
-        HttpServletResponse response = payload.getResponse();
-        HttpServletRequest request = payload.getRequest();
 
         // Validate the requested file ------------------------------------------------------------
         // Get requested file by path info.
         // Check if file is actually supplied to the request URL.
 
         CacheData cacheData = binaryCacheService.getCacheData(requestURI);
+        try {
+            processCachedResource(payload, cacheData, content);
+        } finally {
+            close(cacheData);
+        }
+    }
+
+    private void processCachedResource(Payload payload, CacheData cacheData, boolean content) throws Exception {
 
+        String requestURI = payload.getRequestURI();
+        HttpServletResponse response = payload.getResponse();
+        HttpServletRequest request = payload.getRequest();
 
         if (Objects.isNull(requestURI) || Objects.isNull(cacheData)) {
             // Do your thing if the file is not supplied to the request URL.
@@ -272,7 +281,7 @@ public class CacheResource {
                     }
 
                     // Copy full range.
-                    copy(cacheData, output, r.start, r.length);
+                    cacheData.writeTo(r.start, r.length, output);
                 }
 
             } else if (ranges.size() == 1) {
@@ -286,7 +295,7 @@ public class CacheResource {
 
                 if (content) {
                     // Copy single part range.
-                    copy(cacheData, output, r.start, r.length);
+                    cacheData.writeTo(r.start, r.length, output);
                 }
 
             } else {
@@ -308,7 +317,7 @@ public class CacheResource {
                         sos.println("Content-Range: bytes " + r.start + "-" + r.end + "/" + r.total);
 
                         // Copy single part range of multi part range.
-                        copy(cacheData, output, r.start, r.length);
+                        cacheData.writeTo(r.start, r.length, output);
                     }
 
                     // End with multipart boundary.
@@ -319,7 +328,6 @@ public class CacheResource {
         } finally {
             // Gently close streams.
             close(output);
-            cacheData.closeStream();
         }
     }
 
@@ -376,41 +384,6 @@ public class CacheResource {
         return (substring.length() > 0) ? Long.parseLong(substring) : -1;
     }
 
-    /**
-     * Copy the given byte range of the given input to the given output.
-     *
-     * @param input  The input to copy the given range to the given output for.
-     * @param output The output to copy the given range from the given input for.
-     * @param start  Start of the byte range.
-     * @param length Length of the byte range.
-     * @throws IOException If something fails at I/O level.
-     */
-    private void copy(CacheData input, OutputStream output, long start, long length)
-            throws IOException {
-        byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
-        int read;
-
-        if (input.length() == length) {
-            // Write full range.
-            while ((read = input.read(buffer)) > 0) {
-                output.write(buffer, 0, read);
-            }
-        } else {
-            // Write partial range.
-            input.seek(start);
-            long toRead = length;
-
-            while ((read = input.read(buffer)) > 0) {
-                if ((toRead -= read) > 0) {
-                    output.write(buffer, 0, read);
-                } else {
-                    output.write(buffer, 0, (int) toRead + read);
-                    break;
-                }
-            }
-        }
-    }
-
     /**
      * Close the given resource.
      *
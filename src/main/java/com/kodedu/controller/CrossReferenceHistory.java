@@ -2,12 +2,16 @@ package com.kodedu.controller;
 
 import com.kodedu.other.RefProps;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 public class CrossReferenceHistory {
+
+    private static final int MAXIMUM_HISTORY_SIZE = 10000;
+
     private Map<String, List<RefProps>> crossReferences = Collections.emptyMap();
 
     public Map<String, List<RefProps>> getCrossReferences() {
@@ -28,12 +32,32 @@ public class CrossReferenceHistory {
         this.refs = refs;
     }
 
-    private Map<String, List<RefProps>> refsHistoryMap = new LinkedHashMap<String, List<RefProps>>();
+    // The refs of the documents rendered least recently are dropped first, but never the refs of the last render
+    private Map<String, List<RefProps>> refsHistoryMap = new LinkedHashMap<String, List<RefProps>>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<RefProps>> eldest) {
+            return size() > Math.max(MAXIMUM_HISTORY_SIZE, refs.size());
+        }
+    };
 
     public Map<String, List<RefProps>> getRefsHistoryMap() {
         return refsHistoryMap;
     }
 
+    /**
+     * Keeps the refs of the key along with its former refs from other files
+     */
+    public void addRefsHistory(String key, List<RefProps> keyRefs) {
+        List<RefProps> refsHistory = new ArrayList<>(keyRefs);
+        for (RefProps existingRef : refsHistoryMap.getOrDefault(key, Collections.emptyList())) {
+            if (!refsHistory.contains(existingRef)) {
+                refsHistory.add(existingRef);
+            }
+        }
+        refsHistoryMap.remove(key);
+        refsHistoryMap.put(key, refsHistory);
+    }
+
     public CrossReferenceHistory() {
     }
 }
\ No newline at end of file
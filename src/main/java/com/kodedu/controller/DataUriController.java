@@ -2,6 +2,7 @@ package com.kodedu.controller;
 
 import com.kodedu.helper.IOHelper;
 import com.kodedu.service.DirectoryService;
+import com.kodedu.service.cache.HttpCacheService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,8 +10,8 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
-import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Base64;
 import java.util.Objects;
@@ -23,15 +24,15 @@ import static org.springframework.web.bind.annotation.RequestMethod.*;
 @Controller
 public class DataUriController {
 
-    private final RestTemplate restTemplate;
+    private final HttpCacheService httpCacheService;
     private final Base64.Encoder base64Encoder;
     private final DirectoryService directoryService;
 
     private final Logger logger = LoggerFactory.getLogger(DataUriController.class);
 
     @Autowired
-    public DataUriController(RestTemplate restTemplate, Base64.Encoder base64Encoder, DirectoryService directoryService) {
-        this.restTemplate = restTemplate;
+    public DataUriController(HttpCacheService httpCacheService, Base64.Encoder base64Encoder, DirectoryService directoryService) {
+        this.httpCacheService = httpCacheService;
         this.base64Encoder = base64Encoder;
         this.directoryService = directoryService;
     }
@@ -63,11 +64,11 @@ public class DataUriController {
         return dataUri;
     }
 
-    private Object getImageContent(String imageUri) {
+    private Object getImageContent(String imageUri) throws IOException {
         byte[] bytes = new byte[]{};
 
         if (isExternalUri(imageUri)) {
-            bytes = restTemplate.getForObject(imageUri, byte[].class);
+            bytes = httpCacheService.getBytes(imageUri);
         } else {
             final Path path = directoryService.findPathInWorkdirOrLookup(IOHelper.getPath(imageUri));
             Objects.requireNonNull(path, "No such file or directory: " + imageUri);
@@ -10,9 +10,13 @@ import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -374,32 +378,17 @@ public class FileService {
             String cachedCharset= IOHelper.getCachedCharset(file.toPath());
             output.write(content.getBytes(cachedCharset));
         } else {
-            RandomAccessFile input = new RandomAccessFile(file, "r");
-            byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
-            int read;
-
-            try {
-                if (input.length() == r.length) {
-                    // Write full range.
-                    while ((read = input.read(buffer)) > 0) {
-                        output.write(buffer, 0, read);
-                    }
-                } else {
-                    // Write partial range.
-                    input.seek(r.start);
-                    long toRead = r.length;
-
-                    while ((read = input.read(buffer)) > 0) {
-                        if ((toRead -= read) > 0) {
-                            output.write(buffer, 0, read);
-                        } else {
-                            output.write(buffer, 0, (int) toRead + read);
-                            break;
-                        }
+            // Positional transfer, concurrent requests of the same file don't share a cursor
+            try (FileChannel input = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                WritableByteChannel target = Channels.newChannel(output);
+                long transferred = 0;
+                while (transferred < r.length) {
+                    long written = input.transferTo(r.start + transferred, r.length - transferred, target);
+                    if (written <= 0) {
+                        break;
                     }
+                    transferred += written;
                 }
-            } finally {
-                close(input);
             }
         }
 
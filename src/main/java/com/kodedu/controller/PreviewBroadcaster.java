@@ -0,0 +1,299 @@
+package com.kodedu.controller;
+
+import com.kodedu.service.ThreadService;
+import jakarta.json.Json;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonObjectBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Sends the rendered preview to the browsers following it over the WebSocket.
+ * <p>
+ * Each render is a new version. A chunked render of an unchanged page shell is sent as the list of its
+ * top-level blocks, where the blocks the browsers already have since the previous version are sent by hash
+ * only, any other render as a snapshot of the whole page. Snapshots are also sent periodically. Messages
+ * are sent to each session by its own sender, so a slow browser doesn't hold up the others; one that falls
+ * behind too much is sent the latest snapshot instead of the queued messages, and one that doesn't
+ * receive at all is closed.
+ */
+@Component
+public class PreviewBroadcaster {
+
+    private static final Pattern CHUNK = Pattern.compile("<!--afx-chunk:(\\w+):(-?\\d+)-->(.*?)<!--/afx-chunk-->", Pattern.DOTALL);
+    private static final int SNAPSHOT_VERSIONS = 100;
+    private static final long SNAPSHOT_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final long BUFFER_SIZE_LIMIT = Long.getLong("asciidocfx.preview.bufferSize", 8 * 1024 * 1024);
+    private static final long SEND_TIME_LIMIT_MILLIS = Long.getLong("asciidocfx.preview.sendTimeLimit", 10_000);
+
+    private final Logger logger = LoggerFactory.getLogger(PreviewBroadcaster.class);
+
+    private final Map<String, PreviewSession> sessions = new ConcurrentHashMap<>();
+
+    // Guarded by this
+    private long version;
+    private String html;
+    private String snapshot;
+    private String shell;
+    private Map<String, Integer> chunkCounts;
+    private long snapshotVersion;
+    private long snapshotMillis;
+
+    @Autowired
+    private ThreadService threadService;
+
+    public void addSession(WebSocketSession session) {
+        PreviewSession previewSession = new PreviewSession(session);
+        sessions.put(session.getId(), previewSession);
+        previewSession.resync();
+    }
+
+    public void removeSession(WebSocketSession session) {
+        sessions.remove(session.getId());
+    }
+
+    /**
+     * Sends the latest snapshot to the session instead of its queued messages
+     */
+    public void resync(WebSocketSession session) {
+        PreviewSession previewSession = sessions.get(session.getId());
+        if (Objects.nonNull(previewSession)) {
+            previewSession.resync();
+        }
+    }
+
+    /**
+     * @param chunked whether the html is marked by chunks, see {@link com.kodedu.engine.AsciidocChunkConverter}
+     */
+    public synchronized void broadcast(String html, boolean chunked) {
+        this.version++;
+        this.html = html;
+        this.snapshot = null;
+
+        if (sessions.isEmpty()) {
+            // The next render is sent as a snapshot
+            this.chunkCounts = null;
+            return;
+        }
+
+        List<Chunk> chunks = chunked ? chunks(html) : List.of();
+        String chunkShell = chunked ? CHUNK.matcher(html).replaceAll("") : null;
+
+        String message = null;
+        if (Objects.nonNull(chunkCounts) && Objects.equals(shell, chunkShell) && !isSnapshotDue()) {
+            message = chunksMessage(chunks);
+        }
+        if (Objects.isNull(message)) {
+            message = snapshot();
+            snapshotVersion = version;
+            snapshotMillis = System.currentTimeMillis();
+        }
+
+        this.shell = chunkShell;
+        this.chunkCounts = chunked ? countChunks(chunks) : null;
+
+        for (PreviewSession previewSession : sessions.values()) {
+            previewSession.send(message);
+        }
+    }
+
+    private boolean isSnapshotDue() {
+        return version - snapshotVersion >= SNAPSHOT_VERSIONS
+                || System.currentTimeMillis() - snapshotMillis >= SNAPSHOT_MILLIS;
+    }
+
+    /*
+     Chunks known since the previous version are sent by hash, null when none of them is reused
+     */
+    private String chunksMessage(List<Chunk> chunks) {
+        Map<String, Integer> available = new HashMap<>(chunkCounts);
+        boolean reused = false;
+        JsonArrayBuilder arrayBuilder = Json.createArrayBuilder();
+        for (Chunk chunk : chunks) {
+            JsonObjectBuilder objectBuilder = Json.createObjectBuilder()
+                    .add("hash", chunk.hash())
+                    .add("delta", chunk.delta());
+            if (available.getOrDefault(chunk.hash(), 0) > 0) {
+                available.computeIfPresent(chunk.hash(), (k, count) -> count - 1);
+                objectBuilder.addNull("html");
+                reused = true;
+            } else {
+                objectBuilder.add("html", chunk.html());
+            }
+            arrayBuilder.add(objectBuilder);
+        }
+        if (!reused) {
+            return null;
+        }
+        return Json.createObjectBuilder()
+                .add("type", "chunks")
+                .add("version", version)
+                .add("base", version - 1)
+                .add("chunks", arrayBuilder)
+                .build()
+                .toString();
+    }
+
+    private synchronized String snapshot() {
+        if (Objects.isNull(snapshot)) {
+            snapshot = Json.createObjectBuilder()
+                    .add("type", "snapshot")
+                    .add("version", version)
+                    .add("html", Objects.requireNonNullElse(html, ""))
+                    .build()
+                    .toString();
+        }
+        return snapshot;
+    }
+
+    private synchronized boolean hasSnapshot() {
+        return Objects.nonNull(html);
+    }
+
+    private List<Chunk> chunks(String html) {
+        List<Chunk> chunks = new ArrayList<>();
+        Matcher matcher = CHUNK.matcher(html);
+        while (matcher.find()) {
+            chunks.add(new Chunk(matcher.group(1), Integer.parseInt(matcher.group(2)), matcher.group(3)));
+        }
+        return chunks;
+    }
+
+    private Map<String, Integer> countChunks(List<Chunk> chunks) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Chunk chunk : chunks) {
+            counts.merge(chunk.hash(), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    private record Chunk(String hash, int delta, String html) {
+    }
+
+    /*
+     Queued messages of a session, sent one at a time by a single sender
+     */
+    private class PreviewSession {
+
+        private final WebSocketSession session;
+
+        // Guarded by this
+        private final Deque<String> queue = new ArrayDeque<>();
+        private long queuedSize;
+        private boolean resync;
+        private boolean sending;
+        private long sendStarted;
+
+        PreviewSession(WebSocketSession session) {
+            this.session = session;
+        }
+
+        void send(String message) {
+            synchronized (this) {
+                if (isStalled()) {
+                    threadService.executor().execute(() -> close(CloseStatus.SESSION_NOT_RELIABLE));
+                    return;
+                }
+                if (!resync) {
+                    if (queuedSize + message.length() > BUFFER_SIZE_LIMIT) {
+                        logger.debug("Preview session {} fell behind, it is sent a snapshot", session.getId());
+                        clear();
+                        resync = true;
+                    } else {
+                        queue.add(message);
+                        queuedSize += message.length();
+                    }
+                }
+                startSender();
+            }
+        }
+
+        synchronized void resync() {
+            clear();
+            resync = true;
+            startSender();
+        }
+
+        private boolean isStalled() {
+            return sending && sendStarted > 0
+                    && System.currentTimeMillis() - sendStarted > SEND_TIME_LIMIT_MILLIS;
+        }
+
+        private void clear() {
+            queue.clear();
+            queuedSize = 0;
+        }
+
+        private void startSender() {
+            if (!sending) {
+                sending = true;
+                threadService.executor().execute(this::sendQueued);
+            }
+        }
+
+        private void sendQueued() {
+            while (true) {
+                String message;
+                boolean sendSnapshot;
+                synchronized (this) {
+                    sendSnapshot = resync;
+                    resync = false;
+                    message = queue.poll();
+                    if (Objects.nonNull(message)) {
+                        queuedSize -= message.length();
+                    }
+                    if (Objects.isNull(message) && !sendSnapshot) {
+                        sending = false;
+                        sendStarted = 0;
+                        return;
+                    }
+                    sendStarted = System.currentTimeMillis();
+                }
+                // The snapshot is taken out of the lock of the session, messages older than it are ignored by the browser
+                if (sendSnapshot) {
+                    if (!hasSnapshot()) {
+                        continue;
+                    }
+                    message = snapshot();
+                }
+                try {
+                    if (!session.isOpen()) {
+                        removeSession(session);
+                        return;
+                    }
+                    session.sendMessage(new TextMessage(message));
+                } catch (Exception e) {
+                    logger.debug("Problem occured while sending preview to {}", session.getId(), e);
+                    close(CloseStatus.SERVER_ERROR);
+                    return;
+                }
+            }
+        }
+
+        private void close(CloseStatus closeStatus) {
+            removeSession(session);
+            try {
+                session.close(closeStatus);
+            } catch (Exception e) {
+                logger.debug("Problem occured while closing preview session {}", session.getId(), e);
+            }
+        }
+    }
+}
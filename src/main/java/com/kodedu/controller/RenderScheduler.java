@@ -0,0 +1,183 @@
+package com.kodedu.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Runs the preview renders one at a time, for the latest change only.
+ * <p>
+ * Changes arriving while a render is in progress replace each other, so at most one render waits. The delay
+ * before a render follows the measured render time: fast documents are rendered right away, slow ones when
+ * typing pauses, but a change never waits more than a few delays. A render outdated by a newer change can
+ * be abandoned by the renderer, see {@link #isOutdated()}.
+ */
+public class RenderScheduler {
+
+    private static final long FAST_RENDER_MILLIS = 50;
+    private static final long MAXIMUM_DELAY_MILLIS = 1000;
+    private static final int MAXIMUM_WAIT_DELAYS = 4;
+    private static final int LATENCY_SAMPLES = 256;
+
+    private final Logger logger = LoggerFactory.getLogger(RenderScheduler.class);
+
+    private final Predicate<TextChangeEvent> renderer;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private PendingRender pending;
+    private boolean running;
+
+    private long averageRenderNanos;
+    private long lastShownNanos = System.nanoTime();
+    // Times from a change to its render being shown
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+    private long renders;
+    private long shownRenders;
+
+    /**
+     * @param renderer renders a change, returns false when the render is abandoned
+     */
+    public RenderScheduler(Predicate<TextChangeEvent> renderer) {
+        this.renderer = renderer;
+    }
+
+    /**
+     * @param visible whether the change is of the selected tab, its render takes precedence over the others
+     */
+    public void submit(TextChangeEvent textChangeEvent, boolean visible) {
+        lock.lock();
+        try {
+            if (Objects.nonNull(pending) && pending.visible() && !visible) {
+                return;
+            }
+            long now = System.nanoTime();
+            long firstSubmitted = Objects.nonNull(pending) ? pending.firstSubmitted() : now;
+            pending = new PendingRender(textChangeEvent, visible, firstSubmitted, now);
+            if (!running) {
+                running = true;
+                Thread.startVirtualThread(this::renderLoop);
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Whether the render in progress is outdated by a newer change. Once the preview has been outdated
+     * for a while renders aren't abandoned, so that it's still updated while typing in a slow document.
+     */
+    public boolean isOutdated() {
+        lock.lock();
+        try {
+            long maximumStaleNanos = MAXIMUM_WAIT_DELAYS * delayNanos() + averageRenderNanos;
+            return Objects.nonNull(pending) && System.nanoTime() - lastShownNanos < maximumStaleNanos;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public RenderStats getStats() {
+        lock.lock();
+        try {
+            int count = (int) Math.min(shownRenders, LATENCY_SAMPLES);
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return new RenderStats(renders, renders - shownRenders, toMillis(averageRenderNanos), toMillis(delayNanos()),
+                    percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void renderLoop() {
+        while (true) {
+            PendingRender render;
+            lock.lock();
+            try {
+                while (Objects.isNull(pending)) {
+                    changed.await();
+                }
+                // Waits until typing pauses, or the first change has waited long enough
+                while (true) {
+                    long delay = delayNanos();
+                    long renderAt = Math.min(pending.lastSubmitted() + delay, pending.firstSubmitted() + MAXIMUM_WAIT_DELAYS * delay);
+                    long remaining = renderAt - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    changed.awaitNanos(remaining);
+                }
+                render = pending;
+                pending = null;
+            } catch (InterruptedException e) {
+                running = false;
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            long start = System.nanoTime();
+            boolean shown = false;
+            try {
+                shown = renderer.test(render.textChangeEvent());
+            } catch (Exception e) {
+                logger.error("Problem occured while rendering content", e);
+            }
+            rendered(render, start, shown);
+        }
+    }
+
+    private void rendered(PendingRender render, long start, boolean shown) {
+        lock.lock();
+        try {
+            long end = System.nanoTime();
+            long renderNanos = end - start;
+            renders++;
+            if (shown) {
+                // Abandoned renders may stop before converting, only the shown ones measure the render time
+                averageRenderNanos = shownRenders == 0 ? renderNanos : (3 * averageRenderNanos + renderNanos) / 4;
+                lastShownNanos = end;
+                latencies[(int) (shownRenders % LATENCY_SAMPLES)] = end - render.firstSubmitted();
+                shownRenders++;
+            }
+            logger.debug("Rendered in {} ms, next render delay is {} ms", toMillis(renderNanos), toMillis(delayNanos()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long delayNanos() {
+        if (averageRenderNanos < TimeUnit.MILLISECONDS.toNanos(FAST_RENDER_MILLIS)) {
+            return 0;
+        }
+        return Math.min(averageRenderNanos / 2, TimeUnit.MILLISECONDS.toNanos(MAXIMUM_DELAY_MILLIS));
+    }
+
+    private long percentile(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return toMillis(sorted[Math.max(0, index)]);
+    }
+
+    private long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private record PendingRender(TextChangeEvent textChangeEvent, boolean visible, long firstSubmitted, long lastSubmitted) {
+    }
+
+    public record RenderStats(long renders, long abandonedRenders, long averageRenderMillis, long delayMillis,
+                              long p50LatencyMillis, long p90LatencyMillis, long p99LatencyMillis) {
+    }
+}
@@ -2,9 +2,11 @@ package com.kodedu.controller;
 
 import java.nio.file.Path;
 import java.util.Objects;
+import java.util.function.Supplier;
 
 public class TextChangeEvent {
     private String text;
+    private Supplier<String> textSupplier;
     private String mode;
     private Path path;
 
@@ -14,7 +16,19 @@ public class TextChangeEvent {
         this.path = path;
     }
 
+    /**
+     * Reads the text when it's needed, events replaced by a later one are never read
+     */
+    public TextChangeEvent(Supplier<String> textSupplier, String mode, Path path) {
+        this.textSupplier = textSupplier;
+        this.mode = mode;
+        this.path = path;
+    }
+
     public String getText() {
+        if (Objects.isNull(text) && Objects.nonNull(textSupplier)) {
+            text = textSupplier.get();
+        }
         return text;
     }
 
@@ -28,6 +42,7 @@ public class TextChangeEvent {
 
     public void setText(String text) {
         this.text = text;
+        this.textSupplier = null;
     }
 
     public void setMode(String mode) {
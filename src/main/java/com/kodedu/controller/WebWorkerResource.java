@@ -4,6 +4,7 @@ import com.kodedu.helper.IOHelper;
 import com.kodedu.other.Current;
 import com.kodedu.service.DirectoryService;
 import com.kodedu.service.ThreadService;
+import com.kodedu.service.cache.HttpCacheService;
 import com.kodedu.service.ui.TabService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,7 +13,6 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
-import org.springframework.web.client.RestTemplate;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -35,13 +35,13 @@ public class WebWorkerResource {
     private final ThreadService threadService;
     private final ApplicationController controller;
     private final DataUriController dataUriService;
-    private final RestTemplate restTemplate;
+    private final HttpCacheService httpCacheService;
     private final CommonResource commonResource;
 
     private Logger logger = LoggerFactory.getLogger(WebWorkerResource.class);
 
     @Autowired
-    public WebWorkerResource(Current current, TabService tabService, DirectoryService directoryService, FileService fileService, ThreadService threadService, ApplicationController controller, DataUriController dataUriService, RestTemplate restTemplate, CommonResource commonResource) {
+    public WebWorkerResource(Current current, TabService tabService, DirectoryService directoryService, FileService fileService, ThreadService threadService, ApplicationController controller, DataUriController dataUriService, HttpCacheService httpCacheService, CommonResource commonResource) {
         this.current = current;
         this.tabService = tabService;
         this.directoryService = directoryService;
@@ -49,7 +49,7 @@ public class WebWorkerResource {
         this.threadService = threadService;
         this.controller = controller;
         this.dataUriService = dataUriService;
-        this.restTemplate = restTemplate;
+        this.httpCacheService = httpCacheService;
         this.commonResource = commonResource;
     }
 
@@ -81,7 +81,7 @@ public class WebWorkerResource {
                 String data = "";
 
                 try {
-                    data = restTemplate.getForObject(finalURI, String.class);
+                    data = httpCacheService.getString(finalURI);
                 } catch (Exception ex) {
                     logger.warn("resource not found or not readable: {}", finalURI);
                 }
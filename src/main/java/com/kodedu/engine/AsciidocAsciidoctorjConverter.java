@@ -5,11 +5,13 @@ import com.kodedu.component.ViewPanel;
 import com.kodedu.config.*;
 import com.kodedu.controller.ApplicationController;
 import com.kodedu.controller.TextChangeEvent;
+import com.kodedu.engine.AsciidocChunkConverter.ChunkedConversion;
 import com.kodedu.other.ConverterResult;
 import com.kodedu.other.Current;
 import com.kodedu.other.RefProps;
 import com.kodedu.outline.Outliner;
 import com.kodedu.outline.Section;
+import com.kodedu.service.AsciidoctorPool;
 import com.kodedu.service.ThreadService;
 import com.kodedu.service.extension.processor.ExtensionPreprocessor;
 import com.kodedu.service.extension.processor.XrefDocumentProcessor;
@@ -27,12 +29,14 @@ import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import static com.kodedu.helper.AsciidoctorHelper.convertSafe;
 import static com.kodedu.other.Constants.DOC_FILE_ATTR;
-import static com.kodedu.service.AsciidoctorFactory.getHtmlDoctor;
-import static com.kodedu.service.AsciidoctorFactory.getRevealDoctor;
+import static com.kodedu.service.AsciidoctorFactory.getHtmlDoctorPool;
+import static com.kodedu.service.AsciidoctorFactory.getRevealDoctorPool;
 import static com.kodedu.service.extension.processor.DocumentAttributeProcessor.DOCUMENT_MAP;
 import static com.kodedu.service.extension.processor.DocumentAttributeProcessor.DOC_UUID;
 
@@ -45,18 +49,21 @@ public class AsciidocAsciidoctorjConverter extends ViewPanel implements Asciidoc
     private final RevealjsConfigBean revealjsConfigBean;
 	private final ThreadService threadService;
 	private final XrefDocumentProcessor xrefDocumentProcessor;
+	private final AsciidocChunkConverter chunkConverter;
 
 	@Autowired
 	public AsciidocAsciidoctorjConverter(ThreadService threadService, ApplicationController controller,
 										 Current current, EditorConfigBean editorConfigBean,
 										 PreviewConfigBean previewConfigBean,
 										 RevealjsConfigBean revealjsConfigBean,
-										 XrefDocumentProcessor xrefDocumentProcessor) {
+										 XrefDocumentProcessor xrefDocumentProcessor,
+										 AsciidocChunkConverter chunkConverter) {
 		super(threadService, controller, current, editorConfigBean);
 		this.previewConfigBean = previewConfigBean;
 		this.threadService = threadService;
 		this.revealjsConfigBean = revealjsConfigBean;
 		this.xrefDocumentProcessor = xrefDocumentProcessor;
+		this.chunkConverter = chunkConverter;
 	}
 
 	@Override
@@ -101,8 +108,6 @@ public class AsciidocAsciidoctorjConverter extends ViewPanel implements Asciidoc
 
 	public ConverterResult convert(Document document, EditorPane editorPane, TextChangeEvent textChangeEvent) {
 		String backend = (String) document.getAttribute("backend", "html5");
-		Map<String, Object> attributes = document.getAttributes();
-		editorPane.updateAttributes(attributes);
 		return switch (backend) {
 			case "html5" -> convert(document, editorPane, textChangeEvent, previewConfigBean);
 			case "revealjs" -> convert(document, editorPane, textChangeEvent, revealjsConfigBean);
@@ -121,11 +126,13 @@ public class AsciidocAsciidoctorjConverter extends ViewPanel implements Asciidoc
 
 		Path workdir = controller.getCurrent().currentTab().getParentOrWorkdir();
 
+		// Outline, references and data lines are read from this same run, so source locations are always needed
+		// and the sourcemap setting of the preview configurations doesn't apply
 		Options options = Options.builder()
 		                         .backend(backend)
 		                         .baseDir(workdir.toFile())
 		                         .safe(safe)
-		                         .sourcemap(configBean.getSourcemap())
+		                         .sourcemap(true)
 								 .catalogAssets(true)
 		                         .headerFooter(true)
 				                 .inPlace(false)
@@ -137,20 +144,53 @@ public class AsciidocAsciidoctorjConverter extends ViewPanel implements Asciidoc
 		// The generated plantuml images are in the wrong location
 		// See also https://github.com/asciidoctor/asciidoctorj-diagram/issues/25
 		// String converted = doc.convert();
-		Asciidoctor asciidoctor = Objects.equals(backend,"revealjs") ? getRevealDoctor() : getHtmlDoctor();
+		AsciidoctorPool pool = Objects.equals(backend, "revealjs") ? getRevealDoctorPool() : getHtmlDoctorPool();
 		String text = textChangeEvent.getText();
 		String content = ExtensionPreprocessor.correctExtensionBlocks(text);
-		String converted = asciidoctor.convert(content, options)  ;
-		Document finalDocument = (Document) DOCUMENT_MAP.get(docUUID);
+		long start = System.nanoTime();
+
+		String converted;
+		Asciidoctor asciidoctor = pool.checkout();
+		try {
+			if (Objects.equals(backend, "html5") && AsciidocChunkConverter.isEnabled(attributes)) {
+				Optional<ChunkedConversion> chunked = chunkConverter.convert(asciidoctor, content, attributes,
+						workdir.toFile(), safe, textChangeEvent.getPathText());
+				if (chunked.isPresent()) {
+					logger.info("Converted Asciidoc to {} incrementally in {} ms", backend.toUpperCase(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+					return chunkedResult(chunked.get(), document, editorPane, backend, content);
+				}
+			}
+			chunkConverter.reset();
+
+			converted = asciidoctor.convert(content, options);
+		} finally {
+			pool.release(asciidoctor);
+		}
+		Document finalDocument = Objects.requireNonNullElse((Document) DOCUMENT_MAP.remove(docUUID), document);
 		editorPane.setLastDocument(finalDocument);
-		DOCUMENT_MAP.remove(docUUID);
-		logger.info("Converted Asciidoc to {}", backend.toUpperCase());
+		editorPane.updateAttributes(finalDocument.getAttributes());
+		logger.info("Converted Asciidoc to {} in {} ms", backend.toUpperCase(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
 
         final String taskId = UUID.randomUUID().toString();
 		ConverterResult res = new ConverterResult(taskId, converted, backend, finalDocument);
 		threadService.runTaskLater(() -> {
-			fillOutlines(document); // Somehow files are not generated with finalDocument ,source lines are negative!!
-			fillReferences(document, content);
+			fillOutlines(finalDocument);
+			fillReferences(finalDocument, content);
+		});
+		return res;
+	}
+
+	private ConverterResult chunkedResult(ChunkedConversion chunked, Document document, EditorPane editorPane, String backend, String content) {
+		Document shellDocument = Objects.requireNonNullElse(chunked.document(), document);
+		editorPane.setLastDocument(shellDocument);
+		editorPane.updateAttributes(shellDocument.getAttributes());
+
+		ConverterResult res = new ConverterResult(UUID.randomUUID().toString(), chunked.html(), backend, shellDocument);
+		res.setChunks(chunked.chunks());
+		threadService.runTaskLater(() -> {
+			controller.finishOutline(chunked.sections());
+			Map<String, List<RefProps>> crossReferences = xrefDocumentProcessor.getCrossReferences(shellDocument, content);
+			controller.fillReferences(crossReferences, chunked.refs());
 		});
 		return res;
 	}
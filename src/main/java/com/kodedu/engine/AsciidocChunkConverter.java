@@ -0,0 +1,399 @@
+package com.kodedu.engine;
+
+import com.kodedu.other.PreviewChunk;
+import com.kodedu.other.RefProps;
+import com.kodedu.outline.Outliner;
+import com.kodedu.outline.Section;
+import com.kodedu.service.extension.processor.XrefDocumentProcessor;
+import org.asciidoctor.Asciidoctor;
+import org.asciidoctor.Attributes;
+import org.asciidoctor.Options;
+import org.asciidoctor.SafeMode;
+import org.asciidoctor.ast.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.kodedu.service.extension.processor.DocumentAttributeProcessor.DOCUMENT_MAP;
+import static com.kodedu.service.extension.processor.DocumentAttributeProcessor.DOC_UUID;
+
+/**
+ * Converts the preview block by block.
+ * <p>
+ * The document body is split into top-level sections. Each chunk is converted on its own together with the
+ * document header, and its HTML fragment is cached by content hash, so typing only re-converts the edited chunk.
+ * Documents using features that span chunks (toc, section numbers, footnotes, counters, xrefs with generated
+ * text) or including other files are reported as unsupported and converted as a whole.
+ */
+@Component
+public class AsciidocChunkConverter {
+
+    public static final String INCREMENTAL_PREVIEW_ATTR = "incremental-preview";
+
+    private static final int MAX_CACHED_CHUNKS = 2000;
+
+    private static final Pattern SECTION_TITLE = Pattern.compile("^(={1,2}|#{1,2})[ \\t]+\\S.*$");
+    private static final Pattern DOCUMENT_TITLE = Pattern.compile("^[=#][ \\t]+\\S.*$");
+    private static final Pattern ATTRIBUTE_ENTRY = Pattern.compile("^:!?\\w[\\w-]*!?:.*$");
+    private static final Pattern BLOCK_DELIMITER = Pattern.compile("^(-{4,}|={4,}|\\.{4,}|\\*{4,}|_{4,}|\\+{4,}|/{4,}|--|```.*|[|,:!]={3,})$");
+    private static final Pattern BLOCK_ATTACHMENT = Pattern.compile("^(\\[.*\\]|\\.[^.\\s].*|//(?!//).*)$");
+    private static final Pattern CONDITIONAL_START = Pattern.compile("^(ifn?def::[^\\[]*\\[\\]|ifeval::\\[.*\\])$");
+    private static final Pattern CONDITIONAL_END = Pattern.compile("^endif::[^\\[]*\\[\\]$");
+    private static final Pattern CROSS_CHUNK_CONTENT = Pattern.compile("footnote:|\\{counter2?:|<<[^,>\\s]+>>|xref:[^\\[\\s]+\\[\\]");
+    // Included files aren't part of the chunk hash, a change of them wouldn't convert the chunk again
+    private static final Pattern INCLUDE_DIRECTIVE = Pattern.compile("^\\s*(include::|!include|!import\\s)", Pattern.MULTILINE);
+    private static final List<String> CROSS_CHUNK_ATTRIBUTES = List.of("toc", "toc2", "sectnums", "numbered");
+    private static final Pattern DATA_LINE = Pattern.compile("\\bdata-line-(\\d+)\\b");
+    private static final String CONTENT_OPEN = "<div id=\"content\">";
+    private static final String CONTENT_CLOSE = "</div>";
+
+    private final Logger logger = LoggerFactory.getLogger(AsciidocChunkConverter.class);
+
+    private final Outliner outliner;
+    private final XrefDocumentProcessor xrefDocumentProcessor;
+
+    private final Map<String, RenderedChunk> chunkCache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, RenderedChunk> eldest) {
+            return size() > MAX_CACHED_CHUNKS;
+        }
+    };
+
+    private Map<String, Integer> deliveredChunks = Map.of();
+    private String shellKey;
+    private String shellHtml;
+    private Document shellDocument;
+
+    record SourceChunk(int startLine, String prefix, String text, boolean preamble) {
+
+        int prefixLines() {
+            return (int) prefix.chars().filter(c -> c == '\n').count();
+        }
+
+        // absolute line = relative line + delta, where relative lines are counted from the start of prefix
+        int lineDelta() {
+            return startLine - 1 - prefixLines();
+        }
+    }
+
+    record SplitDocument(String header, List<SourceChunk> chunks) {
+    }
+
+    private record RenderedChunk(String html, List<Section> sections, Map<String, List<RefProps>> refs) {
+    }
+
+    public record ChunkedConversion(String html, List<PreviewChunk> chunks, Document document,
+                                    List<Section> sections, Map<String, List<RefProps>> refs) {
+    }
+
+    public AsciidocChunkConverter(Outliner outliner, XrefDocumentProcessor xrefDocumentProcessor) {
+        this.outliner = outliner;
+        this.xrefDocumentProcessor = xrefDocumentProcessor;
+    }
+
+    public static boolean isEnabled(Attributes attributes) {
+        return attributes.map().containsKey(INCREMENTAL_PREVIEW_ATTR);
+    }
+
+    /**
+     * Converts the content chunk by chunk, reusing cached fragments.
+     *
+     * @return empty if the content can't be rendered in chunks, then it should be converted as a whole
+     */
+    public synchronized Optional<ChunkedConversion> convert(Asciidoctor asciidoctor, String content, Attributes attributes,
+                                                            File baseDir, SafeMode safe, String docfile) {
+
+        Map<String, Object> attributeMap = attributes.map();
+        if (CROSS_CHUNK_ATTRIBUTES.stream().anyMatch(attributeMap::containsKey)
+                || CROSS_CHUNK_CONTENT.matcher(content).find()
+                || INCLUDE_DIRECTIVE.matcher(content).find()) {
+            return Optional.empty();
+        }
+
+        SplitDocument splitDocument = split(content);
+        if (Objects.isNull(splitDocument)) {
+            return Optional.empty();
+        }
+
+        String attributesKey = attributesKey(attributeMap);
+        if (!convertShell(asciidoctor, splitDocument.header(), attributes, attributesKey, baseDir, safe)) {
+            return Optional.empty();
+        }
+
+        Map<String, Integer> delivered = new HashMap<>(deliveredChunks);
+        Map<String, Integer> current = new HashMap<>();
+        List<PreviewChunk> chunks = new ArrayList<>();
+        List<Section> sections = new ArrayList<>();
+        Map<String, List<RefProps>> refs = new LinkedHashMap<>();
+        StringBuilder body = new StringBuilder();
+
+        int converted = 0;
+        for (SourceChunk sourceChunk : splitDocument.chunks()) {
+            String hash = DigestUtils.md5DigestAsHex((attributesKey + "\n" + sourceChunk.preamble() + "\n"
+                    + sourceChunk.prefix() + sourceChunk.text()).getBytes(StandardCharsets.UTF_8));
+            RenderedChunk renderedChunk = chunkCache.get(hash);
+            if (Objects.isNull(renderedChunk)) {
+                renderedChunk = convertChunk(asciidoctor, sourceChunk, attributes, baseDir, safe);
+                chunkCache.put(hash, renderedChunk);
+                converted++;
+            }
+
+            int delta = sourceChunk.lineDelta();
+            String html = shiftDataLines(renderedChunk.html(), delta);
+            body.append(String.format("<!--afx-chunk:%s:%d-->", hash, delta))
+                    .append(html)
+                    .append("<!--/afx-chunk-->");
+
+            boolean reused = delivered.getOrDefault(hash, 0) > 0;
+            delivered.computeIfPresent(hash, (k, count) -> count - 1);
+            current.merge(hash, 1, Integer::sum);
+            chunks.add(new PreviewChunk(hash, delta, reused ? null : html));
+
+            for (Section section : renderedChunk.sections()) {
+                sections.add(shiftSection(section, delta, docfile, null));
+            }
+            renderedChunk.refs().forEach((file, props) -> {
+                List<RefProps> shifted = props.stream().map(p -> shiftRef(p, delta, docfile)).toList();
+                refs.computeIfAbsent(file, f -> new ArrayList<>()).addAll(shifted);
+            });
+        }
+
+        deliveredChunks = current;
+        logger.debug("Converted {} of {} preview chunks", converted, chunks.size());
+
+        int contentStart = shellHtml.indexOf(CONTENT_OPEN) + CONTENT_OPEN.length();
+        int contentEnd = shellHtml.indexOf(CONTENT_CLOSE, contentStart);
+        String html = shellHtml.substring(0, contentStart) + body + shellHtml.substring(contentEnd);
+
+        return Optional.of(new ChunkedConversion(html, chunks, shellDocument, sections, refs));
+    }
+
+    /**
+     * Forgets which chunks were sent to the preview, so the next conversion sends every fragment.
+     */
+    public synchronized void reset() {
+        deliveredChunks = Map.of();
+    }
+
+    private boolean convertShell(Asciidoctor asciidoctor, String header, Attributes attributes, String attributesKey,
+                                 File baseDir, SafeMode safe) {
+        String key = DigestUtils.md5DigestAsHex((attributesKey + "\n" + header).getBytes(StandardCharsets.UTF_8));
+        if (Objects.equals(key, shellKey)) {
+            return true;
+        }
+
+        Map<String, Object> shellAttributes = new LinkedHashMap<>(attributes.map());
+        String docUUID = UUID.randomUUID().toString();
+        shellAttributes.put(DOC_UUID, docUUID);
+
+        String html = asciidoctor.convert(header, options(baseDir, safe, true, shellAttributes));
+        Document document = (Document) DOCUMENT_MAP.remove(docUUID);
+
+        int contentStart = html.indexOf(CONTENT_OPEN);
+        int contentEnd = contentStart < 0 ? -1 : html.indexOf(CONTENT_CLOSE, contentStart + CONTENT_OPEN.length());
+        if (contentEnd < 0 || Objects.isNull(document)
+                || !html.substring(contentStart + CONTENT_OPEN.length(), contentEnd).isBlank()) {
+            // a header that renders body content (e.g. a docinfo or a custom converter) can't be split
+            shellKey = null;
+            deliveredChunks = Map.of();
+            return false;
+        }
+
+        shellKey = key;
+        shellHtml = html;
+        shellDocument = document;
+        deliveredChunks = Map.of();
+        return true;
+    }
+
+    private RenderedChunk convertChunk(Asciidoctor asciidoctor, SourceChunk sourceChunk, Attributes attributes,
+                                       File baseDir, SafeMode safe) {
+        Map<String, Object> chunkAttributes = new LinkedHashMap<>(attributes.map());
+        // the document title belongs to the shell, not to each chunk
+        chunkAttributes.remove("showtitle");
+        chunkAttributes.put("showtitle!", "");
+        String docUUID = UUID.randomUUID().toString();
+        chunkAttributes.put(DOC_UUID, docUUID);
+
+        String html = asciidoctor.convert(sourceChunk.prefix() + sourceChunk.text(), options(baseDir, safe, false, chunkAttributes));
+        Document document = (Document) DOCUMENT_MAP.remove(docUUID);
+        if (sourceChunk.preamble()) {
+            // same wrapper Asciidoctor adds to the preamble of a document with sections
+            html = "<div id=\"preamble\">\n<div class=\"sectionbody\">\n" + html + "\n</div>\n</div>";
+        }
+        if (Objects.isNull(document)) {
+            return new RenderedChunk(html, List.of(), Map.of());
+        }
+        return new RenderedChunk(html, outliner.getOutlineSections(document), xrefDocumentProcessor.getReferences(document));
+    }
+
+    private Options options(File baseDir, SafeMode safe, boolean headerFooter, Map<String, Object> attributes) {
+        return Options.builder()
+                .backend("html5")
+                .baseDir(baseDir)
+                .safe(safe)
+                .sourcemap(true)
+                .catalogAssets(true)
+                .headerFooter(headerFooter)
+                .inPlace(false)
+                .toFile(false)
+                .attributes(new Attributes(attributes))
+                .build();
+    }
+
+    private String attributesKey(Map<String, Object> attributes) {
+        Map<String, Object> sorted = new TreeMap<>(attributes);
+        sorted.remove(DOC_UUID);
+        return sorted.toString();
+    }
+
+    /**
+     * Splits the content into the header (with leading attribute entries) and top-level section chunks.
+     * Attribute entries found in the body are carried over to the prefix of the following chunks.
+     *
+     * @return null if the content has no body to split
+     */
+    static SplitDocument split(String content) {
+        String[] lines = content.split("\\r?\\n", -1);
+
+        int headerEnd = 0;
+        while (headerEnd < lines.length && isHeaderPrologue(lines[headerEnd])) {
+            headerEnd++;
+        }
+        if (headerEnd < lines.length && DOCUMENT_TITLE.matcher(lines[headerEnd]).matches()) {
+            while (headerEnd < lines.length && !lines[headerEnd].isBlank()) {
+                headerEnd++;
+            }
+        }
+
+        if (headerEnd >= lines.length) {
+            return null;
+        }
+
+        String header = String.join("\n", Arrays.asList(lines).subList(0, headerEnd));
+        String headerPrefix = header.isEmpty() ? "" : header + "\n\n";
+
+        List<Integer> starts = new ArrayList<>();
+        List<List<String>> carried = new ArrayList<>();
+        List<String> bodyAttributes = new ArrayList<>();
+        starts.add(headerEnd);
+        carried.add(List.of());
+
+        String openDelimiter = null;
+        int conditionalDepth = 0;
+        for (int n = headerEnd; n < lines.length; n++) {
+            String line = lines[n];
+            if (Objects.nonNull(openDelimiter)) {
+                if (line.equals(openDelimiter)) {
+                    openDelimiter = null;
+                }
+                continue;
+            }
+            if (BLOCK_DELIMITER.matcher(line).matches()) {
+                openDelimiter = line.startsWith("```") ? "```" : line;
+                continue;
+            }
+            if (CONDITIONAL_START.matcher(line).matches()) {
+                conditionalDepth++;
+                continue;
+            }
+            if (CONDITIONAL_END.matcher(line).matches()) {
+                conditionalDepth = Math.max(0, conditionalDepth - 1);
+                continue;
+            }
+            if (ATTRIBUTE_ENTRY.matcher(line).matches()
+                    && (lines[n - 1].isBlank() || ATTRIBUTE_ENTRY.matcher(lines[n - 1]).matches())) {
+                bodyAttributes.add(line);
+                continue;
+            }
+            if (conditionalDepth == 0 && n > headerEnd && SECTION_TITLE.matcher(line).matches()
+                    && (lines[n - 1].isBlank() || BLOCK_ATTACHMENT.matcher(lines[n - 1]).matches())) {
+                int start = n;
+                int previousStart = starts.get(starts.size() - 1);
+                while (start - 1 > previousStart && BLOCK_ATTACHMENT.matcher(lines[start - 1]).matches()) {
+                    start--;
+                }
+                if (start > previousStart) {
+                    starts.add(start);
+                    carried.add(List.copyOf(bodyAttributes));
+                }
+            }
+        }
+
+        List<SourceChunk> chunks = new ArrayList<>();
+        for (int i = 0; i < starts.size(); i++) {
+            int start = starts.get(i);
+            int end = i + 1 < starts.size() ? starts.get(i + 1) : lines.length;
+            String text = String.join("\n", Arrays.asList(lines).subList(start, end));
+            List<String> attributeEntries = carried.get(i);
+            String prefix = attributeEntries.isEmpty() ? headerPrefix
+                    : headerPrefix + String.join("\n", attributeEntries) + "\n\n";
+            boolean preamble = i == 0 && starts.size() > 1 && !text.isBlank() && !startsWithSection(lines, start, end);
+            chunks.add(new SourceChunk(start + 1, prefix, text, preamble));
+        }
+
+        return new SplitDocument(header, chunks);
+    }
+
+    /**
+     * Whether the lines start with a section title, after its block attachments.
+     * Content before the first section, the preamble, is absent then.
+     */
+    private static boolean startsWithSection(String[] lines, int start, int end) {
+        int n = start;
+        while (n < end && BLOCK_ATTACHMENT.matcher(lines[n]).matches()) {
+            n++;
+        }
+        return n < end && SECTION_TITLE.matcher(lines[n]).matches();
+    }
+
+    private static boolean isHeaderPrologue(String line) {
+        return line.isBlank()
+                || (line.startsWith("//") && !line.startsWith("////"))
+                || ATTRIBUTE_ENTRY.matcher(line).matches();
+    }
+
+    static String shiftDataLines(String html, int delta) {
+        if (delta == 0) {
+            return html;
+        }
+        Matcher matcher = DATA_LINE.matcher(html);
+        StringBuilder builder = new StringBuilder(html.length() + 64);
+        while (matcher.find()) {
+            int line = Integer.parseInt(matcher.group(1)) + delta;
+            matcher.appendReplacement(builder, "data-line-" + line);
+        }
+        matcher.appendTail(builder);
+        return builder.toString();
+    }
+
+    private Section shiftSection(Section section, int delta, String docfile, Section parent) {
+        Integer lineno = section.getLineno();
+        if (isOwnFile(section.getPath() == null ? null : section.getPath().toString(), docfile) && Objects.nonNull(lineno)) {
+            lineno = lineno + delta;
+        }
+        Section shifted = new Section(section.getLevel(), section.getTitle(), lineno, section.getId(), section.getPath(), parent);
+        for (Section subsection : section.getSubsections()) {
+            shifted.getSubsections().add(shiftSection(subsection, delta, docfile, shifted));
+        }
+        return shifted;
+    }
+
+    private RefProps shiftRef(RefProps props, int delta, String docfile) {
+        if (!isOwnFile(props.file(), docfile)) {
+            return props;
+        }
+        return new RefProps(props.file(), props.lineNumber() + delta, props.refId(), props.isCross());
+    }
+
+    private boolean isOwnFile(String file, String docfile) {
+        return Objects.isNull(file) || Objects.equals(file, docfile);
+    }
+}
@@ -26,6 +26,8 @@ import java.net.URI;
 import java.net.URL;
 import java.net.URLDecoder;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
@@ -36,6 +38,7 @@ import java.nio.file.attribute.FileTime;
 import java.security.CodeSource;
 import java.util.*;
 import java.util.function.BiPredicate;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -50,6 +53,8 @@ public class IOHelper {
     private static final Logger logger = LoggerFactory.getLogger(IOHelper.class);
 
     private static final Map<Path, String> pathCharsetMap = new LRUMap();
+    // Temporary files of atomic writes, named .<file name>.<uuid>.tmp
+    private static final Pattern ATOMIC_WRITE_TEMP_FILE = Pattern.compile("^\\..+\\.[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}\\.tmp$");
     private static Path installationPath;
 
     public static Optional<Exception> writeToFile(Path path, String content, StandardOpenOption... openOption) {
@@ -66,6 +71,58 @@ public class IOHelper {
         return Optional.empty();
     }
 
+    /**
+     * Writes to a temporary file next to the target, forces it to disk and moves it over the target,
+     * so that the former content is kept when the write is interrupted
+     */
+    public static Optional<Exception> writeToFileAtomically(Path path, String content) {
+        String charset = pathCharsetMap.getOrDefault(path, "UTF-8");
+        Path tempFile = null;
+        try {
+            // Replaces the file a link points to instead of the link itself
+            Path target = Files.isSymbolicLink(path) ? path.toRealPath() : path;
+            tempFile = target.resolveSibling(String.format(".%s.%s.tmp", target.getFileName(), UUID.randomUUID()));
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                Writer out = new BufferedWriter(Channels.newWriter(channel, charset));
+                out.write(content);
+                out.flush();
+                channel.force(true);
+            }
+            if (Files.exists(target)) {
+                copyPermissions(target, tempFile);
+            }
+            try {
+                Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (Exception e) {
+            logger.error("Problem occured while writing to {}", path, e);
+            if (nonNull(tempFile)) {
+                deleteIfExists(tempFile);
+            }
+            return Optional.of(e);
+        }
+        pathCharsetMap.put(path, charset);
+        return Optional.empty();
+    }
+
+    /**
+     * Whether the file is a temporary file of {@link #writeToFileAtomically(Path, String)}
+     */
+    public static boolean isAtomicWriteTempFile(Path path) {
+        Path fileName = path.getFileName();
+        return nonNull(fileName) && ATOMIC_WRITE_TEMP_FILE.matcher(fileName.toString()).matches();
+    }
+
+    private static void copyPermissions(Path source, Path target) throws IOException {
+        try {
+            Files.setPosixFilePermissions(target, Files.getPosixFilePermissions(source));
+        } catch (UnsupportedOperationException e) {
+            // not a POSIX file system
+        }
+    }
+
     public static void writeToFile(Path path, byte[] content, StandardOpenOption... openOption) {
         try {
             Files.write(path, content, openOption);
@@ -0,0 +1,181 @@
+package com.kodedu.logging;
+
+import javafx.collections.ObservableList;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+
+/**
+ * Ring buffer of the entries shown in the log viewer.
+ * <p>
+ * New entries are merged into the ring off the FX thread, and only the difference is applied to the
+ * viewed list, which holds the entries matching the filter. Entries dropped from a full ring are
+ * appended to the overflow file, which is rolled over to a single backup once it reaches its maximum size.
+ * <p>
+ * Updates of the viewed list are queued in order while holding the buffer lock, but handed to the FX thread
+ * only after releasing it, so that the FX thread never waits for the lock of a thread waiting for the FX thread.
+ */
+class LogBuffer {
+
+    private static final long MAXIMUM_OVERFLOW_SIZE = 10 * 1024 * 1024;
+
+    private final MyLog[] ring;
+    private int head;
+    private int size;
+
+    private final ObservableList<MyLog> logList;
+    private final Consumer<Runnable> fxUpdater;
+    private final Path overflowFile;
+    private final Queue<Runnable> pendingUpdates = new ConcurrentLinkedQueue<>();
+    private Predicate<MyLog> filter = log -> true;
+    private volatile IOException overflowError;
+    private boolean overflowDisabled;
+
+    /**
+     * @param fxUpdater runs the updates of the viewed list on the FX thread in the given order
+     */
+    LogBuffer(int capacity, ObservableList<MyLog> logList, Consumer<Runnable> fxUpdater, Path overflowFile) {
+        this.ring = new MyLog[Math.max(1, capacity)];
+        this.logList = logList;
+        this.fxUpdater = fxUpdater;
+        this.overflowFile = overflowFile;
+    }
+
+    void append(List<MyLog> logs) {
+        synchronized (this) {
+            queueAppend(logs);
+        }
+        flushUpdates();
+    }
+
+    void setFilter(Predicate<MyLog> filter) {
+        synchronized (this) {
+            queueFilter(filter);
+        }
+        flushUpdates();
+    }
+
+    void clear() {
+        synchronized (this) {
+            queueClear();
+        }
+        flushUpdates();
+    }
+
+    /**
+     * Returns the last error of writing the overflow file once, overflow is not written after an error
+     */
+    IOException takeOverflowError() {
+        IOException error = overflowError;
+        overflowError = null;
+        return error;
+    }
+
+    private void queueAppend(List<MyLog> logs) {
+        List<MyLog> added = new ArrayList<>();
+        List<MyLog> repeated = new ArrayList<>();
+        List<MyLog> evicted = new ArrayList<>();
+
+        for (MyLog myLog : logs) {
+            MyLog last = size == 0 ? null : ring[index(size - 1)];
+            if (Objects.nonNull(last) && Objects.equals(last.getOriginalMessage(), myLog.getOriginalMessage())) {
+                repeated.add(last);
+                continue;
+            }
+            if (size == ring.length) {
+                evicted.add(ring[head]);
+                ring[head] = null;
+                head = index(1);
+                size--;
+            }
+            ring[index(size)] = myLog;
+            size++;
+            added.add(myLog);
+        }
+
+        spill(evicted);
+
+        // Entries are evicted in the order they were added, so the evicted ones are at the start once the new ones are added
+        List<MyLog> visibleAdded = added.stream().filter(filter).toList();
+        int visibleEvicted = (int) evicted.stream().filter(filter).count();
+        pendingUpdates.add(() -> {
+            repeated.forEach(MyLog::count);
+            logList.addAll(visibleAdded);
+            if (visibleEvicted > 0) {
+                logList.remove(0, Math.min(visibleEvicted, logList.size()));
+            }
+        });
+    }
+
+    private void queueFilter(Predicate<MyLog> filter) {
+        this.filter = filter;
+        List<MyLog> filtered = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            MyLog myLog = ring[index(i)];
+            if (filter.test(myLog)) {
+                filtered.add(myLog);
+            }
+        }
+        pendingUpdates.add(() -> logList.setAll(filtered));
+    }
+
+    private void queueClear() {
+        for (int i = 0; i < size; i++) {
+            ring[index(i)] = null;
+        }
+        head = 0;
+        size = 0;
+        pendingUpdates.add(logList::clear);
+    }
+
+    /**
+     * Applies the queued updates on the FX thread, in the order they were queued
+     */
+    private void flushUpdates() {
+        fxUpdater.accept(() -> {
+            Runnable update;
+            while (Objects.nonNull(update = pendingUpdates.poll())) {
+                update.run();
+            }
+        });
+    }
+
+    private int index(int offset) {
+        return (head + offset) % ring.length;
+    }
+
+    private void spill(List<MyLog> evicted) {
+        if (evicted.isEmpty() || Objects.isNull(overflowFile) || overflowDisabled) {
+            return;
+        }
+        try {
+            Files.createDirectories(overflowFile.getParent());
+            if (Files.exists(overflowFile) && Files.size(overflowFile) > MAXIMUM_OVERFLOW_SIZE) {
+                Files.move(overflowFile, overflowFile.resolveSibling(overflowFile.getFileName() + ".1"), REPLACE_EXISTING);
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(overflowFile, StandardCharsets.UTF_8, CREATE, APPEND)) {
+                for (MyLog myLog : evicted) {
+                    writer.write(String.format("%-5s %s%n", myLog.getLevel(), myLog.getMessage()));
+                }
+            }
+        } catch (IOException e) {
+            // Logging here would append to this buffer again, the appender reports it to the logback status instead
+            overflowDisabled = true;
+            overflowError = e;
+        }
+    }
+}
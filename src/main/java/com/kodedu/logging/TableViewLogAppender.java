@@ -12,11 +12,16 @@ import javafx.scene.control.Label;
 import javafx.scene.control.TableView;
 import javafx.scene.control.ToggleButton;
 
-import java.util.Collections;
-import java.util.LinkedList;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 
 /**
@@ -27,7 +32,11 @@ public class TableViewLogAppender extends UnsynchronizedAppenderBase<ILoggingEve
 
     private static TableView<MyLog> logViewer;
     private static ObservableList<MyLog> logList;
-    private static List<MyLog> buffer = Collections.synchronizedList(new LinkedList<MyLog>());
+    // Events waiting for the next flush to the log buffer
+    private static final Queue<MyLog> pendingLogs = new ConcurrentLinkedQueue<>();
+    private static LogBuffer logBuffer;
+    private static int capacity = 5000;
+    private static Path overflowFile;
     private static Label logShortMessage;
     private static ThreadService threadService;
     PatternLayoutEncoder encoder;
@@ -39,6 +48,24 @@ public class TableViewLogAppender extends UnsynchronizedAppenderBase<ILoggingEve
 
     public static void setLogList(ObservableList<MyLog> logList) {
         TableViewLogAppender.logList = logList;
+        TableViewLogAppender.logBuffer = new LogBuffer(capacity, logList, runnable -> threadService.runActionLater(runnable), overflowFile);
+    }
+
+    /**
+     * Shows only the entries matching the filter, the entries are filtered off the FX thread.
+     * Filters set in quick succession, such as while typing a search, are applied once.
+     */
+    public static void setFilter(Predicate<MyLog> filter) {
+        if (Objects.nonNull(logBuffer)) {
+            threadService.buff("logFilter").schedule(() -> logBuffer.setFilter(filter), 200, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public static void clearLogs() {
+        pendingLogs.clear();
+        if (Objects.nonNull(logBuffer)) {
+            logBuffer.clear();
+        }
     }
 
     public static void setStatusMessage(Label logShortMessage) {
@@ -89,32 +116,21 @@ public class TableViewLogAppender extends UnsynchronizedAppenderBase<ILoggingEve
 
         if (!message.isEmpty()) {
             MyLog myLog = new MyLog(level, message);
-            buffer.add(myLog);
+            pendingLogs.add(myLog);
         }
 
         threadService.buff("logAppender").schedule(() -> {
-            final List<MyLog> cloneBufferList = new LinkedList<>(buffer);
-            final List<MyLog> cloneLogList = new LinkedList<>(logList);
-            cloneLogList.addAll(cloneBufferList);
-            final List<MyLog> reducedLogList = new LinkedList<>();
-            reduceRepeatedLogs(cloneLogList, reducedLogList);
-            buffer.clear();
-            threadService.runActionLater(() -> {
-                logList.setAll(reducedLogList);
-            });
-        }, 2, TimeUnit.SECONDS);
-    }
-
-    private void reduceRepeatedLogs(List<MyLog> cloneLogList, List<MyLog> newList) {
-        MyLog previousLog = null;
-        for (MyLog myLog : cloneLogList) {
-            if (Objects.nonNull(previousLog) && Objects.equals(previousLog.getOriginalMessage(), myLog.getOriginalMessage())) {
-                previousLog.count();
-            } else {
-                newList.add(myLog);
-                previousLog = myLog;
+            List<MyLog> newLogs = new ArrayList<>();
+            MyLog myLog;
+            while (Objects.nonNull(myLog = pendingLogs.poll())) {
+                newLogs.add(myLog);
             }
-        }
+            logBuffer.append(newLogs);
+            IOException overflowError = logBuffer.takeOverflowError();
+            if (Objects.nonNull(overflowError)) {
+                addError("Log overflow couldn't be written to " + overflowFile, overflowError);
+            }
+        }, 2, TimeUnit.SECONDS);
     }
 
     public PatternLayoutEncoder getEncoder() {
@@ -125,6 +141,20 @@ public class TableViewLogAppender extends UnsynchronizedAppenderBase<ILoggingEve
         this.encoder = encoder;
     }
 
+    /**
+     * Maximum number of entries kept in memory, set in logback.xml
+     */
+    public void setCapacity(int capacity) {
+        TableViewLogAppender.capacity = capacity;
+    }
+
+    /**
+     * File of the entries dropped from memory, set in logback.xml
+     */
+    public void setOverflowFile(String overflowFile) {
+        TableViewLogAppender.overflowFile = Paths.get(overflowFile);
+    }
+
     public static void setThreadService(ThreadService threadService) {
         TableViewLogAppender.threadService = threadService;
     }
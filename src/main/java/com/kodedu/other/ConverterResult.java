@@ -3,6 +3,7 @@ package com.kodedu.other;
 import org.asciidoctor.ast.Document;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Objects;
 import java.util.function.Consumer;
 
@@ -18,6 +19,8 @@ public class ConverterResult {
 
     private Document document;
 
+    private List<PreviewChunk> chunks;
+
     public ConverterResult(String taskId, String rendered, String backend) {
         this.taskId = taskId;
         this.rendered = rendered;
@@ -59,6 +62,18 @@ public class ConverterResult {
         this.document = document;
     }
 
+    public List<PreviewChunk> getChunks() {
+        return chunks;
+    }
+
+    public void setChunks(List<PreviewChunk> chunks) {
+        this.chunks = chunks;
+    }
+
+    public boolean isChunked() {
+        return Objects.nonNull(chunks);
+    }
+
     public String getTaskId() {
         return taskId;
     }
@@ -4,7 +4,6 @@ import com.kodedu.component.EditorPane;
 import com.kodedu.component.MyTab;
 import com.kodedu.controller.ApplicationController;
 import com.kodedu.service.ThreadService;
-import javafx.application.Platform;
 import javafx.scene.web.WebEngine;
 import javafx.scene.web.WebView;
 import netscape.javascript.JSObject;
@@ -15,7 +14,6 @@ import java.nio.file.Path;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -79,24 +77,7 @@ public class Current {
     }
 
     public String currentEditorValue() {
-        if (Platform.isFxApplicationThread())
-            return (String) currentEngine().executeScript("editor.getValue()");
-
-        final CompletableFuture<String> completableFuture = new CompletableFuture<>();
-
-        CompletableFuture.runAsync(() -> {
-            threadService.runActionLater(() -> {
-                try {
-                    Object result = currentEngine().executeScript("editor.getValue()");
-                    completableFuture.complete((String) result);
-                } catch (Exception ex) {
-                    completableFuture.completeExceptionally(ex);
-                }
-            });
-        }, threadService.executor());
-
-        return completableFuture.join();
-
+        return currentEditor().getEditorValue();
     }
 
     public String currentEditorSelection() {
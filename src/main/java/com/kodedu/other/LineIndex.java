@@ -0,0 +1,42 @@
+package com.kodedu.other;
+
+import java.util.Arrays;
+
+/**
+ * Start offsets of the lines of a text, built with a single pass so that the line of any offset
+ * is found with a binary search instead of counting the lines before it.
+ * Lines end with \n, a \r before it belongs to the same line.
+ */
+public final class LineIndex {
+
+    private final int[] lineStarts;
+    private final int lineCount;
+
+    private LineIndex(int[] lineStarts, int lineCount) {
+        this.lineStarts = lineStarts;
+        this.lineCount = lineCount;
+    }
+
+    public static LineIndex of(CharSequence text) {
+        int[] lineStarts = new int[Math.max(16, text.length() / 32)];
+        int lineCount = 1;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                if (lineCount == lineStarts.length) {
+                    lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+                }
+                lineStarts[lineCount++] = i + 1;
+            }
+        }
+        return new LineIndex(lineStarts, lineCount);
+    }
+
+    /**
+     * 1-based line number of the offset
+     */
+    public int lineNumber(int offset) {
+        int index = Arrays.binarySearch(lineStarts, 0, lineCount, offset);
+        // Not a line start, the insertion point is the next line
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+}
@@ -0,0 +1,12 @@
+package com.kodedu.other;
+
+/**
+ * A top-level block of the preview.
+ * The html is null when the chunk was already sent with the previous render and can be reused as is.
+ */
+public record PreviewChunk(String hash, int lineDelta, String html) {
+
+    public boolean isReused() {
+        return html == null;
+    }
+}
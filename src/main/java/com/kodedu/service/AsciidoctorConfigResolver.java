@@ -0,0 +1,131 @@
+package com.kodedu.service;
+
+import com.kodedu.helper.IOHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.kodedu.helper.IOHelper.containsPath;
+
+/**
+ * Resolves the .asciidoctorconfig files from a document directory up to the working directory
+ * into the prefix prepended to the document.
+ * <p>
+ * Prefixes are cached per directory and dropped by {@link FileWatchService} when a config file
+ * or a directory of the chain changes.
+ */
+@Component
+public class AsciidoctorConfigResolver {
+
+    private static final List<String> CONFIG_NAMES = List.of(".asciidoctorconfig", ".asciidoctorconfig.adoc");
+
+    private final Logger logger = LoggerFactory.getLogger(AsciidoctorConfigResolver.class);
+
+    private final Map<Path, ConfigChain> chains = new ConcurrentHashMap<>();
+    // Increased by each invalidation, so that a chain resolved meanwhile isn't cached
+    private final AtomicLong version = new AtomicLong();
+
+    @Autowired
+    private FileWatchService fileWatchService;
+
+    /**
+     * Returns the config prefix of the documents in the directory, empty when there is no config file
+     */
+    public String resolvePrefix(Path directory, Path workingDirectory) {
+        if (Objects.isNull(directory)) {
+            return "";
+        }
+        ConfigChain chain = chains.get(directory);
+        if (Objects.nonNull(chain) && Objects.equals(chain.workingDirectory(), workingDirectory)) {
+            return chain.prefix();
+        }
+
+        long resolveVersion = version.get();
+        List<Path> walkedDirectories = new ArrayList<>();
+        String prefix = resolve(directory, workingDirectory, walkedDirectories);
+        if (version.get() == resolveVersion) {
+            chains.put(directory, new ConfigChain(workingDirectory, prefix));
+            // Changes in these directories invalidate the chain
+            walkedDirectories.forEach(fileWatchService::registerPathWatcher);
+        }
+        return prefix;
+    }
+
+    private String resolve(Path directory, Path workingDirectory, List<Path> walkedDirectories) {
+        List<String> configs = new ArrayList<>();
+        Path asciidoctorConfigDir = null;
+        Path parent = directory;
+        while (containsPath(workingDirectory, parent)) {
+            walkedDirectories.add(parent);
+            for (String configName : CONFIG_NAMES) {
+                Path configPath = parent.resolve(configName);
+                if (Files.isRegularFile(configPath)) {
+                    String configText = IOHelper.readFile(configPath);
+                    configs.add(String.format("\n// Configuration > %s\n%s\n", configPath, configText));
+                    if (Objects.isNull(asciidoctorConfigDir)) {
+                        asciidoctorConfigDir = parent;
+                    }
+                    break;
+                }
+            }
+            parent = parent.getParent();
+        }
+
+        if (Objects.isNull(asciidoctorConfigDir)) {
+            return "";
+        }
+
+        StringBuilder prefix = new StringBuilder();
+        prefix.append("// Asciidoctor Configuration Directory\n");
+        prefix.append(String.format(":asciidoctorconfigdir: %s\n", asciidoctorConfigDir));
+        // Outer configs come first, so that the nearest one overrides them
+        for (int i = configs.size() - 1; i >= 0; i--) {
+            prefix.append(configs.get(i));
+        }
+        prefix.append("\n");
+        return prefix.toString();
+    }
+
+    /**
+     * Drops the chains affected by a created, modified or deleted path
+     */
+    public void invalidate(Path changedPath) {
+        if (Objects.isNull(changedPath) || Objects.isNull(changedPath.getFileName())) {
+            clear();
+            return;
+        }
+        if (CONFIG_NAMES.contains(changedPath.getFileName().toString())) {
+            invalidateUnder(changedPath.getParent());
+        } else if (!Files.isRegularFile(changedPath)) {
+            // A directory was created, deleted or renamed
+            invalidateUnder(changedPath);
+        }
+    }
+
+    private void invalidateUnder(Path directory) {
+        version.incrementAndGet();
+        Set<Path> directories = chains.keySet();
+        if (directories.removeIf(d -> d.startsWith(directory))) {
+            logger.debug("Asciidoctor config chains under {} are invalidated", directory);
+        }
+    }
+
+    public void clear() {
+        version.incrementAndGet();
+        chains.clear();
+    }
+
+    private record ConfigChain(Path workingDirectory, String prefix) {
+    }
+}
@@ -1,7 +1,15 @@
 package com.kodedu.service;
 
 import com.kodedu.helper.IOHelper;
+import jakarta.annotation.PreDestroy;
 import org.asciidoctor.Asciidoctor;
+import org.asciidoctor.Attributes;
+import org.asciidoctor.Options;
+import org.asciidoctor.OptionsBuilder;
+import org.asciidoctor.SafeMode;
+import org.asciidoctor.ast.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.event.EventListener;
@@ -10,70 +18,179 @@ import org.springframework.stereotype.Component;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
+import static com.kodedu.other.Constants.DOC_FILE_ATTR;
 import static org.springframework.core.Ordered.HIGHEST_PRECEDENCE;
 
 @Component
 public class AsciidoctorFactory {
-    private static CountDownLatch plainDoctorReady = new CountDownLatch(1);
-    private static CountDownLatch revealDoctorReady = new CountDownLatch(1);
-    private static CountDownLatch htmlDoctorReady = new CountDownLatch(1);
-    private static CountDownLatch nonHtmlDoctorReady = new CountDownLatch(1);
-    private static Asciidoctor plainDoctor;
-    private static Asciidoctor revealDoctor;
-    private static Asciidoctor htmlDoctor;
-    private static Asciidoctor nonHtmlDoctor;
+    private static final Logger logger = LoggerFactory.getLogger(AsciidoctorFactory.class);
+
+    private static final int PREPARED_DOCTOR_COUNT = 4;
+    private static final long EXTENSION_SCAN_DELAY_MILLIS = 300;
+
     private static DirectoryService directoryService;
     private static Map<Asciidoctor, UserExtension> userExtensionMap = new ConcurrentHashMap<>();
 
-    private static BlockingQueue<Asciidoctor> blockingQueue = new LinkedBlockingQueue<>(4);
+    private static BlockingQueue<Asciidoctor> blockingQueue = new LinkedBlockingQueue<>(PREPARED_DOCTOR_COUNT);
+    private static AtomicInteger preparedDoctors = new AtomicInteger(PREPARED_DOCTOR_COUNT);
+    private static volatile boolean initialized;
+
+    private static final AtomicBoolean extensionScanRunning = new AtomicBoolean();
+    private static final AtomicBoolean extensionScanRequested = new AtomicBoolean();
+    private static volatile Path scannedLibDir;
+    private static volatile String extensionFingerprint;
+
+    private static ApplicationContext context;
+    private static final AsciidoctorPool plainDoctorPool = createPool("plainDoctor", 2);
+    private static final AsciidoctorPool htmlDoctorPool = createPool("htmlDoctor", 2);
+    private static final AsciidoctorPool nonHtmlDoctorPool = createPool("nonHtmlDoctor", 2);
+    private static final AsciidoctorPool revealDoctorPool = createPool("revealDoctor", 1);
 
     @EventListener
     @Order(HIGHEST_PRECEDENCE)
     public void handleContextRefreshEvent(ContextRefreshedEvent event) {
-        ApplicationContext context = event.getApplicationContext();
+        context = event.getApplicationContext();
         Thread.startVirtualThread(() -> {
             initializeDoctors();
             Thread.startVirtualThread(() -> {
                 directoryService = context.getBean(DirectoryService.class);
             });
-            plainDoctor = context.getBean("plainDoctor", Asciidoctor.class);
-            plainDoctorReady.countDown();
-            htmlDoctor = context.getBean("htmlDoctor", Asciidoctor.class);
-            htmlDoctorReady.countDown();
-            nonHtmlDoctor = context.getBean("nonHtmlDoctor", Asciidoctor.class);
-            nonHtmlDoctorReady.countDown();
-            revealDoctor = context.getBean("revealDoctor", Asciidoctor.class);
-            revealDoctorReady.countDown();
+            plainDoctorPool.start();
+            htmlDoctorPool.start();
+            nonHtmlDoctorPool.start();
+            revealDoctorPool.start();
+            initialized = true;
         });
     }
 
+    @PreDestroy
+    public void shutdownDoctors() {
+        Stream.of(plainDoctorPool, htmlDoctorPool, nonHtmlDoctorPool, revealDoctorPool)
+                .forEach(AsciidoctorPool::shutdown);
+    }
+
+    /*
+     Pool size can be overridden with -Dasciidocfx.pool.htmlDoctor=3 like system properties
+     */
+    private static AsciidoctorPool createPool(String beanName, int defaultSize) {
+        int maxSize = Integer.getInteger("asciidocfx.pool." + beanName, defaultSize);
+        return new AsciidoctorPool(beanName, maxSize,
+                () -> context.getBean(beanName, Asciidoctor.class),
+                AsciidoctorFactory::checkUserExtensions);
+    }
+
+    /*
+     Called on every checkout, only notices a working directory change. Files under .asciidoctor/lib
+     are rescanned on file watch events, see userExtensionsChanged
+     */
     private static void checkUserExtensions(Asciidoctor doctor) {
+        Path libDir = userExtensionDir();
+        if (Objects.nonNull(libDir) && !libDir.equals(scannedLibDir)) {
+            requestUserExtensionScan();
+        }
+    }
+
+    /**
+     * Rescans user extensions in background if the changed path is in .asciidoctor/lib,
+     * a null path means that changes may have been missed
+     */
+    public void userExtensionsChanged(Path changedPath) {
+        Path libDir = scannedLibDir;
+        if (Objects.isNull(changedPath)) {
+            requestUserExtensionScan();
+        } else if (Objects.nonNull(libDir) && (changedPath.startsWith(libDir) || libDir.startsWith(changedPath))) {
+            requestUserExtensionScan();
+        }
+    }
+
+    private static Path userExtensionDir() {
         if (Objects.isNull(directoryService)) {
-            return;
+            return null;
         }
         Path workingDir = directoryService.workingDirectory();
-        Path libDir = workingDir.resolve(".asciidoctor/lib");
-        if (Files.notExists(libDir)) {
-            UserExtension userExtension = userExtensionMap.get(doctor);
-            if (Objects.nonNull(userExtension)) {
-                userExtension.registerExtensions(doctor, new ArrayList<>());
+        return Objects.isNull(workingDir) ? null : workingDir.resolve(".asciidoctor/lib");
+    }
+
+    private static void requestUserExtensionScan() {
+        extensionScanRequested.set(true);
+        if (!extensionScanRunning.compareAndSet(false, true)) {
+            return;
+        }
+        Thread.startVirtualThread(() -> {
+            try {
+                // Copying a jar fires several events, scan once they settle
+                Thread.sleep(EXTENSION_SCAN_DELAY_MILLIS);
+                while (extensionScanRequested.getAndSet(false)) {
+                    scanUserExtensions();
+                }
+            } catch (Exception e) {
+                logger.error("Problem occured while scanning user extensions", e);
+            } finally {
+                extensionScanRunning.set(false);
+            }
+            if (extensionScanRequested.get()) {
+                requestUserExtensionScan();
             }
+        });
+    }
+
+    private static void scanUserExtensions() {
+        Path libDir = userExtensionDir();
+        if (Objects.isNull(libDir)) {
             return;
         }
 
-        List<Path> extensions = IOHelper.walk(libDir, 2)
+        List<Path> paths = Files.isDirectory(libDir) ? IOHelper.walk(libDir, 2).toList() : List.of();
+        List<Path> extensions = paths.stream()
                 .filter(p -> p.toString().endsWith(".rb") || p.toString().endsWith(".jar"))
                 .sorted().toList();
+        watchUserExtensionDir(libDir, paths);
+
+        String fingerprint = extensions.stream()
+                .map(p -> String.format("%s:%d:%s", p, IOHelper.size(p).orElse(-1L), IOHelper.getLastModifiedTime(p)))
+                .collect(Collectors.joining("\n", libDir + "\n", ""));
+        if (libDir.equals(scannedLibDir) && fingerprint.equals(extensionFingerprint)) {
+            return;
+        }
+        scannedLibDir = libDir;
+        extensionFingerprint = fingerprint;
+
+        logger.info("Registering {} user extensions of {}", extensions.size(), libDir);
+        Stream.of(plainDoctorPool, htmlDoctorPool, nonHtmlDoctorPool, revealDoctorPool)
+                .forEach(pool -> pool.updateAll(doctor -> registerUserExtensions(doctor, extensions, fingerprint)));
+    }
+
+    private static void watchUserExtensionDir(Path libDir, List<Path> paths) {
+        FileWatchService fileWatchService = context.getBean(FileWatchService.class);
+        Path asciidoctorDir = libDir.getParent();
+        if (Files.isDirectory(asciidoctorDir)) {
+            fileWatchService.registerPathWatcher(asciidoctorDir);
+        }
+        paths.stream()
+                .filter(Files::isDirectory)
+                .forEach(fileWatchService::registerPathWatcher);
+    }
+
+    private static void registerUserExtensions(Asciidoctor doctor, List<Path> extensions, String fingerprint) {
+        if (extensions.isEmpty()) {
+            UserExtension userExtension = userExtensionMap.get(doctor);
+            if (Objects.nonNull(userExtension)) {
+                userExtension.registerExtensions(doctor, extensions, fingerprint);
+            }
+            return;
+        }
 
         UserExtension userExtension = userExtensionMap.compute(doctor, (adoc, uEx) -> {
             if (Objects.nonNull(uEx)) {
@@ -83,36 +200,69 @@ public class AsciidoctorFactory {
             extension.setExtensionGroup(adoc.createGroup());
             return extension;
         });
-        userExtension.registerExtensions(doctor, extensions);
+        userExtension.registerExtensions(doctor, extensions, fingerprint);
+    }
+
+    public static AsciidoctorPool getHtmlDoctorPool() {
+        return htmlDoctorPool;
     }
 
-    public static Asciidoctor getHtmlDoctor() {
-        waitLatch(htmlDoctorReady);
-        checkUserExtensions(htmlDoctor);
-        return htmlDoctor;
+    public static AsciidoctorPool getNonHtmlDoctorPool() {
+        return nonHtmlDoctorPool;
     }
 
-    public static Asciidoctor getNonHtmlDoctor() {
-        waitLatch(nonHtmlDoctorReady);
-        checkUserExtensions(nonHtmlDoctor);
-        return nonHtmlDoctor;
+    public static AsciidoctorPool getPlainDoctorPool() {
+        return plainDoctorPool;
     }
 
-    public static Asciidoctor getPlainDoctor() {
-        waitLatch(plainDoctorReady);
-        checkUserExtensions(plainDoctor);
-        return plainDoctor;
+    public static AsciidoctorPool getRevealDoctorPool() {
+        return revealDoctorPool;
     }
 
-    public static Asciidoctor getRevealDoctor() {
-        waitLatch(revealDoctorReady);
-        checkUserExtensions(revealDoctor);
-        return revealDoctor;
+    /**
+     * Options to parse only the document header, which is enough to resolve the backend and the header attributes
+     *
+     * @param backend backend of the attributes, the backend of the document header when it is null
+     */
+    public static Options headerOptions(Path baseDir, String docFile, String backend) {
+        OptionsBuilder optionsBuilder = Options.builder()
+                .safe(SafeMode.UNSAFE)
+                .parseHeaderOnly(true)
+                .baseDir(baseDir.toFile())
+                .attributes(Attributes.builder()
+                        .allowUriRead(true)
+                        .attribute(DOC_FILE_ATTR, docFile)
+                        .build());
+        if (Objects.nonNull(backend)) {
+            optionsBuilder.backend(backend);
+        }
+        return optionsBuilder.build();
+    }
+
+    /**
+     * Parses only the document header, the body is left to the conversion itself
+     */
+    public static Document loadHeader(String asciidoc, Path baseDir, String docFile, String backend) {
+        Options options = headerOptions(baseDir, docFile, backend);
+        return plainDoctorPool.apply(doctor -> doctor.load(asciidoc, options));
+    }
+
+    public static List<AsciidoctorPool.PoolStats> getPoolStats() {
+        return Stream.of(plainDoctorPool, htmlDoctorPool, nonHtmlDoctorPool, revealDoctorPool)
+                .map(AsciidoctorPool::getStats)
+                .toList();
+    }
+
+    /*
+     True once the first instance of every pool is created
+     */
+    public static boolean isInitialized() {
+        return initialized;
     }
 
     public void initializeDoctors() {
         Thread.startVirtualThread(() -> {
-            IntStream.rangeClosed(1, 4)
+            IntStream.rangeClosed(1, PREPARED_DOCTOR_COUNT)
                     .forEach(i -> {
                         Asciidoctor asciidoctor = Asciidoctor.Factory.create();
                         blockingQueue.add(asciidoctor);
@@ -120,7 +270,13 @@ public class AsciidoctorFactory {
         });
     }
 
+    /*
+     The first instances are prepared at startup, later pool instances are created on demand
+     */
     public static Asciidoctor getAsciidoctor() {
+        if (preparedDoctors.getAndDecrement() <= 0) {
+            return Asciidoctor.Factory.create();
+        }
         Asciidoctor doctor;
         try {
             doctor = blockingQueue.take();
@@ -130,12 +286,4 @@ public class AsciidoctorFactory {
         return doctor;
     }
 
-    private static void waitLatch(CountDownLatch countDownLatch) {
-        try {
-            countDownLatch.await();
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
 }
@@ -0,0 +1,240 @@
+package com.kodedu.service;
+
+import org.asciidoctor.Asciidoctor;
+import org.asciidoctor.Options;
+import org.asciidoctor.SafeMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Pool of Asciidoctor instances sharing the same backend and extensions.
+ * <p>
+ * Starts with a single instance and grows up to maxSize when every instance is checked out.
+ * New instances are created and warmed up in background, a waiting caller takes whichever
+ * instance becomes idle first.
+ * <p>
+ * Updates such as user extension changes are applied to each instance while it is not checked out.
+ */
+public class AsciidoctorPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsciidoctorPool.class);
+
+    private static final String WARM_UP_CONTENT = "= Warm up\n\n== Section\n\n* item `code` *strong* _emphasis_\n";
+
+    private final String name;
+    private final int maxSize;
+    private final Supplier<Asciidoctor> factory;
+    private final Consumer<Asciidoctor> checkoutHook;
+
+    private final CountDownLatch ready = new CountDownLatch(1);
+    private final BlockingQueue<Asciidoctor> idleDoctors = new LinkedBlockingQueue<>();
+    private final List<Asciidoctor> doctors = new CopyOnWriteArrayList<>();
+    private final Map<Asciidoctor, Long> checkoutTimes = new ConcurrentHashMap<>();
+    private final AtomicInteger reserved = new AtomicInteger();
+
+    private final AtomicLong updateVersion = new AtomicLong();
+    private final Map<Asciidoctor, Long> appliedVersions = new ConcurrentHashMap<>();
+    private volatile Consumer<Asciidoctor> update;
+
+    private final AtomicLong checkouts = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong busyNanos = new AtomicLong();
+    private volatile long startNanos;
+
+    public AsciidoctorPool(String name, int maxSize, Supplier<Asciidoctor> factory, Consumer<Asciidoctor> checkoutHook) {
+        this.name = name;
+        this.maxSize = Math.max(1, maxSize);
+        this.factory = factory;
+        this.checkoutHook = checkoutHook;
+    }
+
+    /**
+     * Creates the first instance, callers block in checkout until it is ready
+     */
+    public void start() {
+        reserved.incrementAndGet();
+        addDoctor(factory.get());
+        startNanos = System.nanoTime();
+        ready.countDown();
+    }
+
+    public Asciidoctor checkout() {
+        long start = System.nanoTime();
+        awaitReady();
+        Asciidoctor doctor = idleDoctors.poll();
+        if (Objects.isNull(doctor)) {
+            grow();
+            doctor = takeIdle();
+        }
+        long waited = System.nanoTime() - start;
+        checkouts.incrementAndGet();
+        totalWaitNanos.addAndGet(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        if (waited > TimeUnit.MILLISECONDS.toNanos(100)) {
+            logger.debug("Waited {} ms for {} doctor", TimeUnit.NANOSECONDS.toMillis(waited), name);
+        }
+        checkoutTimes.put(doctor, System.nanoTime());
+        try {
+            checkoutHook.accept(doctor);
+        } catch (RuntimeException e) {
+            release(doctor);
+            throw e;
+        }
+        return doctor;
+    }
+
+    public void release(Asciidoctor doctor) {
+        Long checkoutTime = checkoutTimes.remove(doctor);
+        if (Objects.isNull(checkoutTime)) {
+            return;
+        }
+        busyNanos.addAndGet(System.nanoTime() - checkoutTime);
+        if (isUpdated(doctor)) {
+            idleDoctors.offer(doctor);
+        } else {
+            Thread.startVirtualThread(() -> offerIdle(doctor));
+        }
+    }
+
+    /**
+     * Applies the update to every instance in background. Idle instances are updated right away,
+     * checked out ones once they are released and instances created later before they join the pool.
+     */
+    public void updateAll(Consumer<Asciidoctor> update) {
+        this.update = update;
+        updateVersion.incrementAndGet();
+        for (Asciidoctor doctor : doctors) {
+            if (idleDoctors.remove(doctor)) {
+                Thread.startVirtualThread(() -> offerIdle(doctor));
+            }
+        }
+    }
+
+    public <T> T apply(Function<Asciidoctor, T> function) {
+        Asciidoctor doctor = checkout();
+        try {
+            return function.apply(doctor);
+        } finally {
+            release(doctor);
+        }
+    }
+
+    public void accept(Consumer<Asciidoctor> consumer) {
+        apply(doctor -> {
+            consumer.accept(doctor);
+            return null;
+        });
+    }
+
+    public PoolStats getStats() {
+        long count = checkouts.get();
+        int size = doctors.size();
+        long elapsed = startNanos == 0 ? 0 : System.nanoTime() - startNanos;
+        long busy = busyNanos.get() + checkoutTimes.values().stream().mapToLong(t -> System.nanoTime() - t).sum();
+        double utilization = elapsed == 0 || size == 0 ? 0 : Math.min(1d, busy / ((double) elapsed * size));
+        return new PoolStats(name, size, maxSize, checkoutTimes.size(), count,
+                count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get() / count),
+                TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()), utilization);
+    }
+
+    public void shutdown() {
+        logger.info("Shutting down doctor pool: {}", getStats());
+        for (Asciidoctor doctor : doctors) {
+            try {
+                doctor.shutdown();
+            } catch (Exception e) {
+                logger.warn("Problem occured while shutting down {} doctor", name, e);
+            }
+        }
+        doctors.clear();
+        idleDoctors.clear();
+        appliedVersions.clear();
+    }
+
+    private void grow() {
+        int size = reserved.getAndUpdate(current -> current < maxSize ? current + 1 : current);
+        if (size >= maxSize) {
+            return;
+        }
+        Thread.startVirtualThread(() -> {
+            try {
+                long start = System.nanoTime();
+                Asciidoctor doctor = factory.get();
+                warmUp(doctor);
+                addDoctor(doctor);
+                logger.info("Added {} doctor #{} to the pool in {} ms", name, size + 1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            } catch (Exception e) {
+                reserved.decrementAndGet();
+                logger.error("Problem occured while creating {} doctor", name, e);
+            }
+        });
+    }
+
+    private void warmUp(Asciidoctor doctor) {
+        doctor.convert(WARM_UP_CONTENT, Options.builder()
+                .safe(SafeMode.SAFE)
+                .toFile(false)
+                .build());
+    }
+
+    private void addDoctor(Asciidoctor doctor) {
+        doctors.add(doctor);
+        offerIdle(doctor);
+    }
+
+    private boolean isUpdated(Asciidoctor doctor) {
+        return updateVersion.get() == appliedVersions.getOrDefault(doctor, 0L);
+    }
+
+    private void offerIdle(Asciidoctor doctor) {
+        long version;
+        // Loops when another update arrives meanwhile
+        while ((version = updateVersion.get()) != appliedVersions.getOrDefault(doctor, 0L)) {
+            try {
+                update.accept(doctor);
+            } catch (Exception e) {
+                logger.error("Problem occured while updating {} doctor", name, e);
+            }
+            appliedVersions.put(doctor, version);
+        }
+        idleDoctors.offer(doctor);
+    }
+
+    private Asciidoctor takeIdle() {
+        try {
+            return idleDoctors.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void awaitReady() {
+        try {
+            ready.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    public record PoolStats(String name, int size, int maxSize, int inUse, long checkouts,
+                            long averageWaitMillis, long maxWaitMillis, double utilization) {
+    }
+}
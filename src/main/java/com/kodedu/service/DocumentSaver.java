@@ -0,0 +1,124 @@
+package com.kodedu.service;
+
+import com.kodedu.helper.IOHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes documents off the FX thread.
+ * <p>
+ * A document is written atomically with {@link IOHelper#writeToFileAtomically(Path, String)}. Saves of a
+ * document requested while it is being written are coalesced into a single write of the latest content,
+ * and a document changed on disk since it was loaded is reported as a conflict instead of being overwritten.
+ */
+@Component
+public class DocumentSaver {
+
+    private final Logger logger = LoggerFactory.getLogger(DocumentSaver.class);
+
+    // Guarded by this
+    private final Map<Path, PendingSave> pendingSaves = new HashMap<>();
+    private final Set<Path> writingPaths = new HashSet<>();
+
+    // Modification times of the last writes, which aren't changes made by others
+    private final Map<Path, FileTime> writtenTimes = new ConcurrentHashMap<>();
+
+    @Autowired
+    private ThreadService threadService;
+
+    /**
+     * @param expectedTime modification time of the document when it was loaded or saved, null to overwrite changes on disk
+     * @return completes when the content or a later content of the document is written
+     */
+    public CompletableFuture<SaveResult> save(Path path, String content, FileTime expectedTime) {
+        synchronized (this) {
+            PendingSave previous = pendingSaves.get(path);
+            CompletableFuture<SaveResult> future = Objects.nonNull(previous) ? previous.future() : new CompletableFuture<>();
+            pendingSaves.put(path, new PendingSave(content, expectedTime, future));
+            if (writingPaths.add(path)) {
+                threadService.executor().execute(() -> writePendingSaves(path));
+            }
+            return future;
+        }
+    }
+
+    /**
+     * Waits for the saves in progress, returns false when they aren't done in time
+     */
+    public synchronized boolean awaitSaves(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!writingPaths.isEmpty()) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+
+    private void writePendingSaves(Path path) {
+        while (true) {
+            PendingSave pendingSave;
+            synchronized (this) {
+                pendingSave = pendingSaves.remove(path);
+                if (Objects.isNull(pendingSave)) {
+                    writingPaths.remove(path);
+                    notifyAll();
+                    return;
+                }
+            }
+            try {
+                pendingSave.future().complete(write(path, pendingSave));
+            } catch (Exception e) {
+                pendingSave.future().completeExceptionally(e);
+            }
+        }
+    }
+
+    private SaveResult write(Path path, PendingSave pendingSave) {
+        FileTime expectedTime = pendingSave.expectedTime();
+        FileTime currentTime = IOHelper.getLastModifiedTime(path);
+        if (Objects.nonNull(expectedTime) && Objects.nonNull(currentTime) && currentTime.compareTo(expectedTime) > 0
+                && !currentTime.equals(writtenTimes.get(path))) {
+            logger.debug("{} has been changed on disk, it isn't overwritten", path);
+            return new SaveResult(currentTime, true);
+        }
+
+        IOHelper.createDirectories(path.getParent());
+        Optional<Exception> exception = IOHelper.writeToFileAtomically(path, pendingSave.content());
+        if (exception.isPresent()) {
+            throw new CompletionException(exception.get());
+        }
+
+        FileTime writtenTime = IOHelper.getLastModifiedTime(path);
+        if (Objects.nonNull(writtenTime)) {
+            writtenTimes.put(path, writtenTime);
+        }
+        return new SaveResult(writtenTime, false);
+    }
+
+    private record PendingSave(String content, FileTime expectedTime, CompletableFuture<SaveResult> future) {
+    }
+
+    /**
+     * @param lastModifiedTime modification time of the document on disk after the save
+     * @param conflict         whether the document was left as is because it was changed on disk
+     */
+    public record SaveResult(FileTime lastModifiedTime, boolean conflict) {
+    }
+}
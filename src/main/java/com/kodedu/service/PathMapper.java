@@ -1,47 +1,70 @@
 package com.kodedu.service;
 
 import com.kodedu.helper.IOHelper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Stream;
-
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks up the files of the working directories by name, see {@link WorkspaceIndex}.
+ * <p>
+ * The index of a working directory is saved under the config folder and loaded when it is opened again,
+ * then brought up to date by listing only the directories changed since. Watched directories are
+ * updated on their changes, the others by a periodic refresh.
+ */
 @Component
 public class PathMapper {
 
+    private static final long REFRESH_INTERVAL_SECONDS = Long.getLong("asciidocfx.index.refreshInterval", 60);
+
     private final ThreadService threadService;
 
     private Logger logger = LoggerFactory.getLogger(PathMapper.class);
 
-    private final ConcurrentHashMap<Path, Set<Path>> pathMap = new ConcurrentHashMap<>();
+    private final WorkspaceIndex index = new WorkspaceIndex();
+
+    // None of them is under another
+    private final Set<Path> rootPaths = ConcurrentHashMap.newKeySet();
+    private final Set<Path> changedRootPaths = ConcurrentHashMap.newKeySet();
+    // Directories registered to the file watcher, their listings follow the disk
+    private final Set<Path> watchedDirectories = ConcurrentHashMap.newKeySet();
+
+    @Value("${application.config.folder}")
+    private String configFolder;
 
     @Autowired
     public PathMapper(ThreadService threadService) {
         this.threadService = threadService;
     }
 
-    public void addPath(Path path) {
-        if (Objects.isNull(path)) {
-            return;
-        }
-        Path fileName = path.getFileName();
+    @PostConstruct
+    public void init() {
+        threadService.scheduleWithDelay(() -> threadService.start(this::refreshRootPaths),
+                REFRESH_INTERVAL_SECONDS, REFRESH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
 
-        if (Objects.isNull(fileName)) {
+    public void addPath(Path path) {
+        if (Objects.isNull(path) || Objects.isNull(path.getFileName())) {
             return;
         }
-
-        pathMap.putIfAbsent(fileName, ConcurrentHashMap.newKeySet());
-
-        pathMap.get(fileName).add(path.normalize());
+        index.addFile(path.toAbsolutePath().normalize());
     }
 
     public void addFileParent(Path path) {
@@ -74,17 +97,48 @@ public class PathMapper {
             return;
         }
 
+        Path rootPath = path.toAbsolutePath().normalize();
+        synchronized (rootPaths) {
+            if (rootPaths.stream().anyMatch(rootPath::startsWith)) {
+                return;
+            }
+            rootPaths.removeIf(p -> p.startsWith(rootPath));
+            rootPaths.add(rootPath);
+        }
+
         threadService.start(() -> {
 
-            logger.info("Indexing.. {}", path);
+            logger.info("Indexing.. {}", rootPath);
+
+            if (!index.isListed(rootPath)) {
+                loadIndex(rootPath);
+            }
+            int listed = index.refresh(rootPath, true);
+            if (listed > 0) {
+                saveIndex(rootPath);
+            }
+            logger.info("Indexing completed.. {}, {} directories listed", rootPath, listed);
+        });
+    }
 
-            try (Stream<Path> pathStream = IOHelper.walk(path);) {
-                pathStream
-                        .filter(p -> !Files.isDirectory(p))
-                        .forEach(p -> {
-                            this.addPath(p);
-                        });
-                logger.info("Indexing completed.. {}", path);
+    /**
+     * Updates the index on the changes of a watched directory in a working directory,
+     * its new subdirectories are indexed as a whole
+     */
+    public void refreshDirectory(Path path) {
+        if (Objects.isNull(path)) {
+            return;
+        }
+        Path directory = path.toAbsolutePath().normalize();
+        if (rootPaths.stream().noneMatch(directory::startsWith)) {
+            return;
+        }
+        threadService.start(() -> {
+            if (index.refresh(directory, false) > 0) {
+                rootPaths.stream()
+                        .filter(directory::startsWith)
+                        .forEach(changedRootPaths::add);
+                threadService.buff("workspaceIndex").schedule(this::saveChangedIndexes, 10, TimeUnit.SECONDS);
             }
         });
     }
@@ -105,6 +159,9 @@ public class PathMapper {
 
     }
 
+    /**
+     * The only indexed file of the same name
+     */
     public Optional<Path> lookUpFile(Path file) {
         if (Objects.isNull(file)) {
             return Optional.empty();
@@ -115,24 +172,102 @@ public class PathMapper {
             return Optional.empty();
         }
 
-        Set<Path> pathList = pathMap.get(fileName);
+        Set<Path> pathList = index.findByName(fileName.toString());
 
-        if (Objects.isNull(pathList)) {
+        if (pathList.size() != 1) {
             return Optional.empty();
         }
 
-        pathList.removeIf(Files::notExists);
+        return pathList.stream().findFirst();
+    }
 
-        if (pathList.size() > 1) {
-            return Optional.empty();
+    public Set<Path> lookUpExtension(String extension) {
+        return index.findByExtension(extension);
+    }
+
+    public List<Path> lookUpPrefix(String prefix, int limit) {
+        return index.findByPrefix(prefix, limit);
+    }
+
+    /**
+     * Whether the file is in the listing of its indexed directory, the disk isn't checked
+     */
+    public boolean isIndexed(Path path) {
+        Path normalized = path.toAbsolutePath().normalize();
+        return Objects.nonNull(normalized.getParent()) && Objects.nonNull(normalized.getFileName()) && index.contains(normalized);
+    }
+
+    public void watchDirectory(Path directory) {
+        watchedDirectories.add(directory.toAbsolutePath().normalize());
+    }
+
+    public void unwatchDirectory(Path directory) {
+        watchedDirectories.remove(directory.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Whether the file exists. A file found in the index of a watched directory is taken as existing, any other
+     * answer comes from the disk, since the other directories are refreshed only periodically and the names in
+     * the index are matched with their exact case.
+     */
+    public boolean exists(Path path) {
+        if (Objects.isNull(path)) {
+            return false;
+        }
+        Path normalized = path.toAbsolutePath().normalize();
+        Path parent = normalized.getParent();
+        if (Objects.nonNull(parent) && Objects.nonNull(normalized.getFileName())
+                && watchedDirectories.contains(parent) && index.contains(normalized)) {
+            return true;
         }
+        return Files.exists(path);
+    }
 
-        for (Path path : pathList) {
-            if (Files.exists(path)) {
-                return Optional.ofNullable(path);
+    /**
+     * Writes the changed indexes so that they are up to date after restart
+     */
+    @PreDestroy
+    public void saveChangedIndexes() {
+        for (Path rootPath : rootPaths) {
+            if (changedRootPaths.remove(rootPath)) {
+                saveIndex(rootPath);
             }
         }
+    }
+
+    private void refreshRootPaths() {
+        for (Path rootPath : rootPaths) {
+            int listed = index.refresh(rootPath, true);
+            if (listed > 0) {
+                logger.debug("{} directories changed under {}", listed, rootPath);
+                saveIndex(rootPath);
+            }
+        }
+    }
+
+    private void loadIndex(Path rootPath) {
+        Path indexFile = indexFile(rootPath);
+        try {
+            if (index.load(rootPath, indexFile)) {
+                logger.debug("Index of {} is loaded from {}", rootPath, indexFile);
+            }
+        } catch (IOException e) {
+            logger.warn("Problem occured while loading index of {}", rootPath, e);
+        }
+    }
+
+    private void saveIndex(Path rootPath) {
+        changedRootPaths.remove(rootPath);
+        try {
+            index.save(rootPath, indexFile(rootPath));
+        } catch (IOException e) {
+            logger.warn("Problem occured while saving index of {}", rootPath, e);
+        }
+    }
 
-        return Optional.empty();
+    private Path indexFile(Path rootPath) {
+        String name = DigestUtils.md5DigestAsHex(rootPath.toString().getBytes(StandardCharsets.UTF_8));
+        return IOHelper.getPath(System.getProperty("user.home")).resolve(configFolder)
+                .resolve("workspace-index").resolve(name + ".idx");
     }
 }
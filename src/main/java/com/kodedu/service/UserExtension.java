@@ -37,6 +37,7 @@ public class UserExtension {
     private Logger logger = LoggerFactory.getLogger(UserExtension.class);
 
     private List<Path> extensions = new ArrayList<>();
+    private String fingerprint = "";
     private ExtensionGroup extensionGroup;
 
     private List<Class> extensionClasses = List.of(BlockMacroProcessor.class, BlockProcessor.class, DocinfoProcessor.class, IncludeProcessor.class,
@@ -61,8 +62,11 @@ public class UserExtension {
         ClassGraph.CIRCUMVENT_ENCAPSULATION = ClassGraph.CircumventEncapsulationMethod.JVM_DRIVER;
     }
 
-    public void registerExtensions(Asciidoctor adoc, List<Path> extensions) {
-        if (extensions.equals(this.extensions)) {
+    /**
+     * Registers the extensions again when the fingerprint of their files differs from the registered one
+     */
+    public void registerExtensions(Asciidoctor adoc, List<Path> extensions, String fingerprint) {
+        if (fingerprint.equals(this.fingerprint)) {
             return;
         }
         extensionGroup.unregister();
@@ -74,6 +78,7 @@ public class UserExtension {
             extensionGroup.register();
         }
         this.extensions = extensions;
+        this.fingerprint = fingerprint;
     }
 
     private void registerJavaExtensions(Asciidoctor adoc, List<Path> extensions) {
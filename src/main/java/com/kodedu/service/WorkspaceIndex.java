@@ -0,0 +1,405 @@
+package com.kodedu.service;
+
+import com.kodedu.helper.OSHelper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Index of the files under the workspace directories, kept as the listings of their directories.
+ * <p>
+ * Files are looked up by name, extension or name prefix without touching the disk. A refresh reads the
+ * modification time of each indexed directory and lists only the directories changed since they were
+ * indexed, and the listings can be saved and loaded, so an indexed tree isn't walked again.
+ */
+class WorkspaceIndex {
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock
+    private final Map<Path, Directory> directories = new HashMap<>();
+    private final NavigableMap<String, Set<Path>> byName = new TreeMap<>();
+    private final Map<String, Set<Path>> byExtension = new HashMap<>();
+
+    /**
+     * Files of the name, in any indexed directory
+     */
+    Set<Path> findByName(String fileName) {
+        lock.readLock().lock();
+        try {
+            return copy(byName.get(nameKey(fileName)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Files of the extension, given without the dot
+     */
+    Set<Path> findByExtension(String extension) {
+        lock.readLock().lock();
+        try {
+            return copy(byExtension.get(extension.toLowerCase(Locale.ROOT)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Files whose name starts with the prefix, at most the limit
+     */
+    List<Path> findByPrefix(String prefix, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Path> paths = new ArrayList<>();
+            String key = nameKey(prefix);
+            for (Map.Entry<String, Set<Path>> entry : byName.tailMap(key, true).entrySet()) {
+                if (!entry.getKey().startsWith(key)) {
+                    break;
+                }
+                for (Path path : entry.getValue()) {
+                    if (paths.size() == limit) {
+                        return paths;
+                    }
+                    paths.add(path);
+                }
+            }
+            return paths;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Whether the directory is listed, so that the existence of its files is known
+     */
+    boolean isListed(Path directory) {
+        lock.readLock().lock();
+        try {
+            return directories.containsKey(directory);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Whether the file or directory is in the listing of its directory
+     */
+    boolean contains(Path path) {
+        lock.readLock().lock();
+        try {
+            Directory directory = directories.get(path.getParent());
+            if (Objects.isNull(directory)) {
+                return false;
+            }
+            String name = path.getFileName().toString();
+            return directory.files().contains(name) || directory.subdirectories().contains(name);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a file to the listing of its directory, if it is listed
+     */
+    void addFile(Path file) {
+        lock.writeLock().lock();
+        try {
+            Directory directory = directories.get(file.getParent());
+            if (Objects.nonNull(directory) && directory.files().add(file.getFileName().toString())) {
+                index(file);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a file or a directory with its tree
+     */
+    void remove(Path path) {
+        lock.writeLock().lock();
+        try {
+            Directory directory = directories.get(path.getParent());
+            if (Objects.nonNull(directory)) {
+                String name = path.getFileName().toString();
+                if (directory.files().remove(name)) {
+                    unindex(path);
+                }
+                directory.subdirectories().remove(name);
+            }
+            removeTree(path);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Brings the tree of the directory up to date, listing only the directories changed since they were listed
+     *
+     * @param deep whether the listed subdirectories are refreshed too, otherwise only the new ones are listed
+     * @return the number of directories listed
+     */
+    int refresh(Path root, boolean deep) {
+        int listed = 0;
+        Deque<Path> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Path path = pending.pop();
+            long modified;
+            try {
+                modified = Files.getLastModifiedTime(path).toMillis();
+            } catch (IOException e) {
+                remove(path);
+                continue;
+            }
+
+            Set<String> subdirectories = knownSubdirectories(path, modified);
+            if (Objects.isNull(subdirectories)) {
+                // The time is read before the listing, a change in between is listed again by the next refresh
+                Directory directory = list(path, modified);
+                if (Objects.isNull(directory)) {
+                    remove(path);
+                    continue;
+                }
+                subdirectories = new HashSet<>(directory.subdirectories());
+                putDirectory(path, directory);
+                listed++;
+            }
+            for (String subdirectory : subdirectories) {
+                Path child = path.resolve(subdirectory);
+                if (deep || !isListed(child)) {
+                    pending.push(child);
+                }
+            }
+        }
+        return listed;
+    }
+
+    /**
+     * Writes the listings of the tree of the root to the file, replacing it atomically
+     */
+    synchronized void save(Path root, Path file) throws IOException {
+        Map<String, Directory> tree = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            directories.forEach((path, directory) -> {
+                if (path.startsWith(root)) {
+                    tree.put(root.relativize(path).toString(), new Directory(directory.modified(),
+                            new HashSet<>(directory.files()), new HashSet<>(directory.subdirectories())));
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream outputStream = Files.newOutputStream(temp);
+             DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(outputStream)))) {
+            output.writeInt(FORMAT_VERSION);
+            output.writeUTF(root.toString());
+            output.writeInt(tree.size());
+            for (Map.Entry<String, Directory> entry : tree.entrySet()) {
+                Directory directory = entry.getValue();
+                output.writeUTF(entry.getKey());
+                output.writeLong(directory.modified());
+                writeNames(output, directory.files());
+                writeNames(output, directory.subdirectories());
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the listings saved for the root, returns false when the file isn't an index of the root
+     */
+    boolean load(Path root, Path file) throws IOException {
+        if (Files.notExists(file)) {
+            return false;
+        }
+        Map<Path, Directory> tree = new HashMap<>();
+        try (InputStream inputStream = Files.newInputStream(file);
+             DataInputStream input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(inputStream)))) {
+            if (input.readInt() != FORMAT_VERSION || !root.toString().equals(input.readUTF())) {
+                return false;
+            }
+            int count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                Path path = root.resolve(input.readUTF());
+                long modified = input.readLong();
+                tree.put(path, new Directory(modified, readNames(input), readNames(input)));
+            }
+        }
+        tree.forEach(this::putDirectory);
+        return true;
+    }
+
+    private Set<String> knownSubdirectories(Path path, long modified) {
+        lock.readLock().lock();
+        try {
+            Directory directory = directories.get(path);
+            if (Objects.isNull(directory) || directory.modified() != modified) {
+                return null;
+            }
+            return new HashSet<>(directory.subdirectories());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     Links to directories aren't followed, as the walk of the whole tree didn't
+     */
+    private Directory list(Path path, long modified) {
+        Set<String> files = new HashSet<>();
+        Set<String> subdirectories = new HashSet<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+            for (Path entry : stream) {
+                String name = entry.getFileName().toString();
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                } catch (IOException e) {
+                    continue;
+                }
+                if (attributes.isDirectory()) {
+                    subdirectories.add(name);
+                } else if (!attributes.isSymbolicLink() || !Files.isDirectory(entry)) {
+                    files.add(name);
+                }
+            }
+        } catch (NoSuchFileException | NotDirectoryException e) {
+            return null;
+        } catch (IOException e) {
+            // An unreadable directory is indexed as empty
+        }
+        return new Directory(modified, files, subdirectories);
+    }
+
+    private void putDirectory(Path path, Directory directory) {
+        lock.writeLock().lock();
+        try {
+            Directory previous = directories.put(path, directory);
+            if (Objects.nonNull(previous)) {
+                for (String file : previous.files()) {
+                    if (!directory.files().contains(file)) {
+                        unindex(path.resolve(file));
+                    }
+                }
+                for (String subdirectory : previous.subdirectories()) {
+                    if (!directory.subdirectories().contains(subdirectory)) {
+                        removeTree(path.resolve(subdirectory));
+                    }
+                }
+            }
+            for (String file : directory.files()) {
+                if (Objects.isNull(previous) || !previous.files().contains(file)) {
+                    index(path.resolve(file));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeTree(Path path) {
+        Directory directory = directories.remove(path);
+        if (Objects.isNull(directory)) {
+            return;
+        }
+        for (String file : directory.files()) {
+            unindex(path.resolve(file));
+        }
+        for (String subdirectory : directory.subdirectories()) {
+            removeTree(path.resolve(subdirectory));
+        }
+    }
+
+    private void index(Path file) {
+        String fileName = file.getFileName().toString();
+        byName.computeIfAbsent(nameKey(fileName), k -> new LinkedHashSet<>()).add(file);
+        byExtension.computeIfAbsent(extension(fileName), k -> new LinkedHashSet<>()).add(file);
+    }
+
+    private void unindex(Path file) {
+        String fileName = file.getFileName().toString();
+        removeFrom(byName, nameKey(fileName), file);
+        removeFrom(byExtension, extension(fileName), file);
+    }
+
+    private void removeFrom(Map<String, Set<Path>> map, String key, Path file) {
+        Set<Path> paths = map.get(key);
+        if (Objects.nonNull(paths) && paths.remove(file) && paths.isEmpty()) {
+            map.remove(key);
+        }
+    }
+
+    private Set<Path> copy(Set<Path> paths) {
+        return Objects.isNull(paths) ? Collections.emptySet() : new LinkedHashSet<>(paths);
+    }
+
+    /*
+     File names are matched as the file system compares them
+     */
+    private static String nameKey(String fileName) {
+        return OSHelper.isWindows() ? fileName.toLowerCase(Locale.ROOT) : fileName;
+    }
+
+    private static String extension(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot < 0 ? "" : fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+
+    private static void writeNames(DataOutputStream output, Set<String> names) throws IOException {
+        output.writeInt(names.size());
+        for (String name : names) {
+            output.writeUTF(name);
+        }
+    }
+
+    private static Set<String> readNames(DataInputStream input) throws IOException {
+        int count = input.readInt();
+        Set<String> names = new HashSet<>(count);
+        for (int i = 0; i < count; i++) {
+            names.add(input.readUTF());
+        }
+        return names;
+    }
+
+    private record Directory(long modified, Set<String> files, Set<String> subdirectories) {
+    }
+}
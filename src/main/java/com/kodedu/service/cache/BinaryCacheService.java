@@ -10,9 +10,15 @@ public interface BinaryCacheService {
 
     public String putBinary(String key, byte[] bytes);
 
+    /**
+     * Counts as a hit and promotes the entry, the caller closes the returned data once it's served.
+     * Use {@link #hasCache(String)} to check whether an entry exists
+     */
     public CacheData getCacheData(String key);
 
     public void putBinary(String key, BufferedImage trimmed);
 
     public boolean hasCache(String key);
+
+    public BinaryCacheStats getStats();
 }
@@ -0,0 +1,9 @@
+package com.kodedu.service.cache;
+
+/**
+ * Counters of the binary cache since the application started.
+ * Demotions are entries moved from memory to disk, evictions are entries dropped from disk.
+ */
+public record BinaryCacheStats(long memoryHits, long diskHits, long misses, long demotions, long evictions,
+                               int memoryEntries, long memorySize, int diskEntries, long diskSize) {
+}
@@ -1,23 +1,27 @@
 package com.kodedu.service.cache;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * Created by usta on 12.06.2016.
+ * <p>
+ * Reads are positional and keep no state, so an entry can be served to concurrent requests.
+ * An entry is closed once it is served, which releases the file a disk entry is read from.
  */
-public interface CacheData {
+public interface CacheData extends Closeable {
 
     long length();
 
-    void seek(long pos) throws IOException;
-
     byte[] readBytes();
 
     long lastModified();
 
-    int read(byte[] buffer) throws IOException;
-
-    void closeStream() throws IOException;
+    /**
+     * Writes count bytes starting from the position to the output
+     */
+    void writeTo(long position, long count, OutputStream output) throws IOException;
 
     boolean inMemory();
 
@@ -25,5 +29,7 @@ public interface CacheData {
 
     String key();
 
-    void removeFromDisk();
+    @Override
+    default void close() {
+    }
 }
@@ -0,0 +1,27 @@
+package com.kodedu.service.cache;
+
+import java.io.IOException;
+
+/**
+ * Cache of remote resources such as included documents and embedded images, revalidated with ETag
+ * and Last-Modified once the time to live passes.
+ */
+public interface HttpCacheService {
+    public final static String label = "core::service::cache::HttpCache";
+
+    public byte[] getBytes(String uri) throws IOException;
+
+    /**
+     * Decodes the resource with the charset of its content type, UTF-8 by default
+     */
+    public String getString(String uri) throws IOException;
+
+    /**
+     * In offline mode cached copies are served without revalidation, however stale they are
+     */
+    public void setOffline(boolean offline);
+
+    public boolean isOffline();
+
+    public HttpCacheStats getStats();
+}
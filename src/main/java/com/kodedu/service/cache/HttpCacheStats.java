@@ -0,0 +1,10 @@
+package com.kodedu.service.cache;
+
+/**
+ * Counters of the HTTP cache since the application started.
+ * Hits are served without a request, revalidations are answered with 304 Not Modified,
+ * stale hits are served because the resource couldn't be fetched or the cache is offline.
+ */
+public record HttpCacheStats(long hits, long revalidations, long downloads, long staleHits, long coalesced,
+                             int entries, long size) {
+}
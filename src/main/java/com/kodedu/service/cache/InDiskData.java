@@ -1,75 +1,76 @@
 package com.kodedu.service.cache;
 
-import com.kodedu.helper.IOHelper;
-
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.nio.file.Path;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Created by usta on 12.06.2016.
  */
 public class InDiskData implements CacheData {
-    private final Path path;
     private final String key;
-    private RandomAccessFile randomAccessFile;
-
-    public InDiskData(String key, Path path) {
+    private final FileChannel channel;
+    private final long offset;
+    private final long length;
+    private final long lastModified;
+    private final Runnable release;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * @param release runs once when the entry is closed, the channel may be closed afterwards
+     */
+    public InDiskData(String key, FileChannel channel, long offset, long length, long lastModified, Runnable release) {
         this.key = key;
-        this.path = path;
+        this.channel = channel;
+        this.offset = offset;
+        this.length = length;
+        this.lastModified = lastModified;
+        this.release = release;
     }
 
     @Override
     public byte[] readBytes() {
-        return IOHelper.readAllBytes(path);
+        ByteBuffer buffer = ByteBuffer.allocate((int) length);
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return buffer.array();
     }
 
     @Override
     public long length() {
-        return path.toFile().length();
-    }
-
-    @Override
-    public void seek(long pos) throws IOException {
-        if (Objects.isNull(randomAccessFile)) {
-            this.randomAccessFile = new RandomAccessFile(path.toFile(), "r");
-        }
-
-        randomAccessFile.seek(pos);
-
+        return length;
     }
 
     @Override
     public long lastModified() {
-        return path.toFile().lastModified();
+        return lastModified;
     }
 
     @Override
-    public int read(byte[] buffer) throws IOException {
-        if (Objects.isNull(randomAccessFile)) {
-            this.randomAccessFile = new RandomAccessFile(path.toFile(), "r");
+    public void writeTo(long position, long count, OutputStream output) throws IOException {
+        Objects.checkFromIndexSize(position, count, length);
+        WritableByteChannel target = Channels.newChannel(output);
+        long transferred = 0;
+        while (transferred < count) {
+            long written = channel.transferTo(offset + position + transferred, count - transferred, target);
+            if (written <= 0) {
+                throw new EOFException("Binary cache entry is shorter than expected: " + key);
+            }
+            transferred += written;
         }
-        return randomAccessFile.read(buffer);
-    }
-
-    @Override
-    public void closeStream() throws IOException {
-        RandomAccessFile currentRandomAccessFile = randomAccessFile;
-        if (Objects.nonNull(currentRandomAccessFile)) {
-            this.randomAccessFile = null;
-            currentRandomAccessFile.close();
-        }
-    }
-
-    @Override
-    public void removeFromDisk() {
-        try {
-            closeStream();
-        } catch (IOException e) {
-//            e.printStackTrace();
-        }
-        IOHelper.deleteIfExists(path);
     }
 
     @Override
@@ -86,4 +87,11 @@ public class InDiskData implements CacheData {
     public String key() {
         return key;
     }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            release.run();
+        }
+    }
 }
@@ -1,8 +1,7 @@
 package com.kodedu.service.cache;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.time.ZonedDateTime;
+import java.io.OutputStream;
 import java.util.Objects;
 
 /**
@@ -11,14 +10,17 @@ import java.util.Objects;
 public class InMemoryDAta implements CacheData {
 
     private final byte[] bytes;
-    private final ZonedDateTime lastModified;
+    private final long lastModified;
     private final String key;
-    private ByteArrayInputStream byteArrayStream;
 
     public InMemoryDAta(String key, byte[] bytes) {
+        this(key, bytes, System.currentTimeMillis());
+    }
+
+    public InMemoryDAta(String key, byte[] bytes, long lastModified) {
         this.key = key;
         this.bytes = bytes;
-        this.lastModified = ZonedDateTime.now();
+        this.lastModified = lastModified;
     }
 
     @Override
@@ -31,36 +33,15 @@ public class InMemoryDAta implements CacheData {
         return bytes.length;
     }
 
-    @Override
-    public void seek(long pos) throws IOException {
-        if (Objects.isNull(byteArrayStream)) {
-            this.byteArrayStream = new ByteArrayInputStream(bytes);
-        }
-        // 2 lines equal to seek
-        byteArrayStream.reset();
-        byteArrayStream.skip(pos);
-    }
-
     @Override
     public long lastModified() {
-        return lastModified.toEpochSecond();
+        return lastModified;
     }
 
     @Override
-    public int read(byte[] buffer) throws IOException {
-        if (Objects.isNull(byteArrayStream)) {
-            this.byteArrayStream = new ByteArrayInputStream(bytes);
-        }
-        return byteArrayStream.read(buffer);
-    }
-
-    @Override
-    public void closeStream() throws IOException {
-        ByteArrayInputStream currentByteArrayStream = byteArrayStream;
-        if (Objects.nonNull(currentByteArrayStream)) {
-            byteArrayStream = null;
-            currentByteArrayStream.close();
-        }
+    public void writeTo(long position, long count, OutputStream output) throws IOException {
+        Objects.checkFromIndexSize(position, count, bytes.length);
+        output.write(bytes, (int) position, (int) count);
     }
 
     @Override
@@ -77,9 +58,4 @@ public class InMemoryDAta implements CacheData {
     public String key() {
         return key;
     }
-
-    @Override
-    public void removeFromDisk() {
-// no-op
-    }
 }
@@ -0,0 +1,36 @@
+package com.kodedu.service.cache;
+
+import com.kodedu.service.extension.ImageInfo;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Content-addressed cache of rendered diagram images, shared by the image producing extensions.
+ */
+public interface RenderCacheService {
+    public final static String label = "core::service::cache::RenderCache";
+
+    /**
+     * Digest of everything that affects the rendered output of an extension
+     */
+    public String digest(String extension, Object... parts);
+
+    /**
+     * Puts the cached render of the digest to the image target, returns false when it must be rendered
+     */
+    public boolean restore(String digest, ImageInfo imageInfo);
+
+    public void store(String digest, ImageInfo imageInfo, byte[] bytes);
+
+    public void store(String digest, ImageInfo imageInfo, BufferedImage image);
+
+    /**
+     * Whether the image target holds the last render of the digest, for renders that are written without caching
+     */
+    public boolean isRendered(String digest, ImageInfo imageInfo);
+
+    /**
+     * Writes the render to the image target without caching it, for renders that depend on more than their digest
+     */
+    public void write(String digest, ImageInfo imageInfo, byte[] bytes);
+}
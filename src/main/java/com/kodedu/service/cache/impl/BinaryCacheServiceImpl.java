@@ -1,17 +1,19 @@
 package com.kodedu.service.cache.impl;
 
 import com.kodedu.helper.IOHelper;
-import com.kodedu.other.Current;
 import com.kodedu.service.ThreadService;
 import com.kodedu.service.cache.BinaryCacheService;
+import com.kodedu.service.cache.BinaryCacheStats;
 import com.kodedu.service.cache.CacheData;
 import com.kodedu.service.cache.InDiskData;
 import com.kodedu.service.cache.InMemoryDAta;
 
+import jakarta.annotation.PreDestroy;
 import javafx.application.Platform;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.imageio.ImageIO;
@@ -19,32 +21,40 @@ import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
-import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Created by usta on 12.06.2016.
+ * <p>
+ * Recently used entries are kept in memory, the others in a segment file under the config folder
+ * which survives restarts. Limits are set in megabytes with -Dasciidocfx.cache.memory and -Dasciidocfx.cache.disk
  */
 @Component(BinaryCacheService.label)
 public class BinaryCacheServiceImpl implements BinaryCacheService {
 
-    private final long maximumSize = 50 * 1024 * 1024;
-    private final AtomicLong totalSize = new AtomicLong(0);
-    private final ConcurrentHashMap<String, CacheData> cache = new ConcurrentHashMap<>();
-    private final Current current;
+    private final long maximumMemorySize = Long.getLong("asciidocfx.cache.memory", 50) * 1024 * 1024;
+    private final long maximumDiskSize = Long.getLong("asciidocfx.cache.disk", 256) * 1024 * 1024;
+
+    // Access ordered, the eldest entry is the least recently used one
+    private final LinkedHashMap<String, InMemoryDAta> memoryCache = new LinkedHashMap<>(16, 0.75f, true);
+    private long memorySize;
+    private Optional<SegmentStore> diskCache;
+
+    private long memoryHits;
+    private long diskHits;
+    private long misses;
+    private long demotions;
+
     @Autowired
     private ThreadService threadService;
 
-    private Logger logger = LoggerFactory.getLogger(BinaryCacheService.class);
+    @Value("${application.config.folder}")
+    private String configFolder;
 
-    @Autowired
-    public BinaryCacheServiceImpl(Current current) {
-        this.current = current;
-    }
+    private Logger logger = LoggerFactory.getLogger(BinaryCacheService.class);
 
     @Override
     public String putBinary(String key, byte[] bytes) {
@@ -59,96 +69,104 @@ public class BinaryCacheServiceImpl implements BinaryCacheService {
 
         synchronized (this) {
 
-            if (hasCacheFor(bytes)) {
-                saveInMemory(key, bytes);
+            removeFromMemory(key);
+            String finalKey = key;
+            diskCache().ifPresent(store -> store.remove(finalKey));
+
+            if (bytes.length > maximumMemorySize) {
+                saveInDisk(key, bytes, System.currentTimeMillis());
             } else {
-                saveInDisk(key, bytes);
+                saveInMemory(new InMemoryDAta(key, bytes));
             }
 
             return key;
         }
     }
 
-    private void enLargeCache() {
-        threadService.runTaskLater(() -> {
-            Collection<CacheData> values = cache.values();
-            logger.debug("Enlarge cache: {}", values.size());
-            values
-                    .stream()
-                    .filter(e -> e.inDisk())
-                    .sorted((o1, o2) -> {
-                        Long l1 = o1.lastModified();
-                        Long l2 = o2.lastModified();
-                        return l1.compareTo(l2);
-                    }).limit(5)
-                    .forEach(cacheData -> {
-                        logger.debug("Larged: {}", cacheData.key());
-                        saveInMemory(cacheData.key(), cacheData.readBytes());
-                    });
-        });
+    private void saveInMemory(InMemoryDAta data) {
+        memoryCache.put(data.key(), data);
+        memorySize += data.length();
+        demoteEldest();
     }
 
-    private void shrinkCache() {
-        threadService.runTaskLater(() -> {
-            Collection<CacheData> values = cache.values();
-            logger.debug("Shrinking cache, total entries: {}", values.size());
-            values
-                    .stream()
-                    .filter(e -> e.inMemory())
-                    .sorted((o1, o2) -> {
-                        Long l1 = o1.lastModified();
-                        Long l2 = o2.lastModified();
-                        return l2.compareTo(l1);
-                    }).limit(5)
-                    .forEach(cacheData -> {
-                        logger.debug("Shrunk cache entry: {}", cacheData.key());
-                        byte[] bytes = cacheData.readBytes();
-                        saveInDisk(cacheData.key(), bytes);
-                        totalSize.addAndGet(-bytes.length);
-                    });
-        });
-    }
-
-    private void saveInDisk(String key, byte[] bytes) {
-        threadService.runActionLater(() -> {
-            Path tempFile = IOHelper.createTempFile(current.currentPath().get().getParent(), ".png");
-
-//            System.out.println(tempFile.getParent());
-            IOHelper.writeToFile(tempFile, bytes, StandardOpenOption.CREATE);
-
-            Optional.ofNullable(cache.get(key))
-                    .ifPresent(CacheData::removeFromDisk);
-
-            cache.put(key, new InDiskData(key, tempFile));
-        });
+    private void removeFromMemory(String key) {
+        InMemoryDAta removed = memoryCache.remove(key);
+        if (Objects.nonNull(removed)) {
+            memorySize -= removed.length();
+        }
     }
 
-    private void saveInMemory(String key, byte[] bytes) {
-
-        Optional.ofNullable(cache.get(key))
-                .ifPresent(CacheData::removeFromDisk);
-
-        Optional.ofNullable(cache.get(key))
-                .filter(e -> e.inMemory())
-                .map(e -> e.length())
-                .ifPresent(aLong -> totalSize.addAndGet(-aLong));
-
-        cache.put(key, new InMemoryDAta(key, bytes));
-        totalSize.addAndGet(bytes.length);
+    /**
+     * Moves the least recently used entries to disk until the memory limit is met
+     */
+    private void demoteEldest() {
+        Iterator<InMemoryDAta> iterator = memoryCache.values().iterator();
+        while (memorySize > maximumMemorySize && iterator.hasNext()) {
+            InMemoryDAta eldest = iterator.next();
+            iterator.remove();
+            memorySize -= eldest.length();
+            demotions++;
+            saveInDisk(eldest.key(), eldest.readBytes(), eldest.lastModified());
+        }
     }
 
-    private boolean hasCacheFor(byte[] bytes) {
-        return maximumSize > (getTotalSize() + bytes.length);
+    private void saveInDisk(String key, byte[] bytes, long lastModified) {
+        diskCache().ifPresent(store -> {
+            // A promoted entry is still on disk unless it is replaced
+            if (store.contains(key, lastModified)) {
+                return;
+            }
+            try {
+                store.put(key, bytes, lastModified);
+            } catch (IOException | IllegalArgumentException e) {
+                logger.error("Problem occured while writing {} to binary cache", key, e);
+            }
+        });
     }
 
-    private long getTotalSize() {
-        return totalSize.get();
+    private Optional<SegmentStore> diskCache() {
+        if (Objects.isNull(diskCache)) {
+            Path directory = IOHelper.getPath(System.getProperty("user.home")).resolve(configFolder).resolve("binary-cache");
+            SegmentStore store = new SegmentStore(directory, maximumDiskSize);
+            try {
+                store.open();
+                diskCache = Optional.of(store);
+            } catch (IOException e) {
+                logger.warn("Binary cache is kept only in memory", e);
+                diskCache = Optional.empty();
+            }
+        }
+        return diskCache;
     }
 
     @Override
     public CacheData getCacheData(String key) {
         key = alignHttpKey(key);
-        return cache.get(key);
+        synchronized (this) {
+            InMemoryDAta memoryData = memoryCache.get(key);
+            if (Objects.nonNull(memoryData)) {
+                memoryHits++;
+                return memoryData;
+            }
+
+            String finalKey = key;
+            Optional<InDiskData> diskData = diskCache().flatMap(store -> store.view(finalKey));
+            if (diskData.isEmpty()) {
+                misses++;
+                return null;
+            }
+
+            diskHits++;
+            InDiskData data = diskData.get();
+            if (data.length() > maximumMemorySize) {
+                return data;
+            }
+            try (data) {
+                InMemoryDAta promoted = new InMemoryDAta(key, data.readBytes(), data.lastModified());
+                saveInMemory(promoted);
+                return promoted;
+            }
+        }
     }
 
     @Override
@@ -172,7 +190,37 @@ public class BinaryCacheServiceImpl implements BinaryCacheService {
     }
 
     @Override
-    public boolean hasCache(String key) {
-        return cache.containsKey(key);
+    public synchronized boolean hasCache(String key) {
+        String alignedKey = alignHttpKey(key);
+        return memoryCache.containsKey(alignedKey) || diskCache().map(store -> store.contains(alignedKey)).orElse(false);
+    }
+
+    @Override
+    public synchronized BinaryCacheStats getStats() {
+        int diskEntries = diskCache().map(SegmentStore::count).orElse(0);
+        long diskSize = diskCache().map(SegmentStore::size).orElse(0L);
+        long evictions = diskCache().map(SegmentStore::evictions).orElse(0L);
+        return new BinaryCacheStats(memoryHits, diskHits, misses, demotions, evictions,
+                memoryCache.size(), memorySize, diskEntries, diskSize);
+    }
+
+    /**
+     * Writes the entries in memory to disk so that they are available after restart
+     */
+    @PreDestroy
+    public synchronized void flush() {
+        if (Objects.isNull(diskCache) || diskCache.isEmpty()) {
+            return;
+        }
+        logger.debug("Closing binary cache: {}", getStats());
+        for (InMemoryDAta data : memoryCache.values()) {
+            saveInDisk(data.key(), data.readBytes(), data.lastModified());
+        }
+        try {
+            diskCache.get().close();
+        } catch (IOException e) {
+            logger.warn("Problem occured while closing binary cache", e);
+        }
+        diskCache = Optional.empty();
     }
 }
@@ -0,0 +1,386 @@
+package com.kodedu.service.cache.impl;
+
+import com.kodedu.helper.IOHelper;
+import com.kodedu.service.cache.HttpCacheService;
+import com.kodedu.service.cache.HttpCacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Remote resources are kept in memory and in files under the config folder, so that they are
+ * available offline and after restart.
+ * <p>
+ * A resource is served without a request for -Dasciidocfx.http.ttl seconds (default 60), then it is
+ * revalidated with a conditional request. When the request fails, the stale copy is served.
+ * Concurrent requests of the same resource wait for a single fetch. Requests time out after
+ * -Dasciidocfx.http.timeout seconds (default 10), -Dasciidocfx.http.offline starts in offline mode.
+ * A resource that couldn't be fetched without a copy to serve is not requested again for
+ * -Dasciidocfx.http.backoff seconds (default 5), at most for the time to live.
+ */
+@Component(HttpCacheService.label)
+public class HttpCacheServiceImpl implements HttpCacheService {
+
+    private static final long UNUSED_FILE_DAYS = 30;
+
+    private final long timeToLive;
+    private final long failureBackoff;
+    private final Duration timeout;
+    private final long maximumMemorySize = Long.getLong("asciidocfx.cache.http", 32) * 1024 * 1024;
+    private volatile boolean offline = Boolean.getBoolean("asciidocfx.http.offline");
+
+    private final HttpClient httpClient;
+
+    // Access ordered, the eldest entry is the least recently used one
+    private final LinkedHashMap<String, HttpResource> memoryCache = new LinkedHashMap<>(16, 0.75f, true);
+    private long memorySize;
+    private final Map<String, CompletableFuture<HttpResource>> inFlight = new ConcurrentHashMap<>();
+    // Failed fetches without a copy to serve, not retried until the backoff passes
+    private final Map<String, Failure> failures = new ConcurrentHashMap<>();
+    private Optional<Path> cacheDirectory;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong downloads = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    @Value("${application.config.folder}")
+    private String configFolder;
+
+    private final Logger logger = LoggerFactory.getLogger(HttpCacheService.class);
+
+    public HttpCacheServiceImpl() {
+        this(Duration.ofSeconds(Long.getLong("asciidocfx.http.ttl", 60)),
+                Duration.ofSeconds(Long.getLong("asciidocfx.http.backoff", 5)),
+                Duration.ofSeconds(Long.getLong("asciidocfx.http.timeout", 10)),
+                null);
+    }
+
+    /**
+     * @param cacheDirectory directory of the cache files, the config folder is used when it is null
+     */
+    HttpCacheServiceImpl(Duration timeToLive, Duration failureBackoff, Duration timeout, Path cacheDirectory) {
+        this.timeToLive = timeToLive.toMillis();
+        this.failureBackoff = Math.min(failureBackoff.toMillis(), this.timeToLive);
+        this.timeout = timeout;
+        this.httpClient = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.ALWAYS)
+                .connectTimeout(timeout)
+                .build();
+        if (Objects.nonNull(cacheDirectory)) {
+            this.cacheDirectory = Optional.of(cacheDirectory);
+        }
+    }
+
+    @Override
+    public byte[] getBytes(String uri) throws IOException {
+        return get(uri).bytes();
+    }
+
+    @Override
+    public String getString(String uri) throws IOException {
+        HttpResource resource = get(uri);
+        return new String(resource.bytes(), resource.charset());
+    }
+
+    @Override
+    public void setOffline(boolean offline) {
+        this.offline = offline;
+    }
+
+    @Override
+    public boolean isOffline() {
+        return offline;
+    }
+
+    @Override
+    public synchronized HttpCacheStats getStats() {
+        return new HttpCacheStats(hits.get(), revalidations.get(), downloads.get(), staleHits.get(), coalesced.get(),
+                memoryCache.size(), memorySize);
+    }
+
+    private HttpResource get(String uri) throws IOException {
+        HttpResource cached = lookup(uri);
+        if (Objects.nonNull(cached) && isFresh(cached)) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        if (Objects.nonNull(cached) && offline) {
+            staleHits.incrementAndGet();
+            return cached;
+        }
+
+        Failure failure = failures.get(uri);
+        if (Objects.nonNull(failure) && System.currentTimeMillis() - failure.failedAt() < failureBackoff) {
+            throw new IOException(failure.exception().getMessage(), failure.exception());
+        }
+
+        CompletableFuture<HttpResource> fetch = new CompletableFuture<>();
+        CompletableFuture<HttpResource> existing = inFlight.putIfAbsent(uri, fetch);
+        if (Objects.nonNull(existing)) {
+            coalesced.incrementAndGet();
+            return await(existing);
+        }
+        try {
+            HttpResource resource = fetch(uri, cached);
+            failures.remove(uri);
+            fetch.complete(resource);
+            return resource;
+        } catch (IOException e) {
+            failures.put(uri, new Failure(e, System.currentTimeMillis()));
+            fetch.completeExceptionally(e);
+            throw e;
+        } catch (RuntimeException e) {
+            fetch.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(uri, fetch);
+        }
+    }
+
+    private HttpResource fetch(String uri, HttpResource cached) throws IOException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(uri))
+                .timeout(timeout)
+                .GET();
+        if (Objects.nonNull(cached)) {
+            cached.etag().ifPresent(etag -> request.header("If-None-Match", etag));
+            cached.lastModified().ifPresent(lastModified -> request.header("If-Modified-Since", lastModified));
+        }
+
+        HttpResponse<byte[]> response;
+        try {
+            response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            return stale(uri, cached, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return stale(uri, cached, new InterruptedIOException("Interrupted while fetching " + uri));
+        }
+
+        int status = response.statusCode();
+        if (status == 304 && Objects.nonNull(cached)) {
+            revalidations.incrementAndGet();
+            HttpResource revalidated = cached.fetchedAt(System.currentTimeMillis());
+            store(revalidated);
+            return revalidated;
+        }
+        if (status >= 200 && status < 300) {
+            downloads.incrementAndGet();
+            HttpResource downloaded = new HttpResource(uri, response.body(),
+                    response.headers().firstValue("ETag"),
+                    response.headers().firstValue("Last-Modified"),
+                    charsetOf(response.headers().firstValue("Content-Type")),
+                    System.currentTimeMillis());
+            store(downloaded);
+            return downloaded;
+        }
+        IOException failure = new IOException(String.format("HTTP %d for %s", status, uri));
+        if (status >= 500) {
+            return stale(uri, cached, failure);
+        }
+        throw failure;
+    }
+
+    private HttpResource stale(String uri, HttpResource cached, IOException e) throws IOException {
+        if (Objects.isNull(cached)) {
+            throw e;
+        }
+        staleHits.incrementAndGet();
+        logger.warn("Serving the cached copy of {}, it couldn't be revalidated: {}", uri, e.toString());
+        // Not revalidated again until the time to live passes, the file keeps the last successful fetch
+        HttpResource retryLater = cached.fetchedAt(System.currentTimeMillis());
+        saveInMemory(retryLater);
+        return retryLater;
+    }
+
+    private HttpResource await(CompletableFuture<HttpResource> fetch) throws IOException {
+        try {
+            return fetch.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw e;
+        }
+    }
+
+    private boolean isFresh(HttpResource resource) {
+        return System.currentTimeMillis() - resource.fetchedAt() < timeToLive;
+    }
+
+    private Charset charsetOf(Optional<String> contentType) {
+        return contentType.stream()
+                .flatMap(type -> Stream.of(type.split(";")))
+                .map(String::strip)
+                .filter(parameter -> parameter.toLowerCase().startsWith("charset="))
+                .map(parameter -> parameter.substring("charset=".length()).replace("\"", ""))
+                .filter(Charset::isSupported)
+                .map(Charset::forName)
+                .findFirst()
+                .orElse(StandardCharsets.UTF_8);
+    }
+
+    private HttpResource lookup(String uri) {
+        synchronized (this) {
+            HttpResource resource = memoryCache.get(uri);
+            if (Objects.nonNull(resource)) {
+                return resource;
+            }
+        }
+        HttpResource resource = cacheDirectory().flatMap(dir -> readFile(dir.resolve(fileName(uri)), uri)).orElse(null);
+        if (Objects.nonNull(resource)) {
+            saveInMemory(resource);
+        }
+        return resource;
+    }
+
+    private void store(HttpResource resource) {
+        saveInMemory(resource);
+        cacheDirectory().ifPresent(dir -> writeFile(dir.resolve(fileName(resource.uri())), resource));
+    }
+
+    private synchronized void saveInMemory(HttpResource resource) {
+        HttpResource previous = memoryCache.remove(resource.uri());
+        if (Objects.nonNull(previous)) {
+            memorySize -= previous.bytes().length;
+        }
+        if (resource.bytes().length > maximumMemorySize) {
+            return;
+        }
+        memoryCache.put(resource.uri(), resource);
+        memorySize += resource.bytes().length;
+        Iterator<HttpResource> iterator = memoryCache.values().iterator();
+        while (memorySize > maximumMemorySize && iterator.hasNext()) {
+            memorySize -= iterator.next().bytes().length;
+            iterator.remove();
+        }
+    }
+
+    private synchronized Optional<Path> cacheDirectory() {
+        if (Objects.isNull(cacheDirectory)) {
+            Path directory = IOHelper.getPath(System.getProperty("user.home")).resolve(configFolder).resolve("http-cache");
+            try {
+                Files.createDirectories(directory);
+                deleteUnusedFiles(directory);
+                cacheDirectory = Optional.of(directory);
+            } catch (IOException e) {
+                logger.warn("HTTP cache is kept only in memory", e);
+                cacheDirectory = Optional.empty();
+            }
+        }
+        return cacheDirectory;
+    }
+
+    private void deleteUnusedFiles(Path directory) {
+        long threshold = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(UNUSED_FILE_DAYS);
+        try (Stream<Path> files = IOHelper.list(directory)) {
+            files.filter(file -> {
+                FileTime lastModified = IOHelper.getLastModifiedTime(file);
+                return Objects.nonNull(lastModified) && lastModified.toMillis() < threshold;
+            }).forEach(IOHelper::deleteIfExists);
+        }
+    }
+
+    /*
+     File layout: uri, etag, last modified, charset, fetch time, body length, body
+     */
+    private Optional<HttpResource> readFile(Path path, String uri) {
+        if (!Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+        try (DataInputStream input = new DataInputStream(Files.newInputStream(path))) {
+            if (!uri.equals(input.readUTF())) {
+                return Optional.empty();
+            }
+            Optional<String> etag = optional(input.readUTF());
+            Optional<String> lastModified = optional(input.readUTF());
+            Charset charset = Charset.forName(input.readUTF());
+            long fetchedAt = input.readLong();
+            byte[] bytes = input.readNBytes(input.readInt());
+            return Optional.of(new HttpResource(uri, bytes, etag, lastModified, charset, fetchedAt));
+        } catch (Exception e) {
+            logger.debug("Problem occured while reading HTTP cache of {}", uri, e);
+            return Optional.empty();
+        }
+    }
+
+    private void writeFile(Path path, HttpResource resource) {
+        Path tempFile = null;
+        try {
+            tempFile = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+            try (DataOutputStream output = new DataOutputStream(Files.newOutputStream(tempFile))) {
+                output.writeUTF(resource.uri());
+                output.writeUTF(resource.etag().orElse(""));
+                output.writeUTF(resource.lastModified().orElse(""));
+                output.writeUTF(resource.charset().name());
+                output.writeLong(resource.fetchedAt());
+                output.writeInt(resource.bytes().length);
+                output.write(resource.bytes());
+            }
+            Files.move(tempFile, path, REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (Exception e) {
+            logger.warn("Problem occured while writing HTTP cache of {}", resource.uri(), e);
+            if (Objects.nonNull(tempFile)) {
+                IOHelper.deleteIfExists(tempFile);
+            }
+        }
+    }
+
+    private Optional<String> optional(String value) {
+        return value.isEmpty() ? Optional.empty() : Optional.of(value);
+    }
+
+    private String fileName(String uri) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(messageDigest.digest(uri.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Failure(IOException exception, long failedAt) {
+    }
+
+    private record HttpResource(String uri, byte[] bytes, Optional<String> etag, Optional<String> lastModified,
+                                Charset charset, long fetchedAt) {
+
+        private HttpResource fetchedAt(long fetchedAt) {
+            return new HttpResource(uri, bytes, etag, lastModified, charset, fetchedAt);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.kodedu.service.cache.impl;
+
+import com.kodedu.helper.IOHelper;
+import com.kodedu.service.DirectoryService;
+import com.kodedu.service.ThreadService;
+import com.kodedu.service.cache.BinaryCacheService;
+import com.kodedu.service.cache.RenderCacheService;
+import com.kodedu.service.extension.ImageInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Keeps rendered images under the working directory, one file per digest.
+ * <p>
+ * Identical diagrams of different documents share the same file, and the least recently
+ * used files are evicted once the directory grows beyond the maximum size.
+ */
+@Component(RenderCacheService.label)
+public class RenderCacheServiceImpl implements RenderCacheService {
+
+    private static final String CACHE_DIRECTORY = ".asciidoctor/afx-render";
+
+    private final long maximumSize = 256 * 1024 * 1024;
+    private final long evictionInterval = 16 * 1024 * 1024;
+
+    private final Logger logger = LoggerFactory.getLogger(RenderCacheService.class);
+
+    private final DirectoryService directoryService;
+    private final BinaryCacheService binaryCacheService;
+    private final ThreadService threadService;
+
+    // image target -> digest of its last render
+    private final Map<String, String> renderedTargets = new ConcurrentHashMap<>();
+    private final Set<Path> checkedDirectories = ConcurrentHashMap.newKeySet();
+    private final AtomicLong writtenSinceEviction = new AtomicLong();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    public RenderCacheServiceImpl(DirectoryService directoryService, BinaryCacheService binaryCacheService, ThreadService threadService) {
+        this.directoryService = directoryService;
+        this.binaryCacheService = binaryCacheService;
+        this.threadService = threadService;
+    }
+
+    @Override
+    public String digest(String extension, Object... parts) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            messageDigest.update(extension.getBytes(StandardCharsets.UTF_8));
+            for (Object part : parts) {
+                messageDigest.update((byte) 0);
+                messageDigest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(messageDigest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public boolean isRendered(String digest, ImageInfo imageInfo) {
+        return digest.equals(renderedTargets.get(imageInfo.imageTarget())) && targetExists(imageInfo);
+    }
+
+    @Override
+    public boolean restore(String digest, ImageInfo imageInfo) {
+        String imageTarget = imageInfo.imageTarget();
+        if (isRendered(digest, imageInfo)) {
+            return true;
+        }
+
+        Optional<Path> cachedPath = cacheDirectory().map(dir -> dir.resolve(digest)).filter(Files::isRegularFile);
+        if (cachedPath.isEmpty()) {
+            return false;
+        }
+
+        try {
+            Path path = cachedPath.get();
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+            if (isCachedResource(imageTarget) || !isSameFile(path, Paths.get(imageInfo.imagePath()))) {
+                writeTarget(imageInfo, Files.readAllBytes(path));
+            }
+            renderedTargets.put(imageTarget, digest);
+            logger.debug("Restored {} from render cache", imageTarget);
+            return true;
+        } catch (Exception e) {
+            logger.warn("Problem occured while restoring {} from render cache", imageTarget, e);
+            return false;
+        }
+    }
+
+    @Override
+    public void store(String digest, ImageInfo imageInfo, byte[] bytes) {
+        writeTarget(imageInfo, bytes);
+        renderedTargets.put(imageInfo.imageTarget(), digest);
+        cacheDirectory().ifPresent(dir -> threadService.runTaskLater(() -> persist(dir, digest, bytes)));
+    }
+
+    @Override
+    public void store(String digest, ImageInfo imageInfo, BufferedImage image) {
+        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+            ImageIO.write(image, "png", outputStream);
+            store(digest, imageInfo, outputStream.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void write(String digest, ImageInfo imageInfo, byte[] bytes) {
+        writeTarget(imageInfo, bytes);
+        renderedTargets.put(imageInfo.imageTarget(), digest);
+    }
+
+    private void writeTarget(ImageInfo imageInfo, byte[] bytes) {
+        if (isCachedResource(imageInfo.imageTarget())) {
+            binaryCacheService.putBinary(imageInfo.imageTarget(), bytes);
+        } else {
+            Path imagePath = Paths.get(imageInfo.imagePath());
+            IOHelper.createDirectories(imagePath.getParent());
+            IOHelper.writeToFile(imagePath, bytes, CREATE, WRITE, TRUNCATE_EXISTING);
+        }
+    }
+
+    private boolean targetExists(ImageInfo imageInfo) {
+        if (isCachedResource(imageInfo.imageTarget())) {
+            return binaryCacheService.hasCache(imageInfo.imageTarget());
+        }
+        return Files.exists(Paths.get(imageInfo.imagePath()));
+    }
+
+    private boolean isCachedResource(String imageTarget) {
+        return imageTarget.contains("/afx/cache");
+    }
+
+    private boolean isSameFile(Path cachedPath, Path imagePath) throws IOException {
+        return Files.exists(imagePath) && Files.mismatch(cachedPath, imagePath) == -1;
+    }
+
+    private Optional<Path> cacheDirectory() {
+        return directoryService.getWorkingDirectory()
+                .filter(Files::isDirectory)
+                .map(workdir -> workdir.resolve(CACHE_DIRECTORY));
+    }
+
+    private void persist(Path dir, String digest, byte[] bytes) {
+        try {
+            Path path = dir.resolve(digest);
+            if (Files.exists(path)) {
+                Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+                return;
+            }
+            Files.createDirectories(dir);
+            Path tempFile = Files.createTempFile(dir, digest, ".tmp");
+            Files.write(tempFile, bytes);
+            Files.move(tempFile, path, REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (Exception e) {
+            logger.warn("Problem occured while writing render cache of {}", digest, e);
+            return;
+        }
+
+        boolean firstWrite = checkedDirectories.add(dir);
+        if ((firstWrite || writtenSinceEviction.addAndGet(bytes.length) > evictionInterval) && evicting.compareAndSet(false, true)) {
+            try {
+                writtenSinceEviction.set(0);
+                evict(dir);
+            } finally {
+                evicting.set(false);
+            }
+        }
+    }
+
+    private void evict(Path dir) {
+        List<CacheFile> cacheFiles;
+        try (Stream<Path> files = IOHelper.list(dir)) {
+            cacheFiles = files.filter(Files::isRegularFile)
+                    .map(this::cacheFile)
+                    .flatMap(Optional::stream)
+                    .sorted(Comparator.comparingLong(CacheFile::lastModified))
+                    .toList();
+        }
+
+        long totalSize = cacheFiles.stream().mapToLong(CacheFile::size).sum();
+        if (totalSize <= maximumSize) {
+            return;
+        }
+
+        long targetSize = maximumSize * 3 / 4;
+        int evicted = 0;
+        for (CacheFile cacheFile : cacheFiles) {
+            if (totalSize <= targetSize) {
+                break;
+            }
+            if (IOHelper.deleteIfExists(cacheFile.path()).isEmpty()) {
+                totalSize -= cacheFile.size();
+                evicted++;
+            }
+        }
+        logger.debug("Evicted {} files from render cache, remaining size: {}", evicted, totalSize);
+    }
+
+    private Optional<CacheFile> cacheFile(Path path) {
+        try {
+            return Optional.of(new CacheFile(path, Files.size(path), Files.getLastModifiedTime(path).toMillis()));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    private record CacheFile(Path path, long size, long lastModified) {
+    }
+}
@@ -0,0 +1,333 @@
+package com.kodedu.service.cache.impl;
+
+import com.kodedu.service.cache.InDiskData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Append-only file of cache entries with an in-memory index.
+ * <p>
+ * A record is [key length][key][last modified][data length][data]. The index is rebuilt by reading
+ * the record headers when the store is opened, a later record of the same key replaces the former.
+ * Once the file grows beyond the maximum size, the most recently used entries are copied to the file
+ * of the next generation. The former file is deleted once the views still reading from it are closed.
+ */
+public class SegmentStore {
+
+    private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES + Integer.BYTES;
+    private static final int MAXIMUM_KEY_LENGTH = 4096;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".dat";
+
+    private final Logger logger = LoggerFactory.getLogger(SegmentStore.class);
+
+    private final Path directory;
+    private final long maximumSize;
+
+    // Access ordered, the eldest entry is the least recently used one
+    private final LinkedHashMap<String, Segment> index = new LinkedHashMap<>(16, 0.75f, true);
+    // Segments replaced by a compaction, still read by views of their entries
+    private final List<SegmentFile> retiredSegments = new ArrayList<>();
+    private FileChannel lockChannel;
+    private SegmentFile segmentFile;
+    private FileChannel channel;
+    private Path path;
+    private long generation;
+    private long liveSize;
+    private long evictions;
+
+    public SegmentStore(Path directory, long maximumSize) {
+        this.directory = directory;
+        this.maximumSize = maximumSize;
+    }
+
+    public synchronized void open() throws IOException {
+        if (Objects.nonNull(channel)) {
+            return;
+        }
+        Files.createDirectories(directory);
+        lockChannel = FileChannel.open(directory.resolve("lock"), CREATE, WRITE);
+        if (Objects.isNull(tryLock(lockChannel))) {
+            lockChannel.close();
+            lockChannel = null;
+            throw new IOException("Binary cache is used by another instance: " + directory);
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = files.filter(p -> generationOf(p) >= 0)
+                    .sorted(Comparator.comparingLong(this::generationOf))
+                    .toList();
+            for (Path segment : segments) {
+                generation = Math.max(generation, generationOf(segment));
+            }
+            // Only the last generation is complete, the others were left by an interrupted cleanup
+            for (Path segment : segments) {
+                if (generationOf(segment) != generation) {
+                    Files.deleteIfExists(segment);
+                }
+            }
+        }
+        path = segmentPath(generation);
+        channel = FileChannel.open(path, CREATE, READ, WRITE);
+        segmentFile = new SegmentFile(path, channel);
+        long position = 0;
+        long fileSize = channel.size();
+        while (position < fileSize) {
+            try {
+                int keyLength = readFully(position, Integer.BYTES).getInt();
+                if (keyLength < 0 || keyLength > MAXIMUM_KEY_LENGTH) {
+                    break;
+                }
+                byte[] key = readFully(position + Integer.BYTES, keyLength).array();
+                ByteBuffer header = readFully(position + Integer.BYTES + key.length, Long.BYTES + Integer.BYTES);
+                long lastModified = header.getLong();
+                int length = header.getInt();
+                long offset = position + HEADER_SIZE + key.length;
+                if (length < 0 || offset + length > fileSize) {
+                    break;
+                }
+                putIndex(new String(key, StandardCharsets.UTF_8), new Segment(offset, length, lastModified));
+                position = offset + length;
+            } catch (EOFException | RuntimeException e) {
+                break;
+            }
+        }
+        if (position < fileSize) {
+            logger.warn("Truncating incomplete binary cache record at {}", position);
+            channel.truncate(position);
+        }
+        logger.debug("Opened binary cache with {} entries", index.size());
+    }
+
+    public synchronized void put(String key, byte[] bytes, long lastModified) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        // Longer keys are taken for a corrupt record when the index is rebuilt
+        if (keyBytes.length > MAXIMUM_KEY_LENGTH) {
+            throw new IllegalArgumentException("Binary cache key is longer than " + MAXIMUM_KEY_LENGTH + " bytes: " + key);
+        }
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + keyBytes.length + bytes.length);
+        record.putInt(keyBytes.length).put(keyBytes).putLong(lastModified).putInt(bytes.length).put(bytes).flip();
+        long position = channel.size();
+        while (record.hasRemaining()) {
+            channel.write(record, position + record.position());
+        }
+        putIndex(key, new Segment(position + HEADER_SIZE + keyBytes.length, bytes.length, lastModified));
+        if (channel.size() > maximumSize) {
+            compact();
+        }
+    }
+
+    public synchronized Optional<byte[]> read(String key) throws IOException {
+        Segment segment = index.get(key);
+        if (Objects.isNull(segment)) {
+            return Optional.empty();
+        }
+        return Optional.of(readFully(segment.offset(), segment.length()).array());
+    }
+
+    /**
+     * A view of the entry reading from the file instead of loading it into memory.
+     * The file is kept until the view is closed, even if it is replaced by a compaction meanwhile.
+     */
+    public synchronized Optional<InDiskData> view(String key) {
+        Segment segment = index.get(key);
+        if (Objects.isNull(segment)) {
+            return Optional.empty();
+        }
+        SegmentFile viewed = segmentFile;
+        viewed.readers++;
+        return Optional.of(new InDiskData(key, channel, segment.offset(), segment.length(), segment.lastModified(),
+                () -> release(viewed)));
+    }
+
+    public synchronized boolean contains(String key, long lastModified) {
+        Segment segment = index.get(key);
+        return Objects.nonNull(segment) && segment.lastModified() == lastModified;
+    }
+
+    public synchronized boolean contains(String key) {
+        return index.containsKey(key);
+    }
+
+    public synchronized void remove(String key) {
+        Segment segment = index.remove(key);
+        if (Objects.nonNull(segment)) {
+            liveSize -= segment.length();
+        }
+    }
+
+    public synchronized long size() {
+        return liveSize;
+    }
+
+    public synchronized int count() {
+        return index.size();
+    }
+
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    public synchronized void close() throws IOException {
+        if (Objects.nonNull(channel)) {
+            channel.force(false);
+            channel.close();
+            channel = null;
+            segmentFile = null;
+        }
+        for (SegmentFile retired : List.copyOf(retiredSegments)) {
+            delete(retired);
+        }
+        if (Objects.nonNull(lockChannel)) {
+            lockChannel.close();
+            lockChannel = null;
+        }
+    }
+
+    private void putIndex(String key, Segment segment) {
+        Segment previous = index.put(key, segment);
+        if (Objects.nonNull(previous)) {
+            liveSize -= previous.length();
+        }
+        liveSize += segment.length();
+    }
+
+    private void compact() throws IOException {
+        List<Map.Entry<String, Segment>> entries = new ArrayList<>(index.entrySet());
+        Collections.reverse(entries);
+
+        Path compactPath = segmentPath(generation + 1);
+        LinkedHashMap<String, Segment> compactIndex = new LinkedHashMap<>(16, 0.75f, true);
+        long targetSize = maximumSize * 3 / 4;
+        try (FileChannel target = FileChannel.open(compactPath, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            long position = 0;
+            for (Map.Entry<String, Segment> entry : entries) {
+                Segment segment = entry.getValue();
+                int keyLength = entry.getKey().getBytes(StandardCharsets.UTF_8).length;
+                long recordSize = HEADER_SIZE + keyLength + segment.length();
+                if (position + recordSize > targetSize) {
+                    break;
+                }
+                long recordStart = segment.offset() - HEADER_SIZE - keyLength;
+                long transferred = 0;
+                while (transferred < recordSize) {
+                    transferred += channel.transferTo(recordStart + transferred, recordSize - transferred, target);
+                }
+                compactIndex.put(entry.getKey(), new Segment(position + HEADER_SIZE + keyLength, segment.length(), segment.lastModified()));
+                position += recordSize;
+            }
+            target.force(false);
+        }
+        int evicted = index.size() - compactIndex.size();
+        evictions += evicted;
+        index.clear();
+        liveSize = 0;
+        // Most recently used entries were written first, put them back from the least recently used one
+        List<Map.Entry<String, Segment>> compactEntries = new ArrayList<>(compactIndex.entrySet());
+        Collections.reverse(compactEntries);
+        compactEntries.forEach(e -> putIndex(e.getKey(), e.getValue()));
+
+        SegmentFile retired = segmentFile;
+        generation++;
+        path = compactPath;
+        channel = FileChannel.open(path, READ, WRITE);
+        segmentFile = new SegmentFile(path, channel);
+        if (retired.readers == 0) {
+            delete(retired);
+        } else {
+            retiredSegments.add(retired);
+        }
+        logger.debug("Compacted binary cache, evicted {} entries, {} entries left", evicted, index.size());
+    }
+
+    private synchronized void release(SegmentFile viewed) {
+        viewed.readers--;
+        if (viewed.readers == 0 && retiredSegments.contains(viewed)) {
+            delete(viewed);
+        }
+    }
+
+    private void delete(SegmentFile retired) {
+        retiredSegments.remove(retired);
+        try {
+            retired.channel.close();
+            Files.deleteIfExists(retired.path);
+        } catch (IOException e) {
+            logger.warn("Problem occured while deleting {}", retired.path, e);
+        }
+    }
+
+    private FileLock tryLock(FileChannel lockChannel) throws IOException {
+        try {
+            return lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            return null;
+        }
+    }
+
+    private Path segmentPath(long generation) {
+        return directory.resolve(SEGMENT_PREFIX + generation + SEGMENT_SUFFIX);
+    }
+
+    private long generationOf(Path segment) {
+        String fileName = segment.getFileName().toString();
+        if (!fileName.startsWith(SEGMENT_PREFIX) || !fileName.endsWith(SEGMENT_SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private ByteBuffer readFully(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        return buffer.flip();
+    }
+
+    private record Segment(long offset, int length, long lastModified) {
+    }
+
+    /**
+     * A generation of the store with the count of its open views
+     */
+    private static class SegmentFile {
+        private final Path path;
+        private final FileChannel channel;
+        private int readers;
+
+        private SegmentFile(Path path, FileChannel channel) {
+            this.path = path;
+            this.channel = channel;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.kodedu.service.convert;
+
+import com.kodedu.config.EditorConfigBean;
+import com.kodedu.config.PdfConfigBean;
+import com.kodedu.config.PdfConverterType;
+import com.kodedu.controller.ApplicationController;
+import com.kodedu.service.ThreadService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps compiled XSLT stylesheets and XML schemas of the config directory.
+ * <p>
+ * The files imported or included while compiling are recorded, and an entry is
+ * recompiled when the config file or any of those files is modified.
+ */
+@Component
+public class XmlArtifactCache {
+
+    public static final String FO_PDF_XSL = "docbook-config/fo-pdf.xsl";
+    public static final String DOCBOOK_XSD = "docbook-config/xsd/docbook.xsd";
+
+    private final Logger logger = LoggerFactory.getLogger(XmlArtifactCache.class);
+
+    private final ApplicationController controller;
+    private final ThreadService threadService;
+    private final PdfConfigBean pdfConfigBean;
+    private final EditorConfigBean editorConfigBean;
+
+    private final Map<Path, CompiledArtifact<Templates>> templatesMap = new ConcurrentHashMap<>();
+    private final Map<Path, CompiledArtifact<Schema>> schemaMap = new ConcurrentHashMap<>();
+
+    public XmlArtifactCache(ApplicationController controller, ThreadService threadService,
+                            PdfConfigBean pdfConfigBean, EditorConfigBean editorConfigBean) {
+        this.controller = controller;
+        this.threadService = threadService;
+        this.pdfConfigBean = pdfConfigBean;
+        this.editorConfigBean = editorConfigBean;
+    }
+
+    @EventListener
+    public void handleContextRefreshEvent(ContextRefreshedEvent event) {
+        // Configurations are loaded after the context, wait for them before deciding what to compile
+        threadService.schedule(() -> {
+            Path configPath = controller.getConfigPath();
+            try {
+                if (PdfConverterType.FOP.equals(pdfConfigBean.getPdfConverterType())) {
+                    getTemplates(configPath.resolve(FO_PDF_XSL));
+                }
+                if (editorConfigBean.getValidateDocbook()) {
+                    getSchema(configPath.resolve(DOCBOOK_XSD));
+                }
+            } catch (Exception e) {
+                logger.warn("Problem occured while pre-compiling XML artifacts", e);
+            }
+        }, 10, TimeUnit.SECONDS);
+    }
+
+    public Templates getTemplates(Path xslPath) {
+        return templatesMap.compute(xslPath.toAbsolutePath(), (path, artifact) -> {
+            if (Objects.nonNull(artifact) && artifact.isUpToDate()) {
+                return artifact;
+            }
+            long start = System.nanoTime();
+            try {
+                Set<Path> imports = new HashSet<>();
+                TransformerFactory transformerFactory = TransformerFactory.newInstance();
+                // Returning null leaves the resolution to the processor, the resolver only records the files
+                transformerFactory.setURIResolver((href, base) -> {
+                    recordImport(imports, href, Objects.requireNonNullElse(base, path.toUri().toString()));
+                    return null;
+                });
+                Templates templates = transformerFactory.newTemplates(new StreamSource(path.toFile()));
+                logger.info("Compiled {} with {} imported files in {} ms", path.getFileName(), imports.size(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                return new CompiledArtifact<>(templates, lastModifiedTimes(path, imports));
+            } catch (Exception e) {
+                throw new IllegalStateException("Stylesheet could not be compiled: " + path, e);
+            }
+        }).artifact();
+    }
+
+    /**
+     * SAX entry point of the compiled stylesheet, for transforming a stream of events
+     */
+    public TransformerHandler newTransformerHandler(Path xslPath) throws TransformerConfigurationException {
+        SAXTransformerFactory transformerFactory = (SAXTransformerFactory) TransformerFactory.newInstance();
+        return transformerFactory.newTransformerHandler(getTemplates(xslPath));
+    }
+
+    public Schema getSchema(Path xsdPath) {
+        return schemaMap.compute(xsdPath.toAbsolutePath(), (path, artifact) -> {
+            if (Objects.nonNull(artifact) && artifact.isUpToDate()) {
+                return artifact;
+            }
+            long start = System.nanoTime();
+            try {
+                Set<Path> imports = new HashSet<>();
+                SchemaFactory schemaFactory = SchemaFactory.newInstance("http://www.w3.org/2001/XMLSchema");
+                // Returning null leaves the resolution to the factory, the resolver only records the files
+                schemaFactory.setResourceResolver((type, namespaceURI, publicId, systemId, baseURI) -> {
+                    if (Objects.nonNull(systemId)) {
+                        recordImport(imports, systemId, Objects.requireNonNullElse(baseURI, path.toUri().toString()));
+                    }
+                    return null;
+                });
+                Schema schema = schemaFactory.newSchema(new StreamSource(path.toFile()));
+                logger.info("Compiled {} with {} imported files in {} ms", path.getFileName(), imports.size(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                return new CompiledArtifact<>(schema, lastModifiedTimes(path, imports));
+            } catch (Exception e) {
+                throw new IllegalStateException("Schema could not be compiled: " + path, e);
+            }
+        }).artifact();
+    }
+
+    private void recordImport(Set<Path> imports, String href, String base) {
+        try {
+            URI uri = new URI(base).resolve(href);
+            if ("file".equalsIgnoreCase(uri.getScheme())) {
+                imports.add(Path.of(uri));
+            }
+        } catch (Exception e) {
+            logger.debug("Imported file {} of {} is not tracked for changes", href, base, e);
+        }
+    }
+
+    private static Map<Path, Long> lastModifiedTimes(Path path, Set<Path> imports) {
+        Map<Path, Long> lastModifiedTimes = new HashMap<>();
+        lastModifiedTimes.put(path, lastModified(path));
+        for (Path imported : imports) {
+            lastModifiedTimes.put(imported, lastModified(imported));
+        }
+        return lastModifiedTimes;
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @param lastModifiedTimes modification times of the compiled file and the files it imports, when compiled
+     */
+    private record CompiledArtifact<T>(T artifact, Map<Path, Long> lastModifiedTimes) {
+
+        private boolean isUpToDate() {
+            return lastModifiedTimes.entrySet().stream()
+                    .allMatch(entry -> lastModified(entry.getKey()) == entry.getValue());
+        }
+    }
+}
@@ -12,19 +12,30 @@ import com.kodedu.service.ThreadService;
 import com.kodedu.service.convert.DocumentConverter;
 import com.kodedu.service.extension.processor.ExtensionPreprocessor;
 import com.kodedu.service.ui.IndikatorService;
+import org.apache.commons.io.input.TeeInputStream;
 import org.asciidoctor.Attributes;
 import org.asciidoctor.Options;
+import org.asciidoctor.OptionsBuilder;
 import org.asciidoctor.SafeMode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.SAXParserFactory;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
 import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
 import static com.kodedu.helper.AsciidoctorHelper.convertSafe;
-import static com.kodedu.service.AsciidoctorFactory.getHtmlDoctor;
+import static com.kodedu.service.AsciidoctorFactory.getHtmlDoctorPool;
 
 /**
  * Created by usta on 19.07.2014.
@@ -32,6 +43,8 @@ import static com.kodedu.service.AsciidoctorFactory.getHtmlDoctor;
 @Component
 public class DocBookConverter implements DocbookTraversable, DocumentConverter<RenderResult> {
 
+    private static final int PIPE_SIZE = 64 * 1024;
+
     private Logger logger = LoggerFactory.getLogger(DocBookConverter.class);
 
     private final Current current;
@@ -74,22 +87,12 @@ public class DocBookConverter implements DocbookTraversable, DocumentConverter<R
         threadService.runTaskLater(() -> {
 
             try {
-                SafeMode safe = convertSafe(docbookConfigBean.getSafe());
-
-                Attributes attributes = docbookConfigBean.getAsciiDocAttributes(asciidoc);
-
-                Options options = Options.builder()
-                        .baseDir(workdir.toFile())
+                Options options = docbookOptions(asciidoc, workdir)
                         .toFile(docbookPath.toFile())
-                        .backend("docbook5")
-                        .safe(safe)
-                        .sourcemap(docbookConfigBean.getSourcemap())
-                        .headerFooter(docbookConfigBean.getHeader_footer())
-                        .attributes(attributes)
                         .build();
 
                 String content = ExtensionPreprocessor.correctExtensionBlocks(asciidoc);
-                getHtmlDoctor().convert(content, options);
+                getHtmlDoctorPool().apply(doctor -> doctor.convert(content, options));
                 String rendered = IOHelper.readFile(docbookPath);
                 docbookValidator.validateDocbook(rendered);
                 logger.debug("Docbook5 conversion ended");
@@ -104,5 +107,73 @@ public class DocBookConverter implements DocbookTraversable, DocumentConverter<R
         });
     }
 
+    /**
+     * Converts to Docbook and streams the output as SAX events to the content handler,
+     * the Docbook is neither written to disk nor kept as a String.
+     */
+    public void convert(String asciidoc, Path workdir, ContentHandler contentHandler) throws Exception {
+        convert(asciidoc, workdir, contentHandler, null);
+    }
+
+    /**
+     * Same as {@link #convert(String, Path, ContentHandler)}, the streamed Docbook is also copied to the given stream when it is not null.
+     * The stream gets a system ID in the working directory, so relative references resolve as they would from a Docbook file there.
+     */
+    public void convert(String asciidoc, Path workdir, ContentHandler contentHandler, OutputStream copy) throws Exception {
+        PipedInputStream inputStream = new PipedInputStream(PIPE_SIZE);
+        PipedOutputStream outputStream = new PipedOutputStream(inputStream);
+        AtomicReference<Exception> conversionError = new AtomicReference<>();
+
+        Thread conversionThread = Thread.startVirtualThread(() -> {
+            try (outputStream) {
+                Options options = docbookOptions(asciidoc, workdir)
+                        .toStream(outputStream)
+                        .build();
+                String content = ExtensionPreprocessor.correctExtensionBlocks(asciidoc);
+                getHtmlDoctorPool().apply(doctor -> doctor.convert(content, options));
+            } catch (Exception e) {
+                conversionError.set(e);
+            }
+        });
+
+        try (inputStream) {
+            SAXParserFactory parserFactory = SAXParserFactory.newInstance();
+            parserFactory.setNamespaceAware(true);
+            XMLReader xmlReader = parserFactory.newSAXParser().getXMLReader();
+            xmlReader.setContentHandler(contentHandler);
+            InputSource inputSource = new InputSource(Objects.isNull(copy) ? inputStream : new TeeInputStream(inputStream, copy));
+            inputSource.setSystemId(systemId(workdir));
+            xmlReader.parse(inputSource);
+        } catch (Exception e) {
+            // Closing the pipe stops the conversion, report its own error if it has failed first
+            conversionThread.join();
+            throw Objects.requireNonNullElse(conversionError.get(), e);
+        }
+
+        conversionThread.join();
+        if (Objects.nonNull(conversionError.get())) {
+            throw conversionError.get();
+        }
+    }
+
+    /**
+     * System ID of a Docbook document converted in the given working directory
+     */
+    public String systemId(Path workdir) {
+        return workdir.resolve("docbook.xml").toUri().toString();
+    }
+
+    private OptionsBuilder docbookOptions(String asciidoc, Path workdir) {
+        SafeMode safe = convertSafe(docbookConfigBean.getSafe());
+        Attributes attributes = docbookConfigBean.getAsciiDocAttributes(asciidoc);
+        return Options.builder()
+                .baseDir(workdir.toFile())
+                .backend("docbook5")
+                .safe(safe)
+                .sourcemap(docbookConfigBean.getSourcemap())
+                .headerFooter(docbookConfigBean.getHeader_footer())
+                .attributes(attributes);
+    }
+
 
 }
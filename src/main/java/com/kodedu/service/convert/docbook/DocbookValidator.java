@@ -4,6 +4,7 @@ import com.kodedu.config.EditorConfigBean;
 import com.kodedu.controller.ApplicationController;
 import com.kodedu.helper.IOHelper;
 import com.kodedu.other.Current;
+import com.kodedu.service.convert.XmlArtifactCache;
 import com.kodedu.service.ui.IndikatorService;
 import com.kodedu.service.ui.TabService;
 import javafx.application.Platform;
@@ -11,15 +12,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
-import javax.xml.validation.SchemaFactory;
 import javax.xml.validation.Validator;
-import java.io.ByteArrayInputStream;
-import java.nio.charset.Charset;
+import javax.xml.validation.ValidatorHandler;
+import java.io.StringReader;
 import java.nio.file.Path;
+import java.util.function.Consumer;
 
 /**
  * Created by usta on 21.06.2015.
@@ -32,35 +36,37 @@ public class DocbookValidator {
     private final Current current;
     private final IndikatorService indikatorService;
     private final EditorConfigBean editorConfigBean;
+    private final XmlArtifactCache xmlArtifactCache;
 
     private Logger logger = LoggerFactory.getLogger(DocbookValidator.class);
 
 
     @Autowired
-    public DocbookValidator(ApplicationController controller, TabService tabService, Current current, IndikatorService indikatorService, EditorConfigBean editorConfigBean) {
+    public DocbookValidator(ApplicationController controller, TabService tabService, Current current, IndikatorService indikatorService, EditorConfigBean editorConfigBean, XmlArtifactCache xmlArtifactCache) {
         this.controller = controller;
         this.tabService = tabService;
         this.current = current;
         this.indikatorService = indikatorService;
         this.editorConfigBean = editorConfigBean;
+        this.xmlArtifactCache = xmlArtifactCache;
     }
 
-    public boolean validateDocbook(String rendered) {
+    public boolean isValidationEnabled() {
+        return editorConfigBean.getValidateDocbook();
+    }
 
-        final boolean validateDocbook = editorConfigBean.getValidateDocbook();
+    public boolean validateDocbook(String rendered) {
 
-        if (!validateDocbook) {
+        if (!isValidationEnabled()) {
             return true;
         }
 
         try {
-            SchemaFactory schemaFactory = SchemaFactory.newInstance("http://www.w3.org/2001/XMLSchema");
-
-            Path xsdPath = controller.getConfigPath().resolve("docbook-config/xsd/docbook.xsd");
-            Schema sch = schemaFactory.newSchema(new StreamSource(xsdPath.toFile()));
+            Path xsdPath = controller.getConfigPath().resolve(XmlArtifactCache.DOCBOOK_XSD);
+            Schema sch = xmlArtifactCache.getSchema(xsdPath);
             Validator validator = sch.newValidator();
 
-            validator.validate(new StreamSource(new ByteArrayInputStream(rendered.getBytes(Charset.forName("UTF-8")))));
+            validator.validate(new StreamSource(new StringReader(rendered)));
 
             logger.debug("Docbook successfully validated");
 
@@ -68,20 +74,8 @@ public class DocbookValidator {
 
         } catch (Exception e) {
 
-            if (e instanceof SAXParseException) {
-                SAXParseException pe = (SAXParseException) e;
-                int columnNumber = pe.getColumnNumber();
-                int lineNumber = pe.getLineNumber();
-
-                Path currentDir = current.currentPath().map(Path::getParent).get();
-                Path xmlPath = IOHelper.createTempFile(currentDir, ".xml");
-                IOHelper.writeToFile(xmlPath, rendered);
-                Platform.runLater(() -> {
-                    tabService.addTab(xmlPath, () -> {
-                        current.currentEditor().call("addAnnotation", (lineNumber - 1), columnNumber, pe.getMessage(), "error");
-                    });
-                });
-                logger.error("Please fix Docbook validation error. LineNumber: {}, Column: {}", lineNumber, columnNumber, pe);
+            if (e instanceof SAXParseException pe) {
+                showValidationError(pe, rendered);
             } else {
                 logger.error("Problem occured while validating Docbook content", e);
             }
@@ -90,4 +84,55 @@ public class DocbookValidator {
             return false;
         }
     }
+
+    /**
+     * Validates the SAX events passing through to the next handler.
+     * Validation errors don't stop the stream, the first one is given to the error consumer.
+     */
+    public ContentHandler validatingHandler(ContentHandler next, Consumer<SAXParseException> errorConsumer) {
+
+        if (!isValidationEnabled()) {
+            return next;
+        }
+
+        Path xsdPath = controller.getConfigPath().resolve(XmlArtifactCache.DOCBOOK_XSD);
+        ValidatorHandler validatorHandler = xmlArtifactCache.getSchema(xsdPath).newValidatorHandler();
+        validatorHandler.setContentHandler(next);
+        validatorHandler.setErrorHandler(new ErrorHandler() {
+            private boolean reported;
+
+            @Override
+            public void warning(SAXParseException exception) {
+            }
+
+            @Override
+            public void error(SAXParseException exception) {
+                if (!reported) {
+                    reported = true;
+                    errorConsumer.accept(exception);
+                }
+            }
+
+            @Override
+            public void fatalError(SAXParseException exception) throws SAXException {
+                throw exception;
+            }
+        });
+        return validatorHandler;
+    }
+
+    public void showValidationError(SAXParseException pe, String rendered) {
+        int columnNumber = pe.getColumnNumber();
+        int lineNumber = pe.getLineNumber();
+
+        Path currentDir = current.currentPath().map(Path::getParent).get();
+        Path xmlPath = IOHelper.createTempFile(currentDir, ".xml");
+        IOHelper.writeToFile(xmlPath, rendered);
+        Platform.runLater(() -> {
+            tabService.addTab(xmlPath, () -> {
+                current.currentEditor().call("addAnnotation", (lineNumber - 1), columnNumber, pe.getMessage(), "error");
+            });
+        });
+        logger.error("Please fix Docbook validation error. LineNumber: {}, Column: {}", lineNumber, columnNumber, pe);
+    }
 }
@@ -32,7 +32,7 @@ import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import static com.kodedu.service.AsciidoctorFactory.getNonHtmlDoctor;
+import static com.kodedu.service.AsciidoctorFactory.getNonHtmlDoctorPool;
 
 /**
  * Created by usta on 30.08.2014.
@@ -92,7 +92,7 @@ public class EpubConverter implements DocumentConverter<RenderResult> {
 
                 String content = ExtensionPreprocessor.correctExtensionBlocks(asciidoc);
 
-                getNonHtmlDoctor().convert(content, options);
+                getNonHtmlDoctorPool().apply(doctor -> doctor.convert(content, options));
 
                 indikatorService.stopProgressBar();
                 logger.debug("Epub conversion ended");
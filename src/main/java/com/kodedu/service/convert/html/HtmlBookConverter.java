@@ -24,7 +24,7 @@ import java.nio.file.Path;
 import java.util.function.Consumer;
 
 import static com.kodedu.helper.AsciidoctorHelper.convertSafe;
-import static com.kodedu.service.AsciidoctorFactory.getHtmlDoctor;
+import static com.kodedu.service.AsciidoctorFactory.getHtmlDoctorPool;
 
 /**
  * Created by usta on 30.08.2014.
@@ -84,7 +84,7 @@ public class HtmlBookConverter implements Traversable, DocumentConverter<RenderR
 
             String content = ExtensionPreprocessor.correctExtensionBlocks(asciidoc);
 
-            getHtmlDoctor().convert(content, options);
+            getHtmlDoctorPool().apply(doctor -> doctor.convert(content, options));
 
             controller.addRemoveRecentList(htmlBookPath);
 
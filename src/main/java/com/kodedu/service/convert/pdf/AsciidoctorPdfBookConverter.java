@@ -23,7 +23,7 @@ import java.nio.file.Path;
 import java.util.function.Consumer;
 
 import static com.kodedu.helper.AsciidoctorHelper.convertSafe;
-import static com.kodedu.service.AsciidoctorFactory.getNonHtmlDoctor;
+import static com.kodedu.service.AsciidoctorFactory.getNonHtmlDoctorPool;
 
 /**
  * Created by usta on 09.04.2015.
@@ -83,7 +83,7 @@ public class AsciidoctorPdfBookConverter implements DocumentConverter<RenderResu
 						.attributes(attributes)
 						.build();
 				String content = ExtensionPreprocessor.correctExtensionBlocks(asciidoc);
-				getNonHtmlDoctor().convert(content, options);
+				getNonHtmlDoctorPool().apply(doctor -> doctor.convert(content, options));
 				asciiDocController.addRemoveRecentList(pdfPath);
 				onSuccessfulConversation(nextStep, destFile);
 			} catch (Exception e) {
@@ -1,9 +1,5 @@
 package com.kodedu.service.convert.pdf;
 
-import static java.nio.file.StandardOpenOption.CREATE;
-import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
-import static java.nio.file.StandardOpenOption.WRITE;
-
 import com.kodedu.controller.ApplicationController;
 import com.kodedu.helper.IOHelper;
 import com.kodedu.other.Current;
@@ -13,26 +9,27 @@ import com.kodedu.service.DirectoryService;
 import com.kodedu.service.PathResolverService;
 import com.kodedu.service.ThreadService;
 import com.kodedu.service.convert.DocumentConverter;
+import com.kodedu.service.convert.XmlArtifactCache;
 import com.kodedu.service.convert.docbook.DocBookConverter;
+import com.kodedu.service.convert.docbook.DocbookValidator;
 import com.kodedu.service.ui.IndikatorService;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FileOutputStream;
 import java.io.OutputStream;
-import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
-import javax.xml.transform.Result;
-import javax.xml.transform.Source;
 import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.sax.SAXResult;
-import javax.xml.transform.stream.StreamSource;
+import javax.xml.transform.sax.TransformerHandler;
 
 import org.apache.fop.apps.Fop;
 import org.apache.fop.apps.FopFactory;
@@ -40,6 +37,8 @@ import org.apache.fop.apps.FormattingResults;
 import org.apache.fop.apps.MimeConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXParseException;
 
 /**
  * Created by usta on 09.04.2015.
@@ -51,50 +50,54 @@ public class FopPdfBookConverter implements DocumentConverter<RenderResult> {
 
     private final ApplicationController asciiDocController;
     private final DocBookConverter docBookConverter;
+    private final DocbookValidator docbookValidator;
     private final IndikatorService indikatorService;
     private final ThreadService threadService;
     private final DirectoryService directoryService;
     private final Current current;
     private final PathResolverService pathResolverService;
+    private final XmlArtifactCache xmlArtifactCache;
     private FopFactory fopFactory;
 
     @Autowired
     public FopPdfBookConverter(final ApplicationController asciiDocController, final DocBookConverter docBookConverter,
-                            final IndikatorService indikatorService,
-                            final ThreadService threadService, final DirectoryService directoryService, final Current current, PathResolverService pathResolverService) {
+                            final DocbookValidator docbookValidator, final IndikatorService indikatorService,
+                            final ThreadService threadService, final DirectoryService directoryService, final Current current, PathResolverService pathResolverService,
+                            final XmlArtifactCache xmlArtifactCache) {
         this.asciiDocController = asciiDocController;
         this.docBookConverter = docBookConverter;
+        this.docbookValidator = docbookValidator;
         this.indikatorService = indikatorService;
         this.threadService = threadService;
         this.directoryService = directoryService;
         this.current = current;
         this.pathResolverService = pathResolverService;
+        this.xmlArtifactCache = xmlArtifactCache;
     }
 
 
     @Override
     public void convert(boolean askPath, Consumer<RenderResult>... nextStep) {
 
-        final Path currentTabPath = current.currentPath().get();
-        final Path currentTabPathDir = currentTabPath.getParent();
         final Path configPath = asciiDocController.getConfigPath();
 
         threadService.runActionLater(() -> {
 
             final Path pdfPath = directoryService.getSaveOutputPath(ExtensionFilters.PDF, askPath);
+            final Path workdir = current.currentTab().getParentOrWorkdir();
+            final String asciidoc = current.currentEditorValue();
 
-            docBookConverter.convert(false, docbook -> {
+            indikatorService.startProgressBar();
 
-                indikatorService.startProgressBar();
-                logger.debug("PDF conversion started");
+            threadService.runTaskLater(() -> {
 
-                final Path docbookTempfile = IOHelper.createTempFile(currentTabPathDir, ".xml");
-                IOHelper.writeToFile(docbookTempfile, docbook.getContent(), CREATE, WRITE, TRUNCATE_EXISTING);
+                logger.debug("PDF conversion started");
 
                 try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(pdfPath.toFile()));) {
                     // Setup XSLT
-                    TransformerFactory factory = TransformerFactory.newInstance();
-                    Transformer transformer = factory.newTransformer(new StreamSource(configPath.resolve("docbook-config/fo-pdf.xsl").toFile()));
+                    TransformerHandler transformerHandler = xmlArtifactCache.newTransformerHandler(configPath.resolve(XmlArtifactCache.FO_PDF_XSL));
+                    transformerHandler.setSystemId(docBookConverter.systemId(workdir));
+                    Transformer transformer = transformerHandler.getTransformer();
                     transformer.setParameter("highlight.xslthl.config", configPath.resolve("docbook-config/xslthl-config.xml").toUri().toASCIIString());
                     transformer.setParameter("admon.graphics.path", configPath.resolve("docbook/images/").toUri().toASCIIString());
                     transformer.setParameter("callout.graphics.path", configPath.resolve("docbook/images/callouts/").toUri().toASCIIString());
@@ -105,22 +108,27 @@ public class FopPdfBookConverter implements DocumentConverter<RenderResult> {
 
                     Fop fop = fopFactory.newFop(MimeConstants.MIME_PDF, outputStream);
 
-                    // Setup input for XSLT transformation
-                    Source src = new StreamSource(docbookTempfile.toFile());
-
                     // Resulting SAX events (the generated FO) must be piped through to FOP
-                    Result res = new SAXResult(fop.getDefaultHandler());
+                    transformerHandler.setResult(new SAXResult(fop.getDefaultHandler()));
 
-                    // Step 6: Start XSLT transformation and FOP processing
-                    transformer.transform(src, res);
+                    // Docbook events are validated on the way to the XSLT transformation
+                    AtomicReference<SAXParseException> validationError = new AtomicReference<>();
+                    ContentHandler contentHandler = docbookValidator.validatingHandler(transformerHandler, validationError::set);
 
-                    Files.deleteIfExists(docbookTempfile);
+                    // Validation errors are shown on the Docbook content, so it is kept while validating
+                    ByteArrayOutputStream docbookCopy = docbookValidator.isValidationEnabled() ? new ByteArrayOutputStream() : null;
+                    docBookConverter.convert(asciidoc, workdir, contentHandler, docbookCopy);
 
                     // Result processing
                     FormattingResults foResults = fop.getResults();
 
                     logger.info("Generated {} pages in total.", foResults.getPageCount());
                     IOHelper.close(outputStream);
+
+                    if (Objects.nonNull(validationError.get()) && Objects.nonNull(docbookCopy)) {
+                        docbookValidator.showValidationError(validationError.get(), docbookCopy.toString(StandardCharsets.UTF_8));
+                    }
+
                     onSuccessfulConversation(nextStep, pdfPath.toFile());
 
                 } catch (Exception e) {
@@ -1,17 +1,19 @@
 package com.kodedu.service.extension.chart.impl;
 
+import com.kodedu.config.ExtensionConfigBean;
 import com.kodedu.controller.ApplicationController;
 import com.kodedu.other.Current;
 import com.kodedu.service.ThreadService;
+import com.kodedu.service.cache.RenderCacheService;
 import com.kodedu.service.extension.ImageInfo;
 import com.kodedu.service.extension.chart.ChartBuilderService;
 
 import javafx.scene.chart.*;
+import org.springframework.beans.factory.annotation.Autowired;
 
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.Map;
-import java.util.Objects;
+import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -23,6 +25,10 @@ public abstract class ChartBuilderServiceImpl implements ChartBuilderService {
     private final Current current;
     private final ApplicationController controller;
     protected Path currentRoot;
+    @Autowired
+    protected RenderCacheService renderCacheService;
+    @Autowired
+    private ExtensionConfigBean extensionConfigBean;
 
     public ChartBuilderServiceImpl(ThreadService threadService, Current current, ApplicationController controller) {
         this.threadService = threadService;
@@ -37,21 +43,19 @@ public abstract class ChartBuilderServiceImpl implements ChartBuilderService {
             return false;
         }
 
-        Integer cacheHit = current.getCache().get(imageInfo.imageTarget());
-        int hashCode = (imageInfo.imageTarget() + imageInfo.imagePath() + imageInfo.imagesDir() + chartContent).hashCode() + optMap.hashCode();
-
-        if (Objects.nonNull(cacheHit))
-            if (hashCode == cacheHit) {
-                return false;
-            }
-
-        current.getCache().put(imageInfo.imageTarget(), hashCode);
+        if (renderCacheService.restore(renderDigest(chartContent, optMap), imageInfo)) {
+            return false;
+        }
 
         currentRoot = current.currentTab().getParentOrWorkdir();
 
         return true;
     }
 
+    protected String renderDigest(String chartContent, Map<String, String> optMap) {
+        return renderCacheService.digest(getClass().getSimpleName(), chartContent, new TreeMap<>(optMap), extensionConfigBean.getDefaultImageScale());
+    }
+
     protected XYChart<String, Number> createLineChart() {
         final CategoryAxis xAxis = new CategoryAxis();
         final NumberAxis yAxis = new NumberAxis();
@@ -2,7 +2,6 @@ package com.kodedu.service.extension.chart.impl;
 
 import com.kodedu.config.ExtensionConfigBean;
 import com.kodedu.controller.ApplicationController;
-import com.kodedu.helper.IOHelper;
 import com.kodedu.other.Current;
 import com.kodedu.service.ThreadService;
 import com.kodedu.service.cache.BinaryCacheService;
@@ -22,8 +21,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.awt.image.BufferedImage;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 
@@ -63,7 +60,6 @@ public class PieChartBuilderServiceImpl extends ChartBuilderServiceImpl {
         }
 
         String imageTargetStr = imageInfo.imageTarget();
-        boolean cachedResource = imageTargetStr.contains("/afx/cache");
 
         String[] split = chartContent.split("\\r?\\n");
         List<String> lines = Arrays.asList(split);
@@ -146,12 +142,7 @@ public class PieChartBuilderServiceImpl extends ChartBuilderServiceImpl {
             controller.getRootAnchor().getChildren().remove(pieChart);
             BufferedImage bufferedImage = SwingFXUtils.fromFXImage(writableImage, null);
 
-            if (!cachedResource) {
-                Path imagePath = Paths.get(imageInfo.imagePath());
-                IOHelper.imageWrite(bufferedImage, "png", imagePath.toFile());
-            } else {
-                binaryCacheService.putBinary(imageTargetStr, bufferedImage);
-            }
+            renderCacheService.store(renderDigest(chartContent, optMap), imageInfo, bufferedImage);
             logger.debug("Chart extension is ended for {}", imageTargetStr);
             completableFuture.complete(null);
 
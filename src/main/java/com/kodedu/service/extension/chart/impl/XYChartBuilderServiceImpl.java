@@ -2,7 +2,6 @@ package com.kodedu.service.extension.chart.impl;
 
 import com.kodedu.config.ExtensionConfigBean;
 import com.kodedu.controller.ApplicationController;
-import com.kodedu.helper.IOHelper;
 import com.kodedu.other.Current;
 import com.kodedu.service.ThreadService;
 import com.kodedu.service.cache.BinaryCacheService;
@@ -22,8 +21,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.awt.image.BufferedImage;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 
@@ -60,7 +57,6 @@ public abstract class XYChartBuilderServiceImpl extends ChartBuilderServiceImpl
         }
 
         String imageTargetStr = imageInfo.imageTarget();
-        boolean cachedResource = imageTargetStr.contains("/afx/cache");
 
         logger.debug("Chart extension is started for {}", imageTargetStr);
 
@@ -226,12 +222,7 @@ public abstract class XYChartBuilderServiceImpl extends ChartBuilderServiceImpl
         controller.getRootAnchor().getChildren().remove(xyChart);
         BufferedImage bufferedImage = SwingFXUtils.fromFXImage(writableImage, null);
 
-        if (!cachedResource) {
-            Path imagePath = Paths.get(imageInfo.imagePath());
-            IOHelper.imageWrite(bufferedImage, "png", imagePath.toFile());
-        } else {
-            binaryCacheService.putBinary(imageTargetStr, bufferedImage);
-        }
+        renderCacheService.store(renderDigest(chartContent, optMap), imageInfo, bufferedImage);
         logger.debug("Chart extension is ended for {}", imageTargetStr);
         completableFuture.complete(null);
 
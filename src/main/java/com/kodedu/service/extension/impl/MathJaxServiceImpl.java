@@ -2,11 +2,10 @@ package com.kodedu.service.extension.impl;
 
 import com.kodedu.config.ExtensionConfigBean;
 import com.kodedu.controller.ApplicationController;
-import com.kodedu.helper.IOHelper;
 import com.kodedu.other.Current;
 import com.kodedu.other.TrimWhite;
 import com.kodedu.service.ThreadService;
-import com.kodedu.service.cache.BinaryCacheService;
+import com.kodedu.service.cache.RenderCacheService;
 import com.kodedu.service.extension.ImageInfo;
 import com.kodedu.service.extension.MathJaxService;
 
@@ -24,8 +23,6 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.awt.image.BufferedImage;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 
@@ -43,7 +40,7 @@ public class MathJaxServiceImpl implements MathJaxService {
     @Autowired
     private ThreadService threadService;
     @Autowired
-    private BinaryCacheService binaryCacheService;
+    private RenderCacheService renderCacheService;
 
     private WebView webView;
     private boolean initialized;
@@ -94,6 +91,11 @@ public class MathJaxServiceImpl implements MathJaxService {
     @Override
     public void processFormula(String formula, ImageInfo imageInfo, CompletableFuture completableFuture) {
 
+        if (renderCacheService.restore(formulaDigest(formula), imageInfo)) {
+            completeSnapShot(completableFuture);
+            return;
+        }
+
         threadService.runActionLater(() -> {
 
             if (initialized) {
@@ -143,32 +145,21 @@ public class MathJaxServiceImpl implements MathJaxService {
                 return;
             }
 
-            Integer cacheHit = current.getCache().get(imageTargetStr);
-
-            String imagePathStr = imageInfo.imagePath();
-            int hashCode = (imageTargetStr + imagePathStr + imageInfo.imagesDir() + formula).hashCode();
+            String digest = formulaDigest(formula);
 
-            if (Objects.isNull(cacheHit) || hashCode != cacheHit) {
+            if (!renderCacheService.restore(digest, imageInfo)) {
 
                 WritableImage writableImage = getWebView().snapshot(new SnapshotParameters(), null);
                 BufferedImage bufferedImage = SwingFXUtils.fromFXImage(writableImage, null);
 
-                Path path = current.currentTab().getParentOrWorkdir();
-
                 threadService.runTaskLater(() -> {
                     try {
                         TrimWhite trimWhite = new TrimWhite();
                         BufferedImage trimmed = trimWhite.trim(bufferedImage);
-                        if (!cachedResource) {
-                            Path imagePath = Paths.get(imagePathStr);
-                            IOHelper.imageWrite(trimmed, "png", imagePath.toFile());
-                        } else {
-                            binaryCacheService.putBinary(imageTargetStr, trimmed);
-                        }
+                        renderCacheService.store(digest, imageInfo, trimmed);
 
                         completeSnapShot(completableFuture);
 
-                        current.getCache().put(imageTargetStr, hashCode);
                         logger.debug("MathJax extension is ended for {}", imageTargetStr);
 
                     } catch (Exception e) {
@@ -189,6 +180,10 @@ public class MathJaxServiceImpl implements MathJaxService {
 
     }
 
+    private String formulaDigest(String formula) {
+        return renderCacheService.digest("mathjax", formula, extensionConfigBean.getDefaultImageZoom());
+    }
+
     private void completeSnapShot(CompletableFuture completableFuture, Exception e) {
         if(Objects.nonNull(completableFuture)){
             completableFuture.completeExceptionally(e);
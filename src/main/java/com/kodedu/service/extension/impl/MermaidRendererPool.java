@@ -0,0 +1,266 @@
+package com.kodedu.service.extension.impl;
+
+import com.kodedu.controller.ApplicationController;
+import com.kodedu.service.ThreadService;
+import jakarta.annotation.PreDestroy;
+import javafx.embed.swing.SwingFXUtils;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.image.WritableImage;
+import javafx.scene.web.WebView;
+import netscape.javascript.JSObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Offscreen WebViews with the mermaid page loaded once and reused for every diagram.
+ * <p>
+ * Starts with a single renderer and adds renderers up to maxSize while jobs are waiting.
+ * Renderers and the job queue are only touched on the FX thread.
+ * <p>
+ * Started with -Dasciidocfx.mermaid.benchmark=20 like a diagram count, the pool is compared with a new WebView
+ * per diagram once the application is up, and diagrams per second of both are logged.
+ */
+@Component
+public class MermaidRendererPool {
+
+    private static final long RENDER_TIMEOUT_SECONDS = 15;
+    private static final long QUEUE_TIMEOUT_SECONDS = 120;
+    private static final String BENCHMARK_DIAGRAM = """
+            flowchart LR
+                A[Editor] -->|change| B(Preview)
+                B --> C{Diagram}
+                C -->|cached| D[Image]
+                C -->|changed| E[Render]
+                E --> D
+            """;
+
+    private final Logger logger = LoggerFactory.getLogger(MermaidRendererPool.class);
+
+    private final ApplicationController controller;
+    private final ThreadService threadService;
+
+    @Value("${application.mermaid.url}")
+    private String mermaidUrl;
+
+    private final int maxSize = Math.max(1, Integer.getInteger("asciidocfx.pool.mermaid", 2));
+
+    private final Deque<RenderJob> jobs = new ArrayDeque<>();
+    private final List<MermaidRenderer> renderers = new ArrayList<>();
+
+    private final AtomicLong renders = new AtomicLong();
+    private final AtomicLong renderNanos = new AtomicLong();
+
+    public MermaidRendererPool(ApplicationController controller, ThreadService threadService) {
+        this.controller = controller;
+        this.threadService = threadService;
+    }
+
+    public CompletableFuture<MermaidImage> render(String mermaidContent) {
+        RenderJob job = new RenderJob(mermaidContent, new CompletableFuture<>());
+        threadService.runActionLater(() -> {
+            jobs.offer(job);
+            dispatch();
+        });
+        return job.future().orTimeout(QUEUE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @EventListener
+    public void handleContextRefreshEvent(ContextRefreshedEvent event) {
+        int count = Integer.getInteger("asciidocfx.mermaid.benchmark", 0);
+        if (count > 0) {
+            // The mermaid page is served once the application is up
+            threadService.schedule(() -> benchmark(BENCHMARK_DIAGRAM, count), 10, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Renders the same diagram count times with a new WebView per diagram as before, then with the pool,
+     * and reports diagrams per second of both.
+     */
+    public CompletableFuture<MermaidBenchmark> benchmark(String mermaidContent, int count) {
+        long newViewStart = System.nanoTime();
+        CompletableFuture<?> newViewRenders = CompletableFuture.completedFuture(null);
+        for (int i = 0; i < count; i++) {
+            newViewRenders = newViewRenders.thenCompose(r -> renderInNewView(mermaidContent));
+        }
+        return newViewRenders.thenCompose(r -> {
+            double newViewRate = perSecond(count, System.nanoTime() - newViewStart);
+            long pooledStart = System.nanoTime();
+            CompletableFuture<?>[] pooledRenders = IntStream.range(0, count)
+                    .mapToObj(i -> render(mermaidContent))
+                    .toArray(CompletableFuture[]::new);
+            return CompletableFuture.allOf(pooledRenders)
+                    .thenApply(v -> new MermaidBenchmark(count, perSecond(count, System.nanoTime() - pooledStart), newViewRate));
+        }).whenComplete((benchmark, throwable) -> logger.info("Mermaid benchmark: {}", benchmark, throwable));
+    }
+
+    public PoolStats getStats() {
+        long count = renders.get();
+        return new PoolStats(renderers.size(), maxSize, count,
+                count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(renderNanos.get() / count));
+    }
+
+    @PreDestroy
+    public void logStats() {
+        logger.info("Shutting down mermaid pool: {}", getStats());
+    }
+
+    private CompletableFuture<MermaidImage> renderInNewView(String mermaidContent) {
+        RenderJob job = new RenderJob(mermaidContent, new CompletableFuture<>());
+        threadService.runActionLater(() -> new MermaidRenderer(job));
+        return job.future();
+    }
+
+    private double perSecond(int count, long nanos) {
+        return count / Math.max(1e-9, nanos / 1e9);
+    }
+
+    private void dispatch() {
+        for (MermaidRenderer renderer : renderers) {
+            if (renderer.isIdle()) {
+                RenderJob job = nextJob();
+                if (Objects.isNull(job)) {
+                    return;
+                }
+                renderer.render(job);
+            }
+        }
+        if (!jobs.isEmpty() && renderers.stream().noneMatch(MermaidRenderer::isLoading) && renderers.size() < maxSize) {
+            renderers.add(new MermaidRenderer(null));
+        }
+    }
+
+    private RenderJob nextJob() {
+        RenderJob job;
+        do {
+            job = jobs.poll();
+        } while (Objects.nonNull(job) && job.future().isDone());
+        return job;
+    }
+
+    private class MermaidRenderer {
+
+        private final WebView webView = new WebView();
+        // Renders only this job and is disposed afterwards, when not null
+        private final RenderJob singleJob;
+        private boolean ready;
+        private RenderJob job;
+        private long jobStart;
+
+        private MermaidRenderer(RenderJob singleJob) {
+            this.singleJob = singleJob;
+            webView.setLayoutX(-42000);
+            webView.setLayoutY(-42000);
+            webView.setMinSize(0, 0);
+            webView.getEngine().setOnAlert(event -> onAlert(event.getData()));
+            controller.getRootAnchor().getChildren().add(webView);
+            load();
+        }
+
+        private void load() {
+            ready = false;
+            webView.getEngine().load(String.format(mermaidUrl, controller.getPort()));
+        }
+
+        private boolean isLoading() {
+            return !ready;
+        }
+
+        private boolean isIdle() {
+            return ready && Objects.isNull(job);
+        }
+
+        private void render(RenderJob job) {
+            this.job = job;
+            this.jobStart = System.nanoTime();
+            webView.setPrefSize(3000, 3000);
+            window().call("renderMermaid", job.content());
+            threadService.schedule(() -> threadService.runActionLater(() -> {
+                if (this.job == job) {
+                    finish(null, new TimeoutException("Mermaid diagram was not rendered in " + RENDER_TIMEOUT_SECONDS + " seconds"));
+                    // The page may be left in a broken state
+                    load();
+                }
+            }), RENDER_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+
+        private void onAlert(String data) {
+            if ("READY".equals(data)) {
+                window().setMember("webview", webView);
+                ready = true;
+                if (Objects.nonNull(singleJob)) {
+                    // A single-use renderer reloaded after a timeout has nothing left to render
+                    if (!singleJob.future().isDone()) {
+                        render(singleJob);
+                    }
+                } else {
+                    dispatch();
+                }
+            } else if ("RENDERED".equals(data)) {
+                if (Objects.isNull(job)) {
+                    return;
+                }
+                WritableImage writableImage = webView.snapshot(new SnapshotParameters(), null);
+                BufferedImage bufferedImage = SwingFXUtils.fromFXImage(writableImage, null);
+                String svg = (String) webView.getEngine().executeScript("resetMermaid()");
+                finish(new MermaidImage(svg, bufferedImage), null);
+            } else if (Objects.nonNull(data) && data.startsWith("FAILED")) {
+                webView.getEngine().executeScript("resetMermaid()");
+                finish(null, new IllegalStateException(data));
+            } else {
+                logger.error(data);
+            }
+        }
+
+        private void finish(MermaidImage image, Throwable throwable) {
+            RenderJob finished = job;
+            job = null;
+            if (Objects.nonNull(finished)) {
+                renders.incrementAndGet();
+                renderNanos.addAndGet(System.nanoTime() - jobStart);
+                if (Objects.isNull(throwable)) {
+                    finished.future().complete(image);
+                } else {
+                    finished.future().completeExceptionally(throwable);
+                }
+            }
+            if (Objects.nonNull(singleJob)) {
+                controller.getRootAnchor().getChildren().remove(webView);
+            } else {
+                dispatch();
+            }
+        }
+
+        private JSObject window() {
+            return (JSObject) webView.getEngine().executeScript("window");
+        }
+    }
+
+    private record RenderJob(String content, CompletableFuture<MermaidImage> future) {
+    }
+
+    public record MermaidImage(String svg, BufferedImage image) {
+    }
+
+    public record MermaidBenchmark(int diagrams, double pooledPerSecond, double newViewPerSecond) {
+    }
+
+    public record PoolStats(int size, int maxSize, long renders, long averageRenderMillis) {
+    }
+}
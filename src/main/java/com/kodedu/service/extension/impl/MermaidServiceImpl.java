@@ -2,27 +2,22 @@ package com.kodedu.service.extension.impl;
 
 import com.kodedu.config.ExtensionConfigBean;
 import com.kodedu.controller.ApplicationController;
-import com.kodedu.helper.IOHelper;
 import com.kodedu.other.Current;
 import com.kodedu.other.TrimWhite;
 import com.kodedu.service.ThreadService;
-import com.kodedu.service.cache.BinaryCacheService;
+import com.kodedu.service.cache.RenderCacheService;
+import com.kodedu.service.extension.ImageInfo;
 import com.kodedu.service.extension.MermaidService;
 
-import javafx.embed.swing.SwingFXUtils;
-import javafx.scene.SnapshotParameters;
-import javafx.scene.image.WritableImage;
-import javafx.scene.web.WebView;
-import netscape.javascript.JSObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.util.DigestUtils;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.Map;
 import java.util.Objects;
@@ -39,10 +34,9 @@ public class MermaidServiceImpl implements MermaidService {
     @Autowired
     private ThreadService threadService;
     @Autowired
-    private BinaryCacheService binaryCacheService;
-
-    @Value("${application.mermaid.url}")
-    private String mermaidUrl;
+    private RenderCacheService renderCacheService;
+    @Autowired
+    private MermaidRendererPool mermaidRendererPool;
 
     private Map<String, Integer> rerenderMap = new ConcurrentHashMap<>();
 
@@ -68,75 +62,40 @@ public class MermaidServiceImpl implements MermaidService {
             }
         }
 
-        if (!imageTarget.endsWith(".png") && !cachedResource) {
+        boolean svgTarget = imageTarget.endsWith(".svg");
+
+        if (!imageTarget.endsWith(".png") && !svgTarget && !cachedResource) {
             return;
         }
 
-        Integer cacheHit = current.getCache().get(imageTarget);
-
-        int hashCode = Objects.hash(imageTarget, imagesDir, type, mermaidContent);
-        if (Objects.isNull(cacheHit) || hashCode != cacheHit) {
-
-            Path path = current.currentTab().getParentOrWorkdir();
-
-            threadService.runActionLater(() -> {
-                WebView webView = new WebView();
-                webView.setLayoutX(-42000);
-                webView.setLayoutY(-42000);
-                webView.setMinSize(0, 0);
-
-                int zoom = extensionConfigBean.getDefaultImageZoom();
-
-                webView.setPrefSize(3000, 3000);
-//                webView.setZoom(zoom);
-
-                controller.getRootAnchor().getChildren().add(webView);
+        Path path = current.currentTab().getParentOrWorkdir();
+        String digest = renderCacheService.digest("mermaid", mermaidContent, svgTarget ? "svg" : "png");
+        ImageInfo imageInfo = new ImageInfo(imagesDir, imageTarget, path.resolve(imageTarget).toString());
 
-                threadService.runActionLater(() -> {
-                    webView.getEngine().load(String.format(mermaidUrl, controller.getPort()));
-                });
+        if (renderCacheService.restore(digest, imageInfo)) {
+            return;
+        }
 
-                webView.getEngine().setOnAlert(event -> {
-                    String data = event.getData();
-                    if ("READY".equals(data)) {
-                        final JSObject window = (JSObject) webView.getEngine().executeScript("window");
-                        window.setMember("webview", webView);
-                        window.call("renderMermaid", mermaidContent);
-                    } else if ("RENDERED".equals(data)) {
-                        WritableImage writableImage = webView.snapshot(new SnapshotParameters(), null);
-                        BufferedImage bufferedImage = SwingFXUtils.fromFXImage(writableImage, null);
-                        threadService.runActionLater(() -> {
-                            controller.getRootAnchor().getChildren().remove(webView);
-                        });
-
-                        threadService.runTaskLater(() -> {
-                            TrimWhite trimWhite = new TrimWhite();
-                            BufferedImage trimmed = trimWhite.trim(bufferedImage);
-                            if (isImageEmpty(trimmed)) {
-                                createMermaidDiagram(mermaidContent, type, imagesDir, imageTarget, nodename, true);
-                                return;
-                            }
-
-                            if (!cachedResource) {
-                                Path treePath = path.resolve(imageTarget);
-                                IOHelper.createDirectories(path.resolve(imagesDir));
-                                IOHelper.imageWrite(trimmed, "png", treePath.toFile());
-                            } else {
-                                binaryCacheService.putBinary(imageTarget, trimmed);
-                            }
-
-                            current.getCache().put(imageTarget, hashCode);
-                        });
-
-                    } else {
-                        logger.error(data);
+        mermaidRendererPool.render(mermaidContent)
+                .thenAcceptAsync(mermaidImage -> {
+                    if (svgTarget) {
+                        renderCacheService.store(digest, imageInfo, mermaidImage.svg().getBytes(StandardCharsets.UTF_8));
+                        return;
                     }
-                });
-            });
-
-        }
 
+                    TrimWhite trimWhite = new TrimWhite();
+                    BufferedImage trimmed = trimWhite.trim(mermaidImage.image());
+                    if (isImageEmpty(trimmed)) {
+                        createMermaidDiagram(mermaidContent, type, imagesDir, imageTarget, nodename, true);
+                        return;
+                    }
 
+                    renderCacheService.store(digest, imageInfo, trimmed);
+                }, threadService.executor())
+                .exceptionally(throwable -> {
+                    logger.error("Problem occured while generating Mermaid diagram", throwable);
+                    return null;
+                });
     }
 
     private boolean isImageEmpty(BufferedImage bufferedImage) {
@@ -5,9 +5,11 @@ import com.kodedu.controller.ApplicationController;
 import com.kodedu.helper.IOHelper;
 import com.kodedu.other.Current;
 import com.kodedu.service.ThreadService;
-import com.kodedu.service.cache.BinaryCacheService;
+import com.kodedu.service.cache.RenderCacheService;
+import com.kodedu.service.extension.ImageInfo;
 import com.kodedu.service.extension.PlantUmlService;
 
+import jakarta.annotation.PreDestroy;
 import net.sourceforge.plantuml.FileFormat;
 import net.sourceforge.plantuml.FileFormatOption;
 import net.sourceforge.plantuml.SourceStringReader;
@@ -18,11 +20,25 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static java.lang.String.format;
-import static java.nio.file.StandardOpenOption.*;
 import static java.util.Objects.nonNull;
 
 /**
@@ -31,6 +47,9 @@ import static java.util.Objects.nonNull;
 @Component(PlantUmlService.label)
 public class PlantUmlServiceImpl implements PlantUmlService {
 
+    // PlantUML directives including other files, and the included file
+    private static final Pattern INCLUDE_PATTERN = Pattern.compile("^\\s*!(include\\w*|import)\\s+(.+?)\\s*$", Pattern.MULTILINE);
+
     private final Logger logger = LoggerFactory.getLogger(PlantUmlService.class);
 
     private final Current current;
@@ -39,7 +58,15 @@ public class PlantUmlServiceImpl implements PlantUmlService {
     @Autowired
     private ThreadService threadService;
     @Autowired
-    private BinaryCacheService binaryCacheService;
+    private RenderCacheService renderCacheService;
+
+    private final ExecutorService renderExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+            Thread.ofPlatform().name("plantuml-", 0).daemon().factory());
+    // digest -> render of the source, shared by the targets requesting the same source
+    private final Map<String, CompletableFuture<byte[]>> inFlightRenders = new ConcurrentHashMap<>();
+    // image target -> digest of its latest requested source
+    private final Map<String, String> requestedDigests = new ConcurrentHashMap<>();
+    private final Map<Path, Object> writeLocks = new ConcurrentHashMap<>();
 
     @Autowired
     public PlantUmlServiceImpl(final Current current, final ApplicationController controller, ExtensionConfigBean extensionConfigBean) {
@@ -49,7 +76,7 @@ public class PlantUmlServiceImpl implements PlantUmlService {
     }
 
     @Override
-    public synchronized void plantUml(String uml, String type, String imagesDir, String imageTarget, String nodename, String options) {
+    public void plantUml(String uml, String type, String imagesDir, String imageTarget, String nodename, String options) {
         Objects.requireNonNull(imageTarget);
 
         boolean cachedResource = imageTarget.contains("/afx/cache");
@@ -94,54 +121,146 @@ public class PlantUmlServiceImpl implements PlantUmlService {
             uml = uml.replaceFirst("@startditaa", format("@startditaa(%s)", options));
         }
 
-        Integer cacheHit = current.getCache().get(imageTarget);
-
-        int hashCode = (imageTarget + imagesDir + type + uml + nodename + options).hashCode();
-
-        if (nonNull(cacheHit))
-            if (hashCode == cacheHit)
-                return;
-
-        logger.debug("UML extension is started for {}", imageTarget);
-
         try {
 
             Path path = current.currentTab().getParentOrWorkdir();
             Path umlPath = path.resolve(imageTarget);
 
-            SourceStringReader reader = new SourceStringReader(uml, SFile.fromFile(path.toAbsolutePath().toFile()));
-
             FileFormat fileType = imageTarget.endsWith(".svg") ? FileFormat.SVG : FileFormat.PNG;
 
-            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            // Included files are part of the render, renders including files that can't be tracked are not cached
+            // but still skipped while their source is unchanged
+            Optional<String> includedFiles = includedFiles(uml, path);
+            boolean cacheable = includedFiles.isPresent();
+            String digest = renderCacheService.digest("plantuml", uml, nodename, fileType, includedFiles.orElse(""));
+            ImageInfo imageInfo = new ImageInfo(imagesDir, imageTarget, umlPath.toString());
 
-            try {
+            String previousDigest = requestedDigests.put(imageTarget, digest);
+            if (nonNull(previousDigest) && !previousDigest.equals(digest)) {
+                cancelIfObsolete(previousDigest);
+            }
 
-                reader.outputImage(os, new FileFormatOption(fileType));
+            if (cacheable ? renderCacheService.restore(digest, imageInfo) : renderCacheService.isRendered(digest, imageInfo))
+                return;
 
-                if (!cachedResource) {
-                    IOHelper.createDirectories(path.resolve(imagesDir));
-                    IOHelper.writeToFile(umlPath, os.toByteArray(), CREATE, WRITE, TRUNCATE_EXISTING, SYNC);
-                } else {
-                    binaryCacheService.putBinary(imageTarget, os.toByteArray());
+            String finalUml = uml;
+            CompletableFuture<byte[]> render = inFlightRenders.computeIfAbsent(digest, d -> submitRender(d, finalUml, path, fileType));
+            render.whenComplete((bytes, throwable) -> {
+                inFlightRenders.remove(digest, render);
+                if (nonNull(throwable)) {
+                    if (!(throwable instanceof CancellationException)) {
+                        logger.error("Problem occured while generating UML diagram", throwable);
+                    }
+                    return;
                 }
+                // A newer source may have been requested for the same target meanwhile
+                if (!digest.equals(requestedDigests.get(imageTarget))) {
+                    return;
+                }
+                synchronized (writeLocks.computeIfAbsent(umlPath, p -> new Object())) {
+                    if (cacheable) {
+                        renderCacheService.store(digest, imageInfo, bytes);
+                    } else {
+                        renderCacheService.write(digest, imageInfo, bytes);
+                    }
+                }
+                logger.debug("UML extension is ended for {}", imageTarget);
+            });
 
-                IOHelper.close(os);
+        } catch (Exception e) {
+            logger.error("Problem occured while generating UML diagram", e);
+        }
+    }
 
-                logger.debug("UML extension is ended for {}", imageTarget);
-            } catch (Exception e) {
-                logger.error("Problem occured while generating UML diagram", e);
-            } finally {
-                IOHelper.close(os);
+    private CompletableFuture<byte[]> submitRender(String digest, String uml, Path path, FileFormat fileType) {
+        CompletableFuture<byte[]> render = new CompletableFuture<>();
+        Future<?> task = renderExecutor.submit(() -> {
+            if (!requestedDigests.containsValue(digest)) {
+                render.cancel(false);
+                return;
             }
+            logger.debug("UML rendering is started for {}", digest);
+            try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
+                SourceStringReader reader = new SourceStringReader(uml, SFile.fromFile(path.toAbsolutePath().toFile()));
+                reader.outputImage(os, new FileFormatOption(fileType));
+                render.complete(os.toByteArray());
+            } catch (Throwable e) {
+                render.completeExceptionally(e);
+            }
+        });
+        render.whenComplete((bytes, throwable) -> {
+            inFlightRenders.remove(digest, render);
+            if (render.isCancelled()) {
+                task.cancel(true);
+            }
+        });
+        return render;
+    }
 
-            current.getCache().put(imageTarget, hashCode);
-
+    /**
+     * Modification times of the local files included by the source, nested includes too.
+     * Empty when an include can't be tracked, such as a URL or a path with variables.
+     */
+    private Optional<String> includedFiles(String uml, Path directory) {
+        Map<Path, Long> includedFiles = new TreeMap<>();
+        try {
+            return collectIncludedFiles(uml, directory, includedFiles) ? Optional.of(includedFiles.toString()) : Optional.empty();
         } catch (Exception e) {
-            logger.error("Problem occured while generating UML diagram", e);
+            logger.debug("Included files of UML diagram couldn't be tracked", e);
+            return Optional.empty();
         }
     }
 
+    private boolean collectIncludedFiles(String uml, Path directory, Map<Path, Long> includedFiles) throws IOException {
+        Matcher matcher = INCLUDE_PATTERN.matcher(uml);
+        while (matcher.find()) {
+            String directive = matcher.group(1);
+            String target = matcher.group(2).replace("\"", "");
+            // Standard library, part of PlantUML itself
+            if (target.startsWith("<")) {
+                continue;
+            }
+            if ("includeurl".equals(directive) || target.contains("://") || target.contains("%") || target.contains("$")) {
+                return false;
+            }
+            // Diagram selectors such as file.puml!1 or file.puml!PART
+            int selector = target.indexOf('!');
+            if (selector > 0) {
+                target = target.substring(0, selector);
+            }
+            Path includedFile = directory.resolve(target).normalize();
+            if (includedFiles.containsKey(includedFile)) {
+                continue;
+            }
+            FileTime lastModified = IOHelper.getLastModifiedTime(includedFile);
+            includedFiles.put(includedFile, nonNull(lastModified) ? lastModified.toMillis() : 0);
+            if (!"import".equals(directive) && Files.isRegularFile(includedFile)) {
+                String included = new String(Files.readAllBytes(includedFile), StandardCharsets.UTF_8);
+                if (!collectIncludedFiles(included, includedFile.getParent(), includedFiles)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Cancels the render of a source that no image target waits for anymore
+     */
+    private void cancelIfObsolete(String digest) {
+        if (!requestedDigests.containsValue(digest)) {
+            CompletableFuture<byte[]> render = inFlightRenders.get(digest);
+            if (nonNull(render)) {
+                render.cancel(true);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renderExecutor.shutdownNow();
+    }
+
     private String replaceOptionsIfNecessary(String options) {
         options = options.replace("separation=false", "--no-separation");
         options = options.replace("antialias=false", "--no-antialias");
@@ -8,7 +8,7 @@ import com.kodedu.other.Current;
 import com.kodedu.other.TrimWhite;
 import com.kodedu.other.Tuple;
 import com.kodedu.service.ThreadService;
-import com.kodedu.service.cache.BinaryCacheService;
+import com.kodedu.service.cache.RenderCacheService;
 import com.kodedu.service.extension.ImageInfo;
 import com.kodedu.service.extension.TreeService;
 import com.kodedu.service.ui.AwesomeService;
@@ -32,7 +32,6 @@ import org.springframework.util.StringUtils;
 
 import java.awt.image.BufferedImage;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.regex.Matcher;
@@ -52,7 +51,7 @@ public class TreeServiceImpl implements TreeService {
     @Autowired
     private ThreadService threadService;
     @Autowired
-    private BinaryCacheService binaryCacheService;
+    private RenderCacheService renderCacheService;
     @Autowired
     private AwesomeService awesomeService;
 
@@ -82,11 +81,8 @@ public class TreeServiceImpl implements TreeService {
             return;
         }
 
-        Integer cacheHit = current.getCache().get(imageTargetStr);
-
-        String imagePathStr = imageInfo.imagePath();
-        int hashCode = (imageTargetStr + imageInfo.imagesDir() + imagePathStr + type + tree).hashCode();
-        if (Objects.isNull(cacheHit) || hashCode != cacheHit) {
+        String digest = renderCacheService.digest("tree", tree, extensionConfigBean.getDefaultImageScale());
+        if (!renderCacheService.restore(digest, imageInfo)) {
 
             logger.debug("Tree extension is started for {}", imageTargetStr);
 
@@ -222,13 +218,7 @@ public class TreeServiceImpl implements TreeService {
                     WritableImage writableImage = fileView.snapshot(new SnapshotParameters(), null);
                     BufferedImage bufferedImage = SwingFXUtils.fromFXImage(writableImage, null);
 
-                    if (!cachedResource) {
-                        Path imagePath = Paths.get(imagePathStr);
-                        IOHelper.imageWrite(bufferedImage, "png", imagePath.toFile());
-
-                    } else {
-                        binaryCacheService.putBinary(imageTargetStr, bufferedImage);
-                    }
+                    renderCacheService.store(digest, imageInfo, bufferedImage);
 
                     logger.debug("Tree extension is ended for {}", imageTargetStr);
 
@@ -244,8 +234,6 @@ public class TreeServiceImpl implements TreeService {
         } else {
             completed.complete(null);
         }
-
-        current.getCache().put(imageTargetStr, hashCode);
     }
 
     private void applyFolderIcon(TreeItem<Tuple<Integer, String>> lastItem) {
@@ -273,14 +261,8 @@ public class TreeServiceImpl implements TreeService {
             return;
         }
 
-        Integer cacheHit = current.getCache().get(imageTargetStr);
-
-        String imagePathStr = imageInfo.imagePath();
-        String imagesDirStr = imageInfo.imagesDir();
-        int hashCode = (imagePathStr + imagesDirStr + imagePathStr + type + tree).hashCode();
-        if (Objects.isNull(cacheHit) || hashCode != cacheHit) {
-
-            Path path = current.currentTab().getParentOrWorkdir();
+        String digest = renderCacheService.digest("highlight-tree", tree, extensionConfigBean.getDefaultImageZoom());
+        if (!renderCacheService.restore(digest, imageInfo)) {
 
             threadService.runActionLater(() -> {
 
@@ -316,12 +298,7 @@ public class TreeServiceImpl implements TreeService {
                             TrimWhite trimWhite = new TrimWhite();
                             BufferedImage trimmed = trimWhite.trim(bufferedImage);
 
-                            if (!cachedResource) {
-                                Path imagePath = Paths.get(imagePathStr);
-                                IOHelper.imageWrite(trimmed, "png", imagePath.toFile());
-                            } else {
-                                binaryCacheService.putBinary(imageTargetStr, trimmed);
-                            }
+                            renderCacheService.store(digest, imageInfo, trimmed);
                             completed.complete(null);
 
                             threadService.runActionLater(() -> {
@@ -336,7 +313,5 @@ public class TreeServiceImpl implements TreeService {
         } else {
             completed.complete(null);
         }
-
-        current.getCache().put(imageTargetStr, hashCode);
     }
 }
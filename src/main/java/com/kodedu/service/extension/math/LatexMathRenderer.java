@@ -0,0 +1,110 @@
+package com.kodedu.service.extension.math;
+
+import com.kodedu.config.ExtensionConfigBean;
+import com.kodedu.service.ThreadService;
+import com.kodedu.service.cache.RenderCacheService;
+import com.kodedu.service.extension.ImageInfo;
+import jakarta.annotation.PostConstruct;
+import org.scilab.forge.jlatexmath.TeXConstants;
+import org.scilab.forge.jlatexmath.TeXFormula;
+import org.scilab.forge.jlatexmath.TeXIcon;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Optional;
+
+/**
+ * Renders latexmath formulas with jlatexmath, without a WebView.
+ * <p>
+ * Formulas are parsed and painted on the calling thread, so conversions render their formulas in parallel.
+ */
+@Component
+public class LatexMathRenderer {
+
+    private static final String LATEX_START = "\\[";
+    private static final String LATEX_END = "\\]";
+    private static final float FONT_SIZE = 16f;
+
+    private final Logger logger = LoggerFactory.getLogger(LatexMathRenderer.class);
+
+    private final ExtensionConfigBean extensionConfigBean;
+    private final RenderCacheService renderCacheService;
+    private final ThreadService threadService;
+
+    public LatexMathRenderer(ExtensionConfigBean extensionConfigBean, RenderCacheService renderCacheService, ThreadService threadService) {
+        this.extensionConfigBean = extensionConfigBean;
+        this.renderCacheService = renderCacheService;
+        this.threadService = threadService;
+    }
+
+    @PostConstruct
+    public void loadFonts() {
+        // The first formula loads fonts and symbol tables, which takes about a second
+        threadService.runTaskLater(() -> {
+            try {
+                paint(new TeXFormula("x"));
+            } catch (Exception e) {
+                logger.warn("Problem occured while loading jlatexmath", e);
+            }
+        });
+    }
+
+    /**
+     * Returns the formula of a content wrapped as latexmath, see {@link MathStemPreProcessor#latexmathWrap(String)}
+     */
+    public Optional<String> latexFormula(String content) {
+        String trimmed = content.strip();
+        if (trimmed.startsWith(LATEX_START) && trimmed.endsWith(LATEX_END) && trimmed.length() >= LATEX_START.length() + LATEX_END.length()) {
+            return Optional.of(trimmed.substring(LATEX_START.length(), trimmed.length() - LATEX_END.length()).strip());
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Renders the formula to the image target, returns false when jlatexmath can't render it
+     */
+    public boolean render(String formula, ImageInfo imageInfo) {
+        String imageTarget = imageInfo.imageTarget();
+        if (!imageTarget.contains(".png") && !imageTarget.contains("/afx/cache")) {
+            return true;
+        }
+
+        int zoom = extensionConfigBean.getDefaultImageZoom();
+        String digest = renderCacheService.digest("jlatexmath", formula, zoom);
+        if (renderCacheService.restore(digest, imageInfo)) {
+            return true;
+        }
+
+        try {
+            TeXFormula texFormula = new TeXFormula(formula);
+            renderCacheService.store(digest, imageInfo, paint(texFormula));
+            logger.debug("jlatexmath rendered {}", imageTarget);
+            return true;
+        } catch (Exception e) {
+            logger.debug("jlatexmath could not render {}", formula, e);
+            return false;
+        }
+    }
+
+    private BufferedImage paint(TeXFormula texFormula) {
+        TeXIcon icon = texFormula.createTeXIcon(TeXConstants.STYLE_DISPLAY, FONT_SIZE * extensionConfigBean.getDefaultImageZoom());
+        icon.setInsets(new Insets(2, 2, 2, 2));
+        icon.setForeground(Color.BLACK);
+
+        BufferedImage image = new BufferedImage(Math.max(1, icon.getIconWidth()), Math.max(1, icon.getIconHeight()), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+            icon.paintIcon(null, graphics, 0, 0);
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+}
@@ -8,6 +8,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
@@ -19,14 +20,22 @@ public class MathProcessor {
 
     private final MathJaxService mathJaxService;
     private final ThreadService threadService;
+    private final LatexMathRenderer latexMathRenderer;
 
-    public MathProcessor(MathJaxService mathJaxService, ThreadService threadService) {
+    public MathProcessor(MathJaxService mathJaxService, ThreadService threadService, LatexMathRenderer latexMathRenderer) {
         this.mathJaxService = mathJaxService;
         this.threadService = threadService;
+        this.latexMathRenderer = latexMathRenderer;
     }
 
     public void process(ImageInfo imageInfo, String content) {
 
+        // MathJax is only needed for AsciiMath, MathML and formulas jlatexmath can't parse
+        Optional<String> latexFormula = latexMathRenderer.latexFormula(content);
+        if (latexFormula.isPresent() && latexMathRenderer.render(latexFormula.get(), imageInfo)) {
+            return;
+        }
+
         CompletableFuture completableFuture = new CompletableFuture();
 
         completableFuture.runAsync(() -> {
@@ -0,0 +1,153 @@
+package com.kodedu.service.extension.processor;
+
+import com.kodedu.helper.IOHelper;
+import com.kodedu.other.RefProps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Decoded content of included files with their cross references and preprocessed text.
+ * <p>
+ * An entry is valid while the modification time and size of the file are the same, entries of changed
+ * files are also dropped by file watch events. When a file changes, its former charset is tried first
+ * instead of detecting it again. The size limit in megabytes is set with -Dasciidocfx.cache.include
+ */
+@Component
+public class IncludeContentCache {
+
+    private final Logger logger = LoggerFactory.getLogger(IncludeContentCache.class);
+
+    // Strings take two bytes per char at most
+    private final long maximumChars = Long.getLong("asciidocfx.cache.include", 32) * 1024 * 1024 / 2;
+
+    // Access ordered, the eldest entry is the least recently used one
+    private final LinkedHashMap<Path, IncludeContent> contents = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalChars;
+
+    public IncludeContent get(Path includePath) {
+        Path path = includePath.normalize();
+        BasicFileAttributes attributes = readAttributes(path);
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        long size = attributes.size();
+
+        IncludeContent previous;
+        synchronized (this) {
+            previous = contents.get(path);
+        }
+        if (Objects.nonNull(previous) && previous.lastModified() == lastModified && previous.size() == size) {
+            return previous;
+        }
+
+        DecodedContent decoded = read(path, Objects.nonNull(previous) ? previous.charset() : null);
+        String content = decoded.content();
+        IncludeContent includeContent = new IncludeContent(lastModified, size, content, decoded.charset(),
+                unmodifiableXrefs(XrefHelper.parseXrefs(path.toString(), content)), new ConcurrentHashMap<>());
+        synchronized (this) {
+            put(path, includeContent);
+        }
+        return includeContent;
+    }
+
+    public synchronized void invalidate(Path path) {
+        IncludeContent removed = contents.remove(path.normalize());
+        if (Objects.nonNull(removed)) {
+            totalChars -= removed.content().length();
+        }
+    }
+
+    public synchronized void clear() {
+        contents.clear();
+        totalChars = 0;
+    }
+
+    private void put(Path path, IncludeContent includeContent) {
+        invalidate(path);
+        contents.put(path, includeContent);
+        totalChars += includeContent.content().length();
+        Iterator<IncludeContent> iterator = contents.values().iterator();
+        while (totalChars > maximumChars && iterator.hasNext()) {
+            IncludeContent eldest = iterator.next();
+            iterator.remove();
+            totalChars -= eldest.content().length();
+        }
+    }
+
+    /*
+     Tries UTF-8 and the former charset like IOHelper.readFile would, without detecting the charset again
+     */
+    private DecodedContent read(Path path, String previousCharset) {
+        if (Objects.nonNull(previousCharset)) {
+            try {
+                byte[] bytes = Files.readAllBytes(path);
+                for (String charset : new LinkedHashSet<>(List.of("UTF-8", previousCharset))) {
+                    Optional<String> content = decode(bytes, charset);
+                    if (content.isPresent()) {
+                        return new DecodedContent(content.get(), charset);
+                    }
+                }
+                logger.debug("Charset of {} has changed, detecting it again", path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        String content = IOHelper.readFile(path);
+        return new DecodedContent(content, IOHelper.getCachedCharset(path));
+    }
+
+    private Optional<String> decode(byte[] bytes, String charset) {
+        try {
+            // Reports malformed input unlike new String(bytes, charset)
+            return Optional.of(Charset.forName(charset).newDecoder().decode(ByteBuffer.wrap(bytes)).toString());
+        } catch (CharacterCodingException e) {
+            return Optional.empty();
+        }
+    }
+
+    private BasicFileAttributes readAttributes(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Map<String, List<RefProps>> unmodifiableXrefs(Map<String, List<RefProps>> xrefs) {
+        return xrefs.entrySet().stream()
+                .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, e -> List.copyOf(e.getValue())));
+    }
+
+    private record DecodedContent(String content, String charset) {
+    }
+
+    /**
+     * @param filtered included text after lines/tags filters and extension block corrections, by filter
+     */
+    public record IncludeContent(long lastModified, long size, String content, String charset,
+                                 Map<String, List<RefProps>> xrefs,
+                                 Map<String, XrefIncludeProcessor.FilterContent> filtered) {
+
+        public XrefIncludeProcessor.FilterContent filtered(String filter, Supplier<XrefIncludeProcessor.FilterContent> supplier) {
+            return filtered.computeIfAbsent(filter, f -> supplier.get());
+        }
+    }
+}
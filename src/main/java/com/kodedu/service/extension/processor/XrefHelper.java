@@ -1,5 +1,6 @@
 package com.kodedu.service.extension.processor;
 
+import com.kodedu.other.LineIndex;
 import com.kodedu.other.RefProps;
 
 import java.util.List;
@@ -18,25 +19,10 @@ public class XrefHelper {
         return xRefPattern.matcher(content);
     }
 
-    public static int getLineNumber(String input, int index) {
-        String[] lines = input.split("\\r?\\n");
-        int lineNumber = 1;
-        int currentIndex = 0;
-
-        for (String line : lines) {
-            currentIndex += line.length() + 1; // +1 to account for newline character
-            if (currentIndex > index) {
-                break;
-            }
-            lineNumber++;
-        }
-
-        return lineNumber;
-    }
-
     public static Map<String, List<RefProps>> parseXrefs(String docfile, String content) {
 
         Matcher matcher = XrefHelper.matcher(content);
+        LineIndex lineIndex = LineIndex.of(content);
 
         /*
         <<notice>>                                  1 > notice
@@ -52,8 +38,7 @@ public class XrefHelper {
 
             String xRefId = Objects.requireNonNullElse(firstTerm, xrefLabel);
 
-            int startIndex = matcher.start();
-            int lineNumber = getLineNumber(content, startIndex);
+            int lineNumber = lineIndex.lineNumber(m.start());
 
             return new RefProps(docfile, lineNumber, xRefId, true);
         }).distinct().collect(Collectors.groupingBy(x -> x.file()));
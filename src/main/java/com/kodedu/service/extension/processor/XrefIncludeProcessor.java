@@ -2,19 +2,18 @@ package com.kodedu.service.extension.processor;
 
 import com.kodedu.helper.IOHelper;
 import com.kodedu.other.RefProps;
+import com.kodedu.service.cache.HttpCacheService;
 import org.asciidoctor.ast.Document;
 import org.asciidoctor.extension.IncludeProcessor;
 import org.asciidoctor.extension.PreprocessorReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
 import java.nio.file.Files;
 import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -35,9 +34,11 @@ public class XrefIncludeProcessor extends IncludeProcessor {
 
     record FilterContent(String content, Integer lineNo){}
 
-    private HttpClient httpClient = HttpClient.newBuilder()
-            .followRedirects(HttpClient.Redirect.ALWAYS)
-            .build();
+    @Autowired
+    private IncludeContentCache includeContentCache;
+
+    @Autowired
+    private HttpCacheService httpCacheService;
 
     @Override
     public boolean handles(String target) {
@@ -49,6 +50,7 @@ public class XrefIncludeProcessor extends IncludeProcessor {
         Path targetPath = null;
         String targetString = null;
         String content = null;
+        IncludeContentCache.IncludeContent includeContent = null;
 
         boolean isOptional = attributes.containsKey("optional-option");
         if (isUri(target)) {
@@ -66,18 +68,35 @@ public class XrefIncludeProcessor extends IncludeProcessor {
                 if (isOptional && !Files.exists(targetPath)) {
                     content = "";
                 } else {
-                    content = IOHelper.readFile(targetPath);
+                    includeContent = includeContentCache.get(targetPath);
+                    content = includeContent.content();
                 }
             }
         }
 
-        int startLineNumber = 1;
-
-        Map<String, List<RefProps>> xrefMap = XrefHelper.parseXrefs(targetString, content);
+        Map<String, List<RefProps>> xrefMap = Objects.nonNull(includeContent) ?
+                includeContent.xrefs() : XrefHelper.parseXrefs(targetString, content);
 
         Map<String, List<RefProps>> xref = ProcessorThreadLocal.getXref();
         xref.putAll(xrefMap);
 
+        FilterContent filtered;
+        if (Objects.nonNull(includeContent)) {
+            IncludeContentCache.IncludeContent finalContent = includeContent;
+            filtered = includeContent.filtered(filterKey(attributes), () -> filterContent(finalContent.content(), target, attributes));
+        } else {
+            filtered = filterContent(content, target, attributes);
+        }
+
+        reader.pushInclude(filtered.content(), target, targetString, filtered.lineNo(), attributes);
+    }
+
+    /*
+     Applies lines or tags filters and extension block corrections
+     */
+    private FilterContent filterContent(String content, String target, Map<String, Object> attributes) {
+        int startLineNumber = 1;
+
         List<Integer> lineNums = getLines(attributes);
         if (!lineNums.isEmpty()) {
             FilterContent tuple  = filterLinesByLineNumbers(content, lineNums);
@@ -93,8 +112,11 @@ public class XrefIncludeProcessor extends IncludeProcessor {
         }
 
         content = ExtensionPreprocessor.correctExtensionBlocks(content);
+        return new FilterContent(content, startLineNumber);
+    }
 
-        reader.pushInclude(content, target, targetString, startLineNumber, attributes);
+    private String filterKey(Map<String, Object> attributes) {
+        return String.format("%s|%s|%s", attributes.get("lines"), attributes.get("tag"), attributes.get("tags"));
     }
 
     private boolean isUri(String target) {
@@ -102,12 +124,8 @@ public class XrefIncludeProcessor extends IncludeProcessor {
     }
 
     private String readUri(URI uri, boolean optional) {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(uri)
-                .GET()
-                .build();
         try {
-            return httpClient.send(request, HttpResponse.BodyHandlers.ofString()).body();
+            return httpCacheService.getString(uri.toString());
         } catch (Exception e) {
             if (optional) {
                 return "";
@@ -321,7 +321,7 @@ public class DirectoryServiceImpl implements DirectoryService {
                 .filter(Optional::isPresent)
                 .map(Optional::get)
                 .map(path -> path.resolve(uri))
-                .filter(Files::exists)
+                .filter(pathMapper::exists)
                 .findFirst()
                 .orElseGet(() -> null);
 
@@ -356,7 +356,7 @@ public class DirectoryServiceImpl implements DirectoryService {
         if (optional.isPresent()) {
             Path resolve = optional.get().resolve(uri);
 
-            if (Files.exists(resolve)) {
+            if (pathMapper.exists(resolve)) {
                 return resolve;
             }
         }
@@ -364,7 +364,7 @@ public class DirectoryServiceImpl implements DirectoryService {
         Path workingDirectory = workingDirectory();
         Path resolve = workingDirectory.resolve(uri);
 
-        if (Files.exists(resolve)) {
+        if (pathMapper.exists(resolve)) {
             return resolve;
         }
 
@@ -375,7 +375,7 @@ public class DirectoryServiceImpl implements DirectoryService {
 
                 if (Objects.nonNull(currentParent)) {
                     Path candidate = currentParent.resolve(uri);
-                    if (Files.exists(candidate)) {
+                    if (pathMapper.exists(candidate)) {
                         return candidate;
                     } else {
                         currentParent = currentParent.getParent();
@@ -3,9 +3,12 @@ package com.kodedu.service.impl;
 import com.kodedu.component.MyTab;
 import com.kodedu.controller.ApplicationController;
 import com.kodedu.helper.IOHelper;
+import com.kodedu.service.AsciidoctorConfigResolver;
+import com.kodedu.service.AsciidoctorFactory;
 import com.kodedu.service.FileWatchService;
 import com.kodedu.service.PathMapper;
 import com.kodedu.service.ThreadService;
+import com.kodedu.service.extension.processor.IncludeContentCache;
 import com.kodedu.service.ui.FileBrowseService;
 import com.kodedu.service.ui.TabService;
 import jakarta.annotation.PostConstruct;
@@ -18,6 +21,7 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Component;
 
 import java.nio.file.*;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -43,6 +47,15 @@ public class FileWatchServiceImpl implements FileWatchService {
     @Autowired
     private ApplicationContext applicationContext;
 
+    @Autowired
+    private AsciidoctorConfigResolver asciidoctorConfigResolver;
+
+    @Autowired
+    private AsciidoctorFactory asciidoctorFactory;
+
+    @Autowired
+    private IncludeContentCache includeContentCache;
+
     private Map<WatchKey, Path> watchKeys = new ConcurrentHashMap<>();
     private final PathMapper pathMapper;
 
@@ -83,9 +96,14 @@ public class FileWatchServiceImpl implements FileWatchService {
             WatchKey watchKey = entry.getKey();
             watchKey.cancel();
             Path path = entry.getValue();
+            pathMapper.unwatchDirectory(path);
             logger.info("Watch service cancelled watching {}", path);
         }
         watchKeys.clear();
+        // Config, user extension and include changes are not noticed anymore
+        asciidoctorConfigResolver.clear();
+        asciidoctorFactory.userExtensionsChanged(null);
+        includeContentCache.clear();
     }
 
     private void watchPathChanges() {
@@ -119,12 +137,26 @@ public class FileWatchServiceImpl implements FileWatchService {
             List<WatchEvent<?>> watchEvents = watchKey.pollEvents();
 
             boolean updateFsView = false;
+            List<Path> changedPaths = new ArrayList<>();
             for (WatchEvent<?> event : watchEvents) {
                 WatchEvent.Kind<?> kind = event.kind();
+                Path eventPath = kind == OVERFLOW || Objects.isNull(path) ? null : path.resolve((Path) event.context());
+                // Saves write a temporary file next to the document, the document itself is still noticed
+                if (Objects.nonNull(eventPath) && IOHelper.isAtomicWriteTempFile(eventPath)) {
+                    watchKey.reset();
+                    continue;
+                }
+                if (Objects.isNull(eventPath)) {
+                    asciidoctorConfigResolver.clear();
+                    asciidoctorFactory.userExtensionsChanged(null);
+                    includeContentCache.clear();
+                } else {
+                    asciidoctorConfigResolver.invalidate(eventPath);
+                    asciidoctorFactory.userExtensionsChanged(eventPath);
+                    includeContentCache.invalidate(eventPath);
+                }
                 if (kind == ENTRY_MODIFY && event.count() == 1) {
-                    @SuppressWarnings("unchecked")
-                    WatchEvent<Path> ev = (WatchEvent<Path>) event;
-                    Path modifiedPath = path.resolve(ev.context());
+                    Path modifiedPath = eventPath;
                     ObservableList<Tab> tabs = controller.getTabPane().getTabs();
                     for (Tab tab : tabs) {
                         if (tab instanceof MyTab) {
@@ -140,24 +172,28 @@ public class FileWatchServiceImpl implements FileWatchService {
                     watchKey.reset();
                 } else if (kind == ENTRY_MODIFY && event.count() > 1) {
                     watchKey.reset();
+                } else if (kind == ENTRY_CREATE && Objects.nonNull(eventPath) && pathMapper.isIndexed(eventPath)) {
+                    // A file moved over a listed one, as saves do, leaves the listing as is
+                    watchKey.reset();
                 } else {
                     updateFsView = true;
+                    if (Objects.nonNull(eventPath)) {
+                        changedPaths.add(eventPath);
+                    }
                     watchKey.reset();
                 }
 
             }
 
-            if (updateFsView) {
-                Path changedPath = null;
+            // The directory is deleted or no longer accessible
+            if (!watchKey.isValid() && Objects.nonNull(path)) {
+                watchKeys.remove(watchKey);
+                pathMapper.unwatchDirectory(path);
+            }
 
-                if (watchEvents.size() == 1) {
-                    @SuppressWarnings("unchecked")
-                    WatchEvent<Path> ev = (WatchEvent<Path>) watchEvents.get(0);
-                    changedPath = path.resolve(ev.context());
-                    pathMapper.addPath(changedPath);
-                } else {
-                    pathMapper.addRootPath(path);
-                }
+            if (updateFsView) {
+                Path changedPath = changedPaths.size() == 1 ? changedPaths.get(0) : null;
+                pathMapper.refreshDirectory(path);
                 fileBrowseService.refreshPathToTree(path, changedPath);
             }
 
@@ -188,6 +224,7 @@ public class FileWatchServiceImpl implements FileWatchService {
                 if (!isRegistered) {
                     WatchKey watchKey = finalPath.register(watcher, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
                     watchKeys.put(watchKey, finalPath);
+                    pathMapper.watchDirectory(finalPath);
                 }
             } catch (Exception e) {
                 logger.warn("Couldn't register watcher for: {}", finalPath);
@@ -222,6 +259,7 @@ public class FileWatchServiceImpl implements FileWatchService {
                     WatchKey watchKey = entry.getKey();
                     watchKey.cancel();
                     watchKeys.remove(watchKey);
+                    pathMapper.unwatchDirectory(registeredPath);
                     break;
                 }
 
@@ -0,0 +1,72 @@
+package com.kodedu.spell.dictionary;
+
+import com.kodedu.config.SpellcheckConfigBean;
+import com.kodedu.service.ThreadService;
+import jakarta.annotation.PostConstruct;
+import morfologik.speller.Speller;
+import morfologik.stemming.Dictionary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads each morfologik dictionary once and shares it between editor tabs.
+ * The default language is loaded in background as soon as it is configured.
+ */
+@Component
+public class DictionaryRegistry {
+
+    private final Logger logger = LoggerFactory.getLogger(DictionaryRegistry.class);
+
+    private final SpellcheckConfigBean spellcheckConfigBean;
+    private final ThreadService threadService;
+
+    private final Map<Path, Optional<LanguageSpeller>> languageSpellerMap = new ConcurrentHashMap<>();
+
+    public DictionaryRegistry(SpellcheckConfigBean spellcheckConfigBean, ThreadService threadService) {
+        this.spellcheckConfigBean = spellcheckConfigBean;
+        this.threadService = threadService;
+    }
+
+    @PostConstruct
+    public void preloadDefaultLanguage() {
+        preload(spellcheckConfigBean.defaultLanguageProperty().get());
+        spellcheckConfigBean.defaultLanguageProperty().addListener((observable, oldValue, newValue) -> preload(newValue));
+    }
+
+    private void preload(Path language) {
+        if (Objects.nonNull(language) && !spellcheckConfigBean.getDisableSpellCheck()) {
+            threadService.runTaskLater(() -> getLanguageSpeller(language));
+        }
+    }
+
+    /**
+     * Returns the loaded speller of the dictionary, a dictionary failed to load is not read again
+     */
+    public Optional<LanguageSpeller> getLanguageSpeller(Path language) {
+        return languageSpellerMap.computeIfAbsent(language.toAbsolutePath(), this::loadLanguageSpeller);
+    }
+
+    private Optional<LanguageSpeller> loadLanguageSpeller(Path language) {
+        try {
+            long start = System.nanoTime();
+            Dictionary dictionary = Dictionary.read(language);
+            final LanguageSpeller languageSpeller = new LanguageSpeller();
+            languageSpeller.setDictionary(dictionary);
+            languageSpeller.setSpeller(new Speller(dictionary));
+            languageSpeller.setEncoding(dictionary.metadata.getEncoding());
+            logger.info("Loaded {} dictionary in {} ms", language.getFileName(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return Optional.of(languageSpeller);
+        } catch (Exception e) {
+            logger.error("Problem occured while loading {} dictionary", language, e);
+        }
+        return Optional.empty();
+    }
+}
@@ -1,23 +1,23 @@
 package com.kodedu.spell.dictionary;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.kodedu.component.EditorPane;
 import com.kodedu.config.SpellcheckConfigBean;
 import com.kodedu.controller.ApplicationController;
 import com.kodedu.service.ThreadService;
+import com.kodedu.spell.filter.AbstractSpellFilter;
 import com.kodedu.spell.filter.SpellFilterProvider;
-import morfologik.speller.Speller;
-import morfologik.stemming.Dictionary;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.nio.file.Path;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -32,89 +32,91 @@ public class DictionaryService {
     private final SpellFilterProvider spellFilterProvider;
     private final ThreadService threadService;
     private final SpellcheckConfigBean spellcheckConfigBean;
-
-    private Map<Path, LanguageSpeller> languageSpellerMap = new ConcurrentHashMap<>();
-    private Map<String, List<String>> suggestionMap = new ConcurrentHashMap<>();
+    private final DictionaryRegistry dictionaryRegistry;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public DictionaryService(ApplicationController controller, SpellFilterProvider spellFilterProvider, ThreadService threadService, SpellcheckConfigBean spellcheckConfigBean) {
+    public DictionaryService(ApplicationController controller, SpellFilterProvider spellFilterProvider, ThreadService threadService, SpellcheckConfigBean spellcheckConfigBean, DictionaryRegistry dictionaryRegistry, ObjectMapper objectMapper) {
         this.controller = controller;
         this.spellFilterProvider = spellFilterProvider;
         this.threadService = threadService;
         this.spellcheckConfigBean = spellcheckConfigBean;
+        this.dictionaryRegistry = dictionaryRegistry;
+        this.objectMapper = objectMapper;
     }
 
 
-    private LanguageSpeller getLanguageSpeller(Path defaultLanguage) {
-        try {
-            Dictionary dictionary = Dictionary.read(defaultLanguage);
-            Speller speller = new Speller(dictionary);
-            final LanguageSpeller languageSpeller = new LanguageSpeller();
-            languageSpeller.setDictionary(dictionary);
-            languageSpeller.setSpeller(speller);
-            languageSpeller.setEncoding(dictionary.metadata.getEncoding());
-            languageSpellerMap.putIfAbsent(defaultLanguage, languageSpeller);
-            return languageSpellerMap.get(defaultLanguage);
-        } catch (NullPointerException e) {
-        } catch (Exception e) {
-            logger.error(e.getMessage(), e);
-        }
-
-        return null;
-    }
-
+    /**
+     * Checks the rows not checked before by the editor, stops when the editor content changes.
+     * Typos found until then are still sent, the editor keeps them for the next pass.
+     */
+    public void processTokens(EditorPane editorPane, String jsonTokenRows, String mode, long spellcheckRun) throws Exception {
 
-    public void processTokens(EditorPane editorPane, String jsonToken, String mode) {
-
-        final Path language = Optional.ofNullable(editorPane.getSpellLanguage()).orElseGet(spellcheckConfigBean::getDefaultLanguage);
+        final Path language = getLanguage(editorPane);
 
         if (Objects.isNull(language)) {
             return;
         }
 
-        final LanguageSpeller languageSpeller = getLanguageSpeller(language);
+        final LanguageSpeller languageSpeller = dictionaryRegistry.getLanguageSpeller(language).orElse(null);
 
         if (Objects.isNull(languageSpeller)) {
             return;
         }
 
-        final List<Token> tokenList = languageSpeller.getTokenList(jsonToken);
+        final TokenRows tokenRows = objectMapper.readValue(jsonTokenRows, TokenRows.class);
+        final AbstractSpellFilter spellFilter = spellFilterProvider.filterByMode(mode);
+        final Map<String, List<Typo>> typoMap = new LinkedHashMap<>();
+
+        for (TokenRow tokenRow : tokenRows.rows()) {
+
+            if (!editorPane.isSpellcheckRun(spellcheckRun)) {
+                break;
+            }
 
-        final List<Token> tokens = tokenList.stream()
-                .flatMap(token -> token.fromLines((token.getValue())).stream())
-                .filter(spellFilterProvider.filterByMode(mode))
-                .filter(t -> {
-                    try {
-                        return languageSpeller.isMisspelled(t.getValue());
-                    } catch (Exception e) {
+            final List<Typo> typos = tokenRow.tokens().stream()
+                    .flatMap(token -> token.fromLines((token.getValue())).stream())
+                    .filter(spellFilter)
+                    .filter(t -> {
+                        try {
+                            return languageSpeller.isMisspelled(t.getValue());
+                        } catch (Exception e) {
 //                        logger.info("Couldn't spell the word: {}", t.getValue(), e);
-                        return false;
-                    }
-                })
-                .peek(t -> {
-                    try {
+                            return false;
+                        }
+                    })
+                    .map(t -> {
                         final List<String> suggestions = languageSpeller.findSuggestions(t.getValue());
-                        t.setEmptySuggestion(suggestions.isEmpty());
-                        suggestionMap.put(t.getValue(), suggestions);
-                    } catch (Exception e) {
-//                        logger.info("Couldn't find suggestions for value {}", t.getValue(), e);
-                    }
-                })
-                .collect(Collectors.toList());
-
-        if (tokens.isEmpty()) {
-            return;
+                        return new Typo(t.getStart(), t.getEnd(), suggestions.isEmpty() ? "misspelled" : "misspelled-strong");
+                    })
+                    .collect(Collectors.toList());
+
+            typoMap.put(tokenRow.signature(), typos);
         }
 
+        final String jsonTypos = objectMapper.writeValueAsString(typoMap);
+
         threadService.runActionLater(() -> {
-            for (Token token : tokens) {
-                editorPane.addTypo(token);
-            }
+            editorPane.applyTypos(tokenRows.version(), jsonTypos);
         });
 
     }
 
-    public Map<String, List<String>> getSuggestionMap() {
-        return suggestionMap;
+    /**
+     * Key of the spellcheck results in the editor, they are dropped when it changes
+     */
+    public String getSpellKey(EditorPane editorPane) {
+        return Objects.toString(getLanguage(editorPane)) + ":" + editorPane.editorMode();
+    }
+
+    public List<String> findSuggestions(EditorPane editorPane, String word) {
+        return Optional.ofNullable(getLanguage(editorPane))
+                .flatMap(dictionaryRegistry::getLanguageSpeller)
+                .map(languageSpeller -> languageSpeller.findSuggestions(word))
+                .orElseGet(List::of);
+    }
+
+    private Path getLanguage(EditorPane editorPane) {
+        return Optional.ofNullable(editorPane.getSpellLanguage()).orElseGet(spellcheckConfigBean::getDefaultLanguage);
     }
 }
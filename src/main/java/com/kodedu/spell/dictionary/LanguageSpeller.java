@@ -1,29 +1,44 @@
 package com.kodedu.spell.dictionary;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import morfologik.speller.Speller;
 import morfologik.stemming.Dictionary;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.nio.BufferUnderflowException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Created by usta on 07.12.2015.
+ * <p>
+ * Shared between editor tabs, the underlying Speller is not thread safe
  */
 public class LanguageSpeller {
 
+    private static final int MAX_CACHED_WORDS = 10000;
+
     private Logger logger = LoggerFactory.getLogger(LanguageSpeller.class);
 
     private Dictionary dictionary;
     private Speller speller;
     private String encoding;
 
+    private final Map<String, Boolean> misspelledCache = createCache();
+    private final Map<String, List<String>> suggestionCache = createCache();
+
+    private static <T> Map<String, T> createCache() {
+        return new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, T> eldest) {
+                return size() > MAX_CACHED_WORDS;
+            }
+        };
+    }
 
-    public boolean isMisspelled(String word) {
-        return speller.isMisspelled(word);
+    public synchronized boolean isMisspelled(String word) {
+        return misspelledCache.computeIfAbsent(word, speller::isMisspelled);
     }
 
     public Dictionary getDictionary() {
@@ -50,30 +65,27 @@ public class LanguageSpeller {
         return encoding;
     }
 
-    public List<Token> getTokenList(String jsonToken) {
-        final ObjectMapper mapper = new ObjectMapper();
-        try {
-            return mapper.readValue(jsonToken, mapper.getTypeFactory().constructCollectionType(List.class, Token.class));
-        } catch (Exception e) {
-            return new ArrayList<>();
-        }
+    public synchronized boolean isInDictionary(String word) {
+        return speller.isInDictionary(word);
     }
 
-    public boolean isInDictionary(String word) {
-        return speller.isInDictionary(word);
+    /**
+     * The suggestions are cached, the returned list is unmodifiable
+     */
+    public synchronized List<String> findSuggestions(String word) {
+        return suggestionCache.computeIfAbsent(word, this::searchSuggestions);
     }
 
-    public List<String> findSuggestions(String word) {
+    private List<String> searchSuggestions(String word) {
         final ArrayList<String> resultList = new ArrayList<>();
         try {
             final List<String> runOnWords = speller.replaceRunOnWords(word);
             final List<String> replacements = speller.findReplacements(word);
             resultList.addAll(runOnWords);
             resultList.addAll(replacements);
-            return resultList;
         } catch (Throwable e) {
 //            logger.error(e.getMessage(), e);
         }
-        return resultList;
+        return List.copyOf(resultList);
     }
 }
@@ -0,0 +1,9 @@
+package com.kodedu.spell.dictionary;
+
+import java.util.List;
+
+/**
+ * Tokens of an editor row, rows with the same signature have the same content and typos
+ */
+public record TokenRow(String signature, List<Token> tokens) {
+}
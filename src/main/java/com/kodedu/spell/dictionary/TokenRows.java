@@ -0,0 +1,9 @@
+package com.kodedu.spell.dictionary;
+
+import java.util.List;
+
+/**
+ * Editor rows waiting for a spellcheck, version identifies the editor content they belong to
+ */
+public record TokenRows(int version, List<TokenRow> rows) {
+}
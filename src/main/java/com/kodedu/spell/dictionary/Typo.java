@@ -0,0 +1,7 @@
+package com.kodedu.spell.dictionary;
+
+/**
+ * Misspelled range of a row, type is the editor marker class
+ */
+public record Typo(int start, int end, String type) {
+}
@@ -0,0 +1,82 @@
+package com.kodedu.component;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+public class TextMirrorTest {
+
+    private static final int EDITS = 3000;
+    private static final String[] INSERTS = {"a", "\n", "== Title\n", "\r\n", "ğüş", "😀", "\t* item\n", ""};
+
+    private final TextMirror textMirror = new TextMirror();
+
+    /**
+     * Random insert and remove deltas replayed on the mirror and on a plain builder give the same text
+     */
+    @Test
+    void should_follow_random_deltas() {
+        Random random = new Random(20161012);
+        StringBuilder expected = new StringBuilder("= Document\n\nParagraph.\n");
+        textMirror.setText(expected.toString());
+
+        for (int i = 0; i < EDITS; i++) {
+            if (expected.isEmpty() || random.nextInt(3) > 0) {
+                int index = random.nextInt(expected.length() + 1);
+                String inserted = INSERTS[random.nextInt(INSERTS.length)];
+                expected.insert(index, inserted);
+                textMirror.insert(index, inserted);
+            } else {
+                int index = random.nextInt(expected.length());
+                int length = random.nextInt(Math.min(expected.length() - index, 20) + 1);
+                expected.delete(index, index + length);
+                textMirror.remove(index, length);
+            }
+
+            Assertions.assertEquals(expected.length(), textMirror.length());
+            if (i % 100 == 0) {
+                Assertions.assertEquals(expected.toString(), textMirror.getText());
+            }
+        }
+
+        Assertions.assertEquals(expected.toString(), textMirror.getText());
+        Assertions.assertTrue(textMirror.isInSync());
+    }
+
+    /**
+     * Readers share the snapshot until the next change
+     */
+    @Test
+    void should_share_snapshot_until_change() {
+        textMirror.setText("text");
+        textMirror.insert(4, "!");
+
+        String snapshot = textMirror.getText();
+        Assertions.assertSame(snapshot, textMirror.getText());
+
+        textMirror.remove(0, 1);
+        Assertions.assertEquals("ext!", textMirror.getText());
+    }
+
+    /**
+     * A delta outside of the copy means a change was missed, the content must be read from the editor again
+     */
+    @Test
+    void should_go_out_of_sync_on_deltas_outside_text() {
+        textMirror.setText("text");
+
+        textMirror.insert(5, "x");
+        Assertions.assertFalse(textMirror.isInSync());
+        Assertions.assertEquals("text", textMirror.getText());
+
+        textMirror.setText("text");
+        Assertions.assertTrue(textMirror.isInSync());
+        textMirror.remove(2, 3);
+        Assertions.assertFalse(textMirror.isInSync());
+
+        textMirror.setText("text");
+        textMirror.remove(-1, 1);
+        Assertions.assertFalse(textMirror.isInSync());
+    }
+}
@@ -0,0 +1,147 @@
+package com.kodedu.component;
+
+import com.kodedu.component.TreeItemPatcher.Node;
+
+import javafx.scene.control.TreeItem;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class TreeItemPatcherTest {
+
+    private record Entry(String key, String label) {
+    }
+
+    private final TreeItemPatcher<Entry> patcher = new TreeItemPatcher<>(Entry::key, entry -> entry);
+
+    private final TreeItem<Entry> root = new TreeItem<>();
+
+    @SafeVarargs
+    private static Node<Entry> node(String key, String label, Node<Entry>... children) {
+        return new Node<>(new Entry(key, label), Arrays.asList(children));
+    }
+
+    @SafeVarargs
+    private static Node<Entry> node(String key, Node<Entry>... children) {
+        return node(key, key, children);
+    }
+
+    private TreeItem<Entry> item(int index) {
+        return root.getChildren().get(index);
+    }
+
+    private List<String> labels(TreeItem<Entry> parent) {
+        return parent.getChildren().stream().map(item -> item.getValue().label()).toList();
+    }
+
+    @Test
+    void should_build_items_of_new_tree() {
+        Assertions.assertTrue(patcher.patch(root, List.of(node("a", node("a1")), node("b"))));
+
+        Assertions.assertEquals(List.of("a", "b"), labels(root));
+        Assertions.assertEquals(List.of("a1"), labels(item(0)));
+        Assertions.assertTrue(item(0).isExpanded());
+    }
+
+    @Test
+    void should_insert_new_items_between_kept_items() {
+        patcher.patch(root, List.of(node("a"), node("b")));
+        TreeItem<Entry> a = item(0);
+        TreeItem<Entry> b = item(1);
+
+        Assertions.assertTrue(patcher.patch(root, List.of(node("a"), node("x"), node("b"))));
+
+        Assertions.assertEquals(List.of("a", "x", "b"), labels(root));
+        Assertions.assertSame(a, item(0));
+        Assertions.assertSame(b, item(2));
+    }
+
+    @Test
+    void should_remove_items_left() {
+        patcher.patch(root, List.of(node("a"), node("b"), node("c")));
+        TreeItem<Entry> a = item(0);
+        TreeItem<Entry> c = item(2);
+
+        Assertions.assertTrue(patcher.patch(root, List.of(node("a"), node("c"))));
+
+        Assertions.assertEquals(List.of("a", "c"), labels(root));
+        Assertions.assertSame(a, item(0));
+        Assertions.assertSame(c, item(1));
+    }
+
+    @Test
+    void should_reorder_kept_items() {
+        patcher.patch(root, List.of(node("a"), node("b"), node("c")));
+        TreeItem<Entry> a = item(0);
+        TreeItem<Entry> b = item(1);
+        TreeItem<Entry> c = item(2);
+
+        Assertions.assertTrue(patcher.patch(root, List.of(node("c"), node("a"), node("b"))));
+
+        Assertions.assertEquals(List.of("c", "a", "b"), labels(root));
+        Assertions.assertSame(c, item(0));
+        Assertions.assertSame(a, item(1));
+        Assertions.assertSame(b, item(2));
+    }
+
+    /**
+     * Siblings of the same key, such as sections with the same title, are reused in order
+     */
+    @Test
+    void should_reuse_items_of_duplicate_keys_in_order() {
+        patcher.patch(root, List.of(node("dup", "first"), node("dup", "second")));
+        TreeItem<Entry> first = item(0);
+        TreeItem<Entry> second = item(1);
+
+        Assertions.assertTrue(patcher.patch(root, List.of(node("dup", "second"), node("dup", "first"), node("dup", "third"))));
+
+        Assertions.assertEquals(List.of("second", "first", "third"), labels(root));
+        Assertions.assertSame(first, item(0));
+        Assertions.assertSame(second, item(1));
+
+        Assertions.assertTrue(patcher.patch(root, List.of(node("dup", "second"))));
+        Assertions.assertEquals(List.of("second"), labels(root));
+        Assertions.assertSame(first, item(0));
+    }
+
+    /**
+     * Patching reuses the items, so a collapsed section stays collapsed while its title and children change
+     */
+    @Test
+    void should_preserve_expansion_state() {
+        patcher.patch(root, List.of(node("a", node("a1"), node("a2")), node("b", node("b1"))));
+        TreeItem<Entry> a = item(0);
+        TreeItem<Entry> a2 = a.getChildren().get(1);
+        a.setExpanded(false);
+        a2.setExpanded(false);
+
+        Assertions.assertTrue(patcher.patch(root, List.of(node("b", node("b1")),
+                node("a", "renamed", node("a0"), node("a2", node("a21"))))));
+
+        Assertions.assertSame(a, item(1));
+        Assertions.assertEquals("renamed", a.getValue().label());
+        Assertions.assertFalse(a.isExpanded());
+        Assertions.assertEquals(List.of("a0", "a2"), labels(a));
+        Assertions.assertSame(a2, a.getChildren().get(1));
+        Assertions.assertFalse(a2.isExpanded());
+        Assertions.assertEquals(List.of("a21"), labels(a2));
+        Assertions.assertTrue(a.getChildren().get(0).isExpanded());
+    }
+
+    @Test
+    void should_not_change_items_of_same_tree() {
+        List<Node<Entry>> nodes = List.of(node("a", node("a1")), node("b"));
+        List<Node<Entry>> sameNodes = List.of(node("a", node("a1")), node("b"));
+        patcher.patch(root, nodes);
+        TreeItem<Entry> a = item(0);
+
+        Assertions.assertTrue(patcher.isSame(nodes, sameNodes));
+        Assertions.assertFalse(patcher.patch(root, sameNodes));
+        Assertions.assertSame(a, item(0));
+
+        Assertions.assertFalse(patcher.isSame(nodes, List.of(node("a", node("a1", node("a11"))), node("b"))));
+        Assertions.assertFalse(patcher.isSame(nodes, List.of(node("a", "renamed", node("a1")), node("b"))));
+    }
+}
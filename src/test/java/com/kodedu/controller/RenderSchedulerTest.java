@@ -0,0 +1,103 @@
+package com.kodedu.controller;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+public class RenderSchedulerTest {
+
+    private static final long SLOW_RENDER_MILLIS = 300;
+
+    /**
+     * Texts of the renders, in the order they were started
+     */
+    private final List<String> rendered = new CopyOnWriteArrayList<>();
+    private final CountDownLatch firstRenderStarted = new CountDownLatch(1);
+
+    /**
+     * Fake renderer, takes the slow render time and shows the render unless the text asks to abandon it
+     */
+    private final Predicate<TextChangeEvent> renderer = textChangeEvent -> {
+        rendered.add(textChangeEvent.getText());
+        firstRenderStarted.countDown();
+        if (textChangeEvent.getText().startsWith("abandon")) {
+            return false;
+        }
+        try {
+            Thread.sleep(SLOW_RENDER_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return true;
+    };
+
+    private final RenderScheduler renderScheduler = new RenderScheduler(renderer);
+
+    private void submit(String text) {
+        renderScheduler.submit(new TextChangeEvent(text, "asciidoc", null), true);
+    }
+
+    private void awaitRenders(long renders) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (renderScheduler.getStats().renders() < renders) {
+            Assertions.assertTrue(System.nanoTime() < deadline, "Renders didn't complete in time");
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * The delay before a render follows the measured render time
+     */
+    @Test
+    void should_measure_render_time() throws InterruptedException {
+        submit("slow");
+        awaitRenders(1);
+
+        RenderScheduler.RenderStats stats = renderScheduler.getStats();
+        Assertions.assertTrue(stats.averageRenderMillis() >= SLOW_RENDER_MILLIS);
+        Assertions.assertTrue(Math.abs(stats.averageRenderMillis() / 2 - stats.delayMillis()) <= 1);
+        Assertions.assertEquals(0, stats.abandonedRenders());
+    }
+
+    /**
+     * Changes arriving during a render replace each other, only the latest one is rendered
+     */
+    @Test
+    void should_render_latest_change_only() throws InterruptedException {
+        submit("first");
+        Assertions.assertTrue(firstRenderStarted.await(10, TimeUnit.SECONDS));
+        for (int i = 1; i <= 10; i++) {
+            submit("change " + i);
+        }
+        awaitRenders(2);
+        Thread.sleep(SLOW_RENDER_MILLIS);
+
+        Assertions.assertEquals(List.of("first", "change 10"), rendered);
+        Assertions.assertEquals(2, renderScheduler.getStats().renders());
+    }
+
+    /**
+     * Abandoned renders may stop before converting, they don't lower the measured render time
+     */
+    @Test
+    void should_not_measure_abandoned_renders() throws InterruptedException {
+        submit("slow");
+        awaitRenders(1);
+        long delayMillis = renderScheduler.getStats().delayMillis();
+
+        for (int i = 1; i <= 5; i++) {
+            submit("abandon " + i);
+            awaitRenders(1 + i);
+        }
+
+        RenderScheduler.RenderStats stats = renderScheduler.getStats();
+        Assertions.assertEquals(5, stats.abandonedRenders());
+        Assertions.assertTrue(stats.averageRenderMillis() >= SLOW_RENDER_MILLIS);
+        Assertions.assertEquals(delayMillis, stats.delayMillis());
+    }
+}
@@ -0,0 +1,233 @@
+package com.kodedu.engine;
+
+import com.kodedu.engine.AsciidocChunkConverter.SourceChunk;
+import com.kodedu.engine.AsciidocChunkConverter.SplitDocument;
+
+import org.asciidoctor.Attributes;
+import org.asciidoctor.SafeMode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class AsciidocChunkConverterTest {
+
+    private static String lines(String... lines) {
+        return String.join("\n", lines);
+    }
+
+    private static List<String> texts(SplitDocument splitDocument) {
+        return splitDocument.chunks().stream().map(SourceChunk::text).toList();
+    }
+
+    /**
+     * Line of the chunk text in the source, computed as the preview does from the converted prefix and text
+     */
+    private static int sourceLine(SourceChunk chunk, String line) {
+        List<String> converted = List.of((chunk.prefix() + chunk.text()).split("\n", -1));
+        return converted.indexOf(line) + 1 + chunk.lineDelta();
+    }
+
+    /**
+     * The header stays out of the chunks, the body is split at each top-level section
+     */
+    @Test
+    void should_split_at_top_level_sections() {
+        SplitDocument splitDocument = AsciidocChunkConverter.split(lines(
+                "= Title",
+                ":attr: value",
+                "",
+                "Preamble text.",
+                "",
+                "== One",
+                "",
+                "Paragraph one.",
+                "",
+                "=== Nested",
+                "",
+                "== Two",
+                "",
+                "Paragraph two."));
+
+        Assertions.assertEquals("= Title\n:attr: value", splitDocument.header());
+        Assertions.assertEquals(List.of(
+                "\nPreamble text.\n",
+                "== One\n\nParagraph one.\n\n=== Nested\n",
+                "== Two\n\nParagraph two."), texts(splitDocument));
+
+        List<SourceChunk> chunks = splitDocument.chunks();
+        Assertions.assertTrue(chunks.get(0).preamble());
+        Assertions.assertFalse(chunks.get(1).preamble());
+        Assertions.assertEquals(List.of(3, 6, 12), chunks.stream().map(SourceChunk::startLine).toList());
+        Assertions.assertTrue(chunks.stream().allMatch(chunk -> chunk.prefix().equals("= Title\n:attr: value\n\n")));
+    }
+
+    /**
+     * Relative lines of a converted chunk, counted from the start of its prefix, map back to the source lines
+     */
+    @Test
+    void should_map_chunk_lines_to_source_lines() {
+        SplitDocument splitDocument = AsciidocChunkConverter.split(lines(
+                "= Title",
+                "",
+                "== One",
+                "",
+                ":body-attr: value",
+                "",
+                "Paragraph one.",
+                "",
+                "== Two",
+                "",
+                "Paragraph two."));
+
+        List<SourceChunk> chunks = splitDocument.chunks();
+        SourceChunk one = chunks.get(1);
+        SourceChunk two = chunks.get(2);
+
+        Assertions.assertEquals(3, sourceLine(one, "== One"));
+        Assertions.assertEquals(7, sourceLine(one, "Paragraph one."));
+        Assertions.assertEquals(9, sourceLine(two, "== Two"));
+        Assertions.assertEquals(11, sourceLine(two, "Paragraph two."));
+    }
+
+    /**
+     * Attribute entries of the body are carried over to the prefix of the following chunks only
+     */
+    @Test
+    void should_carry_body_attributes_to_following_chunks() {
+        SplitDocument splitDocument = AsciidocChunkConverter.split(lines(
+                "= Title",
+                "",
+                "== One",
+                "",
+                ":first: 1",
+                "",
+                "== Two",
+                "",
+                ":second: 2",
+                "",
+                "== Three"));
+
+        List<SourceChunk> chunks = splitDocument.chunks();
+        Assertions.assertEquals("= Title\n\n", chunks.get(1).prefix());
+        Assertions.assertEquals("= Title\n\n:first: 1\n\n", chunks.get(2).prefix());
+        Assertions.assertEquals("= Title\n\n:first: 1\n:second: 2\n\n", chunks.get(3).prefix());
+        Assertions.assertEquals(9, sourceLine(chunks.get(2), ":second: 2"));
+        Assertions.assertEquals(11, sourceLine(chunks.get(3), "== Three"));
+    }
+
+    /**
+     * Block attributes, anchors and titles above a section title belong to the section's chunk
+     */
+    @Test
+    void should_keep_block_attachments_with_their_section() {
+        SplitDocument splitDocument = AsciidocChunkConverter.split(lines(
+                "= Title",
+                "",
+                "Preamble.",
+                "",
+                "[#custom-id]",
+                "[appendix]",
+                "== One",
+                "",
+                "Paragraph."));
+
+        Assertions.assertEquals(List.of("\nPreamble.\n", "[#custom-id]\n[appendix]\n== One\n\nParagraph."), texts(splitDocument));
+        Assertions.assertEquals(5, splitDocument.chunks().get(1).startLine());
+        Assertions.assertEquals(7, sourceLine(splitDocument.chunks().get(1), "== One"));
+    }
+
+    /**
+     * Section-like lines inside delimited blocks and conditionals don't start a chunk
+     */
+    @Test
+    void should_not_split_inside_blocks_and_conditionals() {
+        SplitDocument splitDocument = AsciidocChunkConverter.split(lines(
+                "= Title",
+                "",
+                "== One",
+                "",
+                "----",
+                "",
+                "== Listing",
+                "----",
+                "",
+                "```",
+                "",
+                "== Fenced",
+                "```",
+                "",
+                "ifdef::draft[]",
+                "",
+                "== Draft",
+                "endif::[]",
+                "",
+                "== Two"));
+
+        Assertions.assertEquals(3, splitDocument.chunks().size());
+        Assertions.assertEquals(20, splitDocument.chunks().get(2).startLine());
+        Assertions.assertEquals("== Two", splitDocument.chunks().get(2).text());
+    }
+
+    /**
+     * Documents without a title have only their leading attribute entries in the header,
+     * and no preamble when the body starts with a section
+     */
+    @Test
+    void should_split_documents_without_title() {
+        SplitDocument splitDocument = AsciidocChunkConverter.split(lines(
+                ":attr: value",
+                "// comment",
+                "== One",
+                "",
+                "== Two"));
+
+        Assertions.assertEquals(":attr: value\n// comment", splitDocument.header());
+        Assertions.assertEquals(List.of("== One\n", "== Two"), texts(splitDocument));
+        Assertions.assertFalse(splitDocument.chunks().get(0).preamble());
+        Assertions.assertEquals(3, sourceLine(splitDocument.chunks().get(0), "== One"));
+        Assertions.assertEquals(5, sourceLine(splitDocument.chunks().get(1), "== Two"));
+    }
+
+    /**
+     * A document with a header only has no body to split
+     */
+    @Test
+    void should_not_split_header_only_documents() {
+        Assertions.assertNull(AsciidocChunkConverter.split(lines("= Title", ":attr: value")));
+        Assertions.assertNull(AsciidocChunkConverter.split(""));
+    }
+
+    /**
+     * Included files aren't part of the chunk hash, such documents are converted as a whole
+     */
+    @Test
+    void should_not_convert_chunks_including_files() {
+        AsciidocChunkConverter chunkConverter = new AsciidocChunkConverter(null, null);
+        Attributes attributes = Attributes.builder().build();
+
+        for (String include : List.of("include::chapter.adoc[]", "[plantuml]\n----\n!include common.puml\n----")) {
+            String content = lines("= Title", "", "== One", "", include, "", "== Two");
+            Assertions.assertTrue(chunkConverter.convert(null, content, attributes, null, SafeMode.UNSAFE, null).isEmpty());
+        }
+    }
+
+    @Test
+    void should_shift_data_lines() {
+        String html = "<p class=\"data-line-3\">a</p><h2 class=\"data-line-10 other\">b</h2>";
+
+        Assertions.assertEquals("<p class=\"data-line-8\">a</p><h2 class=\"data-line-15 other\">b</h2>",
+                AsciidocChunkConverter.shiftDataLines(html, 5));
+        Assertions.assertEquals("<p class=\"data-line-1\">a</p><h2 class=\"data-line-8 other\">b</h2>",
+                AsciidocChunkConverter.shiftDataLines(html, -2));
+        Assertions.assertSame(html, AsciidocChunkConverter.shiftDataLines(html, 0));
+    }
+
+    @Test
+    void should_only_shift_data_line_classes() {
+        String html = "<p class=\"data-line-3x mydata-line-4\">data-line-5</p>";
+
+        Assertions.assertEquals("<p class=\"data-line-3x mydata-line-4\">data-line-6</p>",
+                AsciidocChunkConverter.shiftDataLines(html, 1));
+    }
+}
@@ -0,0 +1,81 @@
+package com.kodedu.service;
+
+import org.asciidoctor.Asciidoctor;
+import org.asciidoctor.Options;
+import org.asciidoctor.SafeMode;
+import org.asciidoctor.ast.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+
+/**
+ * Loading only the document header, as the preview and the exports do, resolves the same header attributes as
+ * loading the whole document. See PreviewPipelineBenchmark for the time it saves.
+ */
+public class DocumentHeaderLoadTest {
+
+    private static final int SECTIONS = 500;
+
+    private static Asciidoctor doctor;
+    private static String asciidoc;
+
+    @BeforeAll
+    static void createDoctor() {
+        doctor = Asciidoctor.Factory.create();
+
+        StringBuilder builder = new StringBuilder()
+                .append("= Benchmark Document\n")
+                .append(":backend: docbook5\n")
+                .append(":toc: left\n")
+                .append(":header-attr: header\n\n");
+        for (int i = 0; i < SECTIONS; i++) {
+            builder.append("== Section ").append(i).append("\n\n")
+                    .append("Paragraph with *strong* and _emphasis_ text, see <<section-").append(i).append(">>.\n\n")
+                    .append("* item one\n* item two\n\n")
+                    .append("[source,java]\n----\nSystem.out.println(").append(i).append(");\n----\n\n");
+            if (i == SECTIONS / 2) {
+                builder.append(":body-attr: body\n\n");
+            }
+        }
+        asciidoc = builder.toString();
+    }
+
+    @AfterAll
+    static void shutdownDoctor() {
+        doctor.shutdown();
+    }
+
+    private Options headerOptions() {
+        return AsciidoctorFactory.headerOptions(Path.of("."), null, null);
+    }
+
+    private Options fullOptions() {
+        return Options.builder()
+                .safe(SafeMode.UNSAFE)
+                .sourcemap(true)
+                .baseDir(Path.of(".").toFile())
+                .build();
+    }
+
+    /**
+     * The header resolves the backend and the header attributes without parsing the body
+     */
+    @Test
+    void should_resolve_header_attributes_only() {
+        Document header = doctor.load(asciidoc, headerOptions());
+        Document full = doctor.load(asciidoc, fullOptions());
+
+        Assertions.assertEquals("docbook5", header.getAttribute("backend"));
+        Assertions.assertEquals("header", header.getAttribute("header-attr"));
+        Assertions.assertEquals("Benchmark Document", header.getDoctitle());
+        Assertions.assertTrue(header.getBlocks().isEmpty());
+        Assertions.assertNull(header.getAttribute("body-attr"));
+
+        Assertions.assertEquals(SECTIONS, full.getBlocks().size());
+        // Header attributes are restored at the end of parsing, entries of the body are visible to the conversion only
+        Assertions.assertNull(full.getAttribute("body-attr"));
+    }
+}
@@ -0,0 +1,114 @@
+package com.kodedu.service;
+
+import org.asciidoctor.Asciidoctor;
+import org.asciidoctor.Attributes;
+import org.asciidoctor.Options;
+import org.asciidoctor.SafeMode;
+import org.asciidoctor.ast.Document;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Manual benchmark of the Asciidoctor work done by the preview for each keystroke, on a large sample document.
+ * <p>
+ * Before the single-pass preview the whole document was converted once for its Document and attributes, and
+ * then converted again to HTML. Now only the header is loaded before the HTML conversion. Both pipelines run
+ * on the same Asciidoctor instance and the same keystrokes. It isn't part of the test suite, run it with
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.kodedu.service.PreviewPipelineBenchmark
+ * </pre>
+ * The section count can be given as the first argument, 2000 sections is about 300 pages.
+ */
+public class PreviewPipelineBenchmark {
+
+    private static final int WARMUP_KEYSTROKES = 10;
+    private static final int MEASURED_KEYSTROKES = 30;
+
+    private final Asciidoctor doctor = Asciidoctor.Factory.create();
+    private final Path baseDir = Path.of(".").toAbsolutePath();
+    private final StringBuilder text;
+
+    private PreviewPipelineBenchmark(int sections) {
+        text = new StringBuilder()
+                .append("= Sample Book\n")
+                .append(":toc: left\n")
+                .append(":icons: font\n\n");
+        for (int i = 0; i < sections; i++) {
+            text.append("== Section ").append(i).append("\n\n")
+                    .append("Paragraph with *strong* and _emphasis_ text, see <<section-").append(i).append(">>.\n\n")
+                    .append("[NOTE]\n====\nAdmonition of section ").append(i).append(".\n====\n\n")
+                    .append("* item one\n* item two\n** nested item\n\n")
+                    .append("|===\n|Name |Value\n|a |").append(i).append("\n|===\n\n")
+                    .append("[source,java]\n----\nSystem.out.println(").append(i).append(");\n----\n\n");
+        }
+    }
+
+    public static void main(String[] args) {
+        int sections = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        PreviewPipelineBenchmark benchmark = new PreviewPipelineBenchmark(sections);
+        try {
+            System.out.printf("Sample document: %d sections, %d lines%n", sections,
+                    benchmark.text.chars().filter(c -> c == '\n').count());
+            long before = benchmark.measure(benchmark::twoPasses);
+            long after = benchmark.measure(benchmark::singlePass);
+            System.out.printf("Per keystroke, before (full load + conversion): %d ms%n", TimeUnit.NANOSECONDS.toMillis(before));
+            System.out.printf("Per keystroke, after (header load + conversion): %d ms%n", TimeUnit.NANOSECONDS.toMillis(after));
+        } finally {
+            benchmark.doctor.shutdown();
+        }
+    }
+
+    /**
+     * Former preview, the whole document was converted to get its Document, then converted to HTML
+     */
+    private void twoPasses(String content) {
+        Options loadOptions = Options.builder()
+                .safe(SafeMode.UNSAFE)
+                .sourcemap(true)
+                .catalogAssets(true)
+                .baseDir(baseDir.toFile())
+                .attributes(Attributes.builder().allowUriRead(true).build())
+                .build();
+        // Converting the loaded document costs the same as the former convert, which kept the Document it parsed
+        Document document = doctor.load(content, loadOptions);
+        document.convert();
+        doctor.convert(content, htmlOptions(document));
+    }
+
+    private void singlePass(String content) {
+        Document header = doctor.load(content, AsciidoctorFactory.headerOptions(baseDir, null, null));
+        doctor.convert(content, htmlOptions(header));
+    }
+
+    private Options htmlOptions(Document document) {
+        return Options.builder()
+                .backend((String) document.getAttribute("backend", "html5"))
+                .safe(SafeMode.UNSAFE)
+                .sourcemap(true)
+                .catalogAssets(true)
+                .headerFooter(true)
+                .toFile(false)
+                .baseDir(baseDir.toFile())
+                .attributes(Attributes.builder().attributes(document.getAttributes()).attribute("preview", true).build())
+                .build();
+    }
+
+    /**
+     * Average time of a render after typing a character into a paragraph in the middle of the document
+     */
+    private long measure(Consumer<String> render) {
+        int position = text.indexOf("Paragraph with", text.length() / 2) + "Paragraph".length();
+        for (int i = 0; i < WARMUP_KEYSTROKES; i++) {
+            text.insert(position, 'x');
+            render.accept(text.toString());
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_KEYSTROKES; i++) {
+            text.insert(position, 'x');
+            render.accept(text.toString());
+        }
+        return (System.nanoTime() - start) / MEASURED_KEYSTROKES;
+    }
+}
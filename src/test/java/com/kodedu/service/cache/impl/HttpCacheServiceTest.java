@@ -0,0 +1,235 @@
+package com.kodedu.service.cache.impl;
+
+import com.kodedu.service.cache.HttpCacheStats;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class HttpCacheServiceTest {
+
+    private static final String ETAG = "\"v1\"";
+    private static final String BODY = "include::content[]";
+
+    /**
+     * Local stub server, answering with the status and delay set by the test
+     */
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger conditionalRequests = new AtomicInteger();
+    private volatile int status = 200;
+    private volatile long delayMillis;
+
+    @TempDir
+    Path cacheDirectory;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/doc.adoc", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try (exchange) {
+            Thread.sleep(delayMillis);
+            if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                conditionalRequests.incrementAndGet();
+                if (status == 200) {
+                    exchange.sendResponseHeaders(304, -1);
+                    return;
+                }
+            }
+            if (status != 200) {
+                exchange.sendResponseHeaders(status, -1);
+                return;
+            }
+            byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("ETag", ETAG);
+            exchange.getResponseHeaders().add("Content-Type", "text/plain; charset=UTF-8");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String uri() {
+        return "http://localhost:" + server.getAddress().getPort() + "/doc.adoc";
+    }
+
+    private HttpCacheServiceImpl cacheService(Duration timeToLive) {
+        return new HttpCacheServiceImpl(timeToLive, Duration.ofMillis(100), Duration.ofSeconds(5), cacheDirectory);
+    }
+
+    /**
+     * Concurrent requests of the same resource wait for a single fetch
+     */
+    @Test
+    void should_coalesce_concurrent_gets() throws Exception {
+        HttpCacheServiceImpl cacheService = cacheService(Duration.ofMinutes(1));
+        delayMillis = 300;
+
+        ExecutorService executor = Executors.newFixedThreadPool(20);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return cacheService.getString(uri());
+                }));
+            }
+            start.countDown();
+            for (Future<String> result : results) {
+                Assertions.assertEquals(BODY, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assertions.assertEquals(1, requests.get());
+        HttpCacheStats stats = cacheService.getStats();
+        Assertions.assertEquals(1, stats.downloads());
+        Assertions.assertEquals(19, stats.coalesced() + stats.hits());
+    }
+
+    /**
+     * Resources are served without a request until the time to live passes
+     */
+    @Test
+    void should_not_request_within_time_to_live() throws IOException {
+        HttpCacheServiceImpl cacheService = cacheService(Duration.ofMinutes(1));
+
+        Assertions.assertEquals(BODY, cacheService.getString(uri()));
+        Assertions.assertEquals(BODY, cacheService.getString(uri()));
+        Assertions.assertEquals(BODY, cacheService.getString(uri()));
+
+        Assertions.assertEquals(1, requests.get());
+        Assertions.assertEquals(2, cacheService.getStats().hits());
+    }
+
+    /**
+     * Files written by a previous instance are served after restart
+     */
+    @Test
+    void should_serve_cache_files_after_restart() throws IOException {
+        cacheService(Duration.ofMinutes(1)).getString(uri());
+
+        Assertions.assertEquals(BODY, cacheService(Duration.ofMinutes(1)).getString(uri()));
+        Assertions.assertEquals(1, requests.get());
+    }
+
+    /**
+     * Once the time to live passes, the resource is revalidated with its ETag
+     */
+    @Test
+    void should_revalidate_with_not_modified() throws Exception {
+        HttpCacheServiceImpl cacheService = cacheService(Duration.ofMillis(100));
+
+        cacheService.getString(uri());
+        Thread.sleep(200);
+
+        Assertions.assertEquals(BODY, cacheService.getString(uri()));
+        Assertions.assertEquals(2, requests.get());
+        Assertions.assertEquals(1, conditionalRequests.get());
+        Assertions.assertEquals(1, cacheService.getStats().revalidations());
+        Assertions.assertEquals(1, cacheService.getStats().downloads());
+    }
+
+    /**
+     * Server errors on revalidation serve the stale copy
+     */
+    @Test
+    void should_serve_stale_copy_on_server_error() throws Exception {
+        HttpCacheServiceImpl cacheService = cacheService(Duration.ofMillis(100));
+
+        cacheService.getString(uri());
+        status = 503;
+        Thread.sleep(200);
+
+        Assertions.assertEquals(BODY, cacheService.getString(uri()));
+        Assertions.assertEquals(2, requests.get());
+        Assertions.assertEquals(1, cacheService.getStats().staleHits());
+    }
+
+    /**
+     * An unreachable server on revalidation serves the stale copy
+     */
+    @Test
+    void should_serve_stale_copy_when_server_is_stopped() throws Exception {
+        HttpCacheServiceImpl cacheService = cacheService(Duration.ofMillis(100));
+
+        cacheService.getString(uri());
+        String uri = uri();
+        server.stop(0);
+        Thread.sleep(200);
+
+        Assertions.assertEquals(BODY, cacheService.getString(uri));
+        Assertions.assertEquals(1, cacheService.getStats().staleHits());
+    }
+
+    /**
+     * In offline mode cached copies are served without a request, however stale they are
+     */
+    @Test
+    void should_serve_cached_copy_offline() throws Exception {
+        HttpCacheServiceImpl cacheService = cacheService(Duration.ofMillis(100));
+
+        cacheService.getString(uri());
+        cacheService.setOffline(true);
+        Thread.sleep(200);
+
+        Assertions.assertEquals(BODY, cacheService.getString(uri()));
+        Assertions.assertEquals(1, requests.get());
+        Assertions.assertEquals(1, cacheService.getStats().staleHits());
+
+        cacheService.setOffline(false);
+        Assertions.assertEquals(BODY, cacheService.getString(uri()));
+        Assertions.assertEquals(2, requests.get());
+    }
+
+    /**
+     * A failed fetch is not retried until the backoff passes, then the recovered server is requested again
+     */
+    @Test
+    void should_retry_failures_after_backoff() throws Exception {
+        HttpCacheServiceImpl cacheService = cacheService(Duration.ofMinutes(1));
+        status = 404;
+
+        Assertions.assertThrows(IOException.class, () -> cacheService.getString(uri()));
+        Assertions.assertThrows(IOException.class, () -> cacheService.getString(uri()));
+        Assertions.assertEquals(1, requests.get());
+
+        status = 200;
+        Thread.sleep(200);
+
+        Assertions.assertEquals(BODY, cacheService.getString(uri()));
+        Assertions.assertEquals(2, requests.get());
+    }
+}
@@ -0,0 +1,184 @@
+package com.kodedu.service.cache.impl;
+
+import com.kodedu.service.cache.InDiskData;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class SegmentStoreTest {
+
+    private static final int ENTRY_SIZE = 500;
+    /**
+     * Each record is the header, a two bytes key and the entry, seven of them fit in the store
+     */
+    private static final long MAXIMUM_SIZE = 4000;
+
+    @TempDir
+    Path directory;
+
+    private SegmentStore store;
+
+    @AfterEach
+    void closeStore() throws IOException {
+        store.close();
+    }
+
+    private SegmentStore open() throws IOException {
+        SegmentStore segmentStore = new SegmentStore(directory, MAXIMUM_SIZE);
+        segmentStore.open();
+        return segmentStore;
+    }
+
+    private static byte[] entry(int value) {
+        byte[] bytes = new byte[ENTRY_SIZE];
+        Arrays.fill(bytes, (byte) value);
+        return bytes;
+    }
+
+    private List<String> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(fileName -> fileName.startsWith("segment-"))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * The index is rebuilt from the file, the latest record of a key wins
+     */
+    @Test
+    void should_recover_entries_after_reopen() throws IOException {
+        store = open();
+        store.put("a", "first".getBytes(StandardCharsets.UTF_8), 1);
+        store.put("b", "second".getBytes(StandardCharsets.UTF_8), 2);
+        store.put("a", "replaced".getBytes(StandardCharsets.UTF_8), 3);
+        store.close();
+
+        store = open();
+        Assertions.assertEquals(2, store.count());
+        Assertions.assertEquals("second".length() + "replaced".length(), store.size());
+        Assertions.assertEquals("replaced", new String(store.read("a").orElseThrow(), StandardCharsets.UTF_8));
+        Assertions.assertEquals("second", new String(store.read("b").orElseThrow(), StandardCharsets.UTF_8));
+        Assertions.assertTrue(store.contains("a", 3));
+        Assertions.assertFalse(store.contains("a", 1));
+    }
+
+    /**
+     * A record cut by a crash is dropped, the records written afterwards are readable after the next restart
+     */
+    @Test
+    void should_truncate_incomplete_record() throws IOException {
+        store = open();
+        store.put("a", entry(1), 1);
+        store.close();
+        Path segment = directory.resolve(segmentFiles().get(0));
+        long completeSize = Files.size(segment);
+        Files.write(segment, new byte[]{0, 0, 0, 1, 'b', 0, 0}, StandardOpenOption.APPEND);
+
+        store = open();
+        Assertions.assertEquals(completeSize, Files.size(segment));
+        Assertions.assertEquals(1, store.count());
+        store.put("c", entry(3), 3);
+        store.close();
+
+        store = open();
+        Assertions.assertEquals(2, store.count());
+        Assertions.assertArrayEquals(entry(1), store.read("a").orElseThrow());
+        Assertions.assertArrayEquals(entry(3), store.read("c").orElseThrow());
+    }
+
+    /**
+     * A key which couldn't be read back when the index is rebuilt is not written
+     */
+    @Test
+    void should_reject_long_keys() throws IOException {
+        store = open();
+        String longKey = "k".repeat(4097);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> store.put(longKey, entry(1), 1));
+        store.put("a", entry(2), 2);
+        store.close();
+
+        store = open();
+        Assertions.assertFalse(store.contains(longKey));
+        Assertions.assertArrayEquals(entry(2), store.read("a").orElseThrow());
+    }
+
+    /**
+     * Growing beyond the maximum size keeps the most recently used entries in the next generation
+     */
+    @Test
+    void should_keep_recently_used_entries_on_compaction() throws IOException {
+        store = open();
+        for (int i = 0; i < 7; i++) {
+            store.put("k" + i, entry(i), i);
+        }
+        Assertions.assertEquals(0, store.evictions());
+        store.read("k0");
+        store.put("k7", entry(7), 7);
+
+        // Three quarters of the maximum size are kept: k7, k0, k6, k5, k4
+        Assertions.assertEquals(3, store.evictions());
+        Assertions.assertEquals(5, store.count());
+        Assertions.assertEquals(5L * ENTRY_SIZE, store.size());
+        for (String evicted : List.of("k1", "k2", "k3")) {
+            Assertions.assertFalse(store.contains(evicted));
+        }
+        Assertions.assertEquals(List.of("segment-1.dat"), segmentFiles());
+        store.close();
+
+        store = open();
+        Assertions.assertEquals(5, store.count());
+        for (int i : new int[]{0, 4, 5, 6, 7}) {
+            Assertions.assertArrayEquals(entry(i), store.read("k" + i).orElseThrow());
+        }
+    }
+
+    /**
+     * A view taken before a compaction keeps reading the former generation until it is closed
+     */
+    @Test
+    void should_keep_retired_segment_until_views_are_closed() throws IOException {
+        store = open();
+        store.put("k0", entry(0), 0);
+        InDiskData view = store.view("k0").orElseThrow();
+        for (int i = 1; i < 8; i++) {
+            store.put("k" + i, entry(i), i);
+        }
+
+        Assertions.assertFalse(store.contains("k0"));
+        Assertions.assertEquals(List.of("segment-0.dat", "segment-1.dat"), segmentFiles());
+        Assertions.assertArrayEquals(entry(0), view.readBytes());
+
+        view.close();
+        view.close();
+        Assertions.assertEquals(List.of("segment-1.dat"), segmentFiles());
+    }
+
+    /**
+     * Without open views the former generation is deleted by the compaction
+     */
+    @Test
+    void should_delete_retired_segment_without_views() throws IOException {
+        store = open();
+        store.put("k0", entry(0), 0);
+        store.view("k0").orElseThrow().close();
+        for (int i = 1; i < 8; i++) {
+            store.put("k" + i, entry(i), i);
+        }
+
+        Assertions.assertEquals(List.of("segment-1.dat"), segmentFiles());
+    }
+}